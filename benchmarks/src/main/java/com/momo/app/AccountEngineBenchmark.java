@@ -0,0 +1,67 @@
+package com.momo.app;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Throughput of the AccountEngine as the number of shards grows. Every invocation
+// submits a wave of add-and-pay commands spread over many accounts and waits for all
+// of them, so the shard workers are the only threads doing store work.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountEngineBenchmark {
+
+    private static final int ACCOUNTS = 64;
+    private static final int COMMANDS_PER_ACCOUNT = 16;
+    private static final LocalDate DUE_DATE = LocalDate.of(2030, 1, 1);
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    private AccountEngine engine;
+    private String[] accounts;
+    private int[] nextBillIds; // per account, only touched by the worker of its shard
+    private CompletableFuture<?>[] wave;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        engine = new AccountEngine(shards, account -> new DataStore(new InMemoryBillRepository()), Clock.systemUTC());
+        accounts = new String[ACCOUNTS];
+        nextBillIds = new int[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = "account-" + i;
+            engine.execute(accounts[i], store -> store.cashIn(Integer.MAX_VALUE));
+        }
+        wave = new CompletableFuture<?>[ACCOUNTS * COMMANDS_PER_ACCOUNT];
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCOUNTS * COMMANDS_PER_ACCOUNT)
+    public void addAndPay() {
+        int n = 0;
+        for (int round = 0; round < COMMANDS_PER_ACCOUNT; round++) {
+            for (int i = 0; i < ACCOUNTS; i++) {
+                int account = i;
+                wave[n++] = engine.submit(accounts[account], store -> {
+                    int id = ++nextBillIds[account];
+                    store.addBill(new Bill(id, BillType.ELECTRIC, 1, DUE_DATE, Provider.of("EVN HCMC")));
+                    return store.payBills(List.of(id));
+                });
+            }
+        }
+        CompletableFuture.allOf(wave).join();
+    }
+}
@@ -0,0 +1,61 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Paying a 10k-id corporate batch: the all-or-nothing payBills against the
+// best-effort mode, which validates the ids over the fork-join pool, sorts the
+// bills by due date and reports every id.
+//
+// Every measurement pays one batch on a fresh store, set up outside the measured
+// time, so the store does not grow from one measurement to the next. With an
+// unknown id in the batch payBills rejects it all, while payBillsBestEffort
+// still pays the other bills.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 200)
+@Measurement(iterations = 200)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BatchPaymentBenchmark {
+
+    static final int BATCH_SIZE = 10_000;
+    private static final LocalDate DUE_DATE = LocalDate.of(2030, 1, 1);
+
+    @Param({"false", "true"})
+    public boolean withUnknownId;
+
+    DataStore store;
+    List<Integer> batch;
+
+    // Due dates vary so the best-effort sort has work to do
+    @Setup(Level.Iteration)
+    public void setUp() {
+        store = new DataStore(new InMemoryBillRepository());
+        store.cashIn(Integer.MAX_VALUE);
+        List<Bill> bills = new ArrayList<>(BATCH_SIZE);
+        batch = new ArrayList<>(BATCH_SIZE + 1);
+        for (int id = 1; id <= BATCH_SIZE; id++) {
+            bills.add(new Bill(id, BillType.ELECTRIC, 100, DUE_DATE.minusDays(id % 365), Provider.of("EVN HCMC")));
+            batch.add(id);
+        }
+        store.addBills(bills);
+        if (withUnknownId) {
+            batch.add(BATCH_SIZE / 2, -1);
+        }
+    }
+
+    @Benchmark
+    public PaymentResult payBills() {
+        return store.payBills(batch);
+    }
+
+    @Benchmark
+    public BatchPaymentReport payBillsBestEffort() {
+        return store.payBillsBestEffort(batch);
+    }
+}
@@ -0,0 +1,41 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Lookup cost of findBill / findPendingPaymentByBillId should stay flat as the bill count grows
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BillLookupBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int billCount;
+
+    private DataStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new DataStore();
+        LocalDate dueDate = LocalDate.of(2030, 1, 1);
+        for (int id = 4; id <= billCount; id++) {
+            store.addBill(new Bill(id, BillType.ELECTRIC, 1000, dueDate, Provider.of("EVN HCMC")));
+        }
+    }
+
+    @Benchmark
+    public Bill findBill() {
+        return store.findBill(ThreadLocalRandom.current().nextInt(1, billCount + 1));
+    }
+
+    @Benchmark
+    public Payment findPendingPaymentByBillId() {
+        return store.findPendingPaymentByBillId(ThreadLocalRandom.current().nextInt(1, billCount + 1));
+    }
+}
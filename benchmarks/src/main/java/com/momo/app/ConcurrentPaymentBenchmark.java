@@ -0,0 +1,67 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Throughput of cashIn, payBills and scheduleBill driven from many threads at once.
+// Run main() to sweep the thread count from 1 to the number of cores,
+// or pass -t <threads> to the benchmarks jar for a single point.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentPaymentBenchmark {
+
+    private static final LocalDate DUE_DATE = LocalDate.of(2030, 1, 1);
+
+    private DataStore store;
+    private AtomicInteger nextBillId;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        store = new DataStore();
+        store.cashIn(Integer.MAX_VALUE);
+        nextBillId = new AtomicInteger(4);
+    }
+
+    @Benchmark
+    public void cashIn() {
+        store.cashIn(0);
+    }
+
+    // Every call pays a fresh bill, so threads work on disjoint bills
+    @Benchmark
+    public void payBills() {
+        int id = nextBillId.getAndIncrement();
+        store.addBill(new Bill(id, BillType.ELECTRIC, 0, DUE_DATE, Provider.of("EVN HCMC")));
+        store.payBills(List.of(id));
+    }
+
+    @Benchmark
+    public void scheduleBill() {
+        int id = nextBillId.getAndIncrement();
+        store.addBill(new Bill(id, BillType.WATER, 0, DUE_DATE, Provider.of("SAVACO HCMC")));
+        store.scheduleBill(id, "01/12/2029");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            Options options = new OptionsBuilder()
+                    .include(ConcurrentPaymentBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
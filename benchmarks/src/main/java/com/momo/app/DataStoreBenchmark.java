@@ -0,0 +1,151 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// The DataStore hot paths against stores of 10 to 10M bills.
+//
+// Payments and schedules need bills that are still unpaid, so a fresh batch of bills
+// is added before every invocation, outside the measured time. Run main() to sweep
+// the thread count with the GC profiler on, or pass -t <threads> -prof gc to the
+// benchmarks jar. The 10M store needs a large heap (see jvmArgsAppend).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class DataStoreBenchmark {
+
+    static final int MULTI_PAY_SIZE = 10;
+    private static final LocalDate DUE_DATE = LocalDate.of(2030, 1, 1);
+    private static final String[] PROVIDERS = {"EVN HCMC", "SAVACO HCMC", "VNPT", "FPT", "VIETTEL"};
+
+    @Param({"10", "1000", "100000", "1000000", "10000000"})
+    public int billCount;
+
+    DataStore store;
+    final AtomicInteger nextBillId = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new DataStore(new InMemoryBillRepository());
+        store.cashIn(Integer.MAX_VALUE);
+        List<Bill> batch = new ArrayList<>(10_000);
+        for (int id = 1; id <= billCount; id++) {
+            batch.add(newBill(id));
+            if (batch.size() == 10_000) {
+                store.addBills(batch);
+                batch.clear();
+            }
+        }
+        store.addBills(batch);
+        nextBillId.set(billCount + 1);
+    }
+
+    // Amounts are 0 so the balance never runs out, whatever the run length
+    static Bill newBill(int id) {
+        return new Bill(id, BillType.values()[id % 3], 0, DUE_DATE, Provider.of(PROVIDERS[id % PROVIDERS.length]));
+    }
+
+    // Unpaid bills of one thread, added before each invocation
+    @State(Scope.Thread)
+    public static class FreshBills {
+        List<Integer> single;
+        List<Integer> multi;
+        int scheduleId;
+        final int[] singleArray = new int[1];
+        final int[] multiArray = new int[MULTI_PAY_SIZE];
+        final PaymentOutcome outcome = new PaymentOutcome(); // reused by the int[] benchmarks
+
+        @Setup(Level.Invocation)
+        public void addBills(DataStoreBenchmark benchmark) {
+            List<Bill> bills = new ArrayList<>(MULTI_PAY_SIZE + 2);
+            List<Integer> ids = new ArrayList<>(MULTI_PAY_SIZE + 2);
+            for (int i = 0; i < MULTI_PAY_SIZE + 2; i++) {
+                int id = benchmark.nextBillId.getAndIncrement();
+                bills.add(newBill(id));
+                ids.add(id);
+            }
+            benchmark.store.addBills(bills);
+            single = List.of(ids.get(0));
+            scheduleId = ids.get(1);
+            multi = ids.subList(2, ids.size());
+            singleArray[0] = single.get(0);
+            for (int i = 0; i < MULTI_PAY_SIZE; i++) {
+                multiArray[i] = multi.get(i);
+            }
+        }
+    }
+
+    @Benchmark
+    public PaymentResult payBillsSingle(FreshBills fresh) {
+        return store.payBills(fresh.single);
+    }
+
+    @Benchmark
+    public PaymentResult payBillsMulti(FreshBills fresh) {
+        return store.payBills(fresh.multi);
+    }
+
+    // The allocation-free overload; -prof gc should only show the Payment records kept by the store
+    @Benchmark
+    public PaymentOutcome payBillsSingleArray(FreshBills fresh) {
+        return store.payBills(fresh.singleArray, 1, fresh.outcome);
+    }
+
+    @Benchmark
+    public PaymentOutcome payBillsMultiArray(FreshBills fresh) {
+        return store.payBills(fresh.multiArray, MULTI_PAY_SIZE, fresh.outcome);
+    }
+
+    @Benchmark
+    public ScheduleResult scheduleBill(FreshBills fresh) {
+        return store.scheduleBill(fresh.scheduleId, "01/12/2029");
+    }
+
+    @Benchmark
+    public List<Bill> listUnpaidBills() {
+        return store.getUnpaidBills();
+    }
+
+    @Benchmark
+    public List<Bill> listBillbyProvider() {
+        return store.findBillsByProvider(PROVIDERS[ThreadLocalRandom.current().nextInt(PROVIDERS.length)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Bill findBill() {
+        return store.findBill(ThreadLocalRandom.current().nextInt(1, billCount + 1));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long cashIn() {
+        return store.cashIn(0);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            Options options = new OptionsBuilder()
+                    .include(DataStoreBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
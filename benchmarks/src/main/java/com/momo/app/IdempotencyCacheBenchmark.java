@@ -0,0 +1,57 @@
+package com.momo.app;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Cost of an idempotency lookup: a repeated key (hit) and a stream of new keys
+// that keeps the cache full, so every call also evicts the oldest key.
+// The eviction count is printed at the end of each iteration.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdempotencyCacheBenchmark {
+
+    @Param({"1000", "100000"})
+    public int capacity;
+
+    private IdempotencyCache<Integer> cache;
+    private String[] keys;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        cache = new IdempotencyCache<>(capacity, Duration.ofHours(24), Clock.systemUTC());
+        keys = new String[capacity * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "request-" + i;
+            if (i < capacity) {
+                cache.getOrRun(keys[i], () -> 0);
+            }
+        }
+        next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        System.out.println("size " + cache.size() + ", evictions " + cache.getEvictionCount());
+    }
+
+    @Benchmark
+    public Integer hit() {
+        return cache.getOrRun(keys[0], () -> 1);
+    }
+
+    // keys[] is cycled, so a key comes back only after it has been evicted
+    @Benchmark
+    public Integer missAndEvict() {
+        String key = keys[next];
+        next = next + 1 == keys.length ? 0 : next + 1;
+        return cache.getOrRun(key, () -> 1);
+    }
+}
@@ -0,0 +1,71 @@
+package com.momo.app;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Import of a generated multi-million-row provider statement into an empty store.
+// Rows per second = rows / score.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class ImportBenchmark {
+
+    private static final String[] PROVIDERS = {"EVN HCMC", "SAVACO HCMC", "VNPT", "VIETTEL", "FPT"};
+    private static final String[] TYPES = {"ELECTRIC", "WATER", "INTERNET"};
+
+    @Param({"1000000", "2000000"})
+    private int rows;
+
+    @Param({"CSV", "JSON_LINES"})
+    private BillImporter.Format format;
+
+    private Path file;
+    private DataStore store;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        file = Files.createTempFile("statement", format == BillImporter.Format.CSV ? ".csv" : ".jsonl");
+        LocalDate start = LocalDate.of(2030, 1, 1);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            if (format == BillImporter.Format.CSV) {
+                writer.write("id,type,amount,dueDate,provider\n");
+            }
+            for (int i = 0; i < rows; i++) {
+                int id = 4 + i;
+                String type = TYPES[i % TYPES.length];
+                String provider = PROVIDERS[i % PROVIDERS.length];
+                String dueDate = start.plusDays(i % 365).toString();
+                if (format == BillImporter.Format.CSV) {
+                    writer.write(id + "," + type + "," + (i % 1000000) + "," + dueDate + "," + provider + "\n");
+                } else {
+                    writer.write("{\"id\":" + id + ",\"type\":\"" + type + "\",\"amount\":" + (i % 1000000)
+                            + ",\"dueDate\":\"" + dueDate + "\",\"provider\":\"" + provider + "\"}\n");
+                }
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyStore() {
+        store = new DataStore(new InMemoryBillRepository());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public ImportReport importStatement() throws IOException {
+        return new BillImporter(store).importFile(file, format);
+    }
+}
@@ -0,0 +1,68 @@
+package com.momo.app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+// Sustained write throughput of a journaled store. Every operation waits for its
+// record to be fsynced, so running with more threads (-t) shows the group commit batching.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JournalBenchmark {
+
+    private static final LocalDate DUE_DATE = LocalDate.of(2030, 1, 1);
+
+    private Path dir;
+    private Persistence persistence;
+    private DataStore store;
+    private AtomicInteger nextBillId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal-bench");
+        persistence = Persistence.open(dir, Duration.ofSeconds(5));
+        store = persistence.getStore();
+        store.cashIn(Integer.MAX_VALUE);
+        nextBillId = new AtomicInteger(4);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        persistence.close();
+        deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public void cashIn() {
+        store.cashIn(0);
+    }
+
+    // Logs a bill record and a payment record per call
+    @Benchmark
+    public void addAndPayBill() {
+        int id = nextBillId.getAndIncrement();
+        store.addBill(new Bill(id, BillType.ELECTRIC, 0, DUE_DATE, Provider.of("EVN HCMC")));
+        store.payBills(List.of(id));
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.momo.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// Load generator for the CommandServer: many clients, each on its own connection and
+// account, send a mix of commands and time every round trip. Prints throughput and
+// latency percentiles.
+//
+//   java -cp benchmarks/target/benchmarks.jar com.momo.app.LoadGenerator [--host h --port p] [--clients n] [--requests n]
+//
+// Without --port an in-process server is started on a free port.
+public class LoadGenerator {
+    private static final String[] COMMANDS = {"CASH_IN 1", "DUE_DATE", "SEARCH_BILL_BY_PROVIDER VNPT", "LIST_PAYMENTS"};
+
+    public static void main(String[] args) throws Exception {
+        String host = "localhost";
+        int port = -1;
+        int clients = 1000;
+        int requests = 100; // per client
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--host": host = args[i + 1]; break;
+                case "--port": port = Integer.parseInt(args[i + 1]); break;
+                case "--clients": clients = Integer.parseInt(args[i + 1]); break;
+                case "--requests": requests = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        AccountEngine engine = null;
+        CommandServer server = null;
+        if (port < 0) {
+            engine = new AccountEngine(Runtime.getRuntime().availableProcessors(), account -> new DataStore(), Clock.systemDefaultZone());
+            server = new CommandServer(engine, new Metrics(App.COMMANDS), 0);
+            server.start();
+            port = server.getPort();
+        }
+
+        System.out.println("Clients: " + clients + ", requests per client: " + requests
+                + ", virtual threads: " + VirtualThreads.available());
+        run(host, port, clients, requests);
+
+        if (server != null) {
+            server.close();
+            engine.close();
+        }
+    }
+
+    static void run(String host, int port, int clients, int requests) throws Exception {
+        CountDownLatch ready = new CountDownLatch(clients);
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("load-client");
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            String account = "@load-" + i + " ";
+            results.add(executor.submit(() -> runClient(host, port, account, requests, ready, go)));
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+
+        long[] latencies = new long[clients * requests];
+        int n = 0;
+        for (Future<long[]> result : results) {
+            long[] client = result.get();
+            System.arraycopy(client, 0, latencies, n, client.length);
+            n += client.length;
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.printf("Requests: %d in %d ms (%d requests/s)%n", latencies.length, elapsedNanos / 1_000_000,
+                latencies.length * 1_000_000_000L / Math.max(1, elapsedNanos));
+        for (String percentile : new String[] {"50", "90", "99", "99.9"}) {
+            System.out.printf("p%-5s %8.3f ms%n", percentile, percentile(latencies, Double.parseDouble(percentile)) / 1e6);
+        }
+        System.out.printf("max    %8.3f ms%n", latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static long[] runClient(String host, int port, String account, int requests,
+                                    CountDownLatch ready, CountDownLatch go) throws IOException, InterruptedException {
+        long[] latencies = new long[requests];
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), false, StandardCharsets.UTF_8);
+            ready.countDown();
+            go.await();
+            for (int i = 0; i < requests; i++) {
+                long start = System.nanoTime();
+                out.println(account + COMMANDS[i % COMMANDS.length]);
+                out.flush();
+                String line;
+                while ((line = in.readLine()) != null && !line.equals(CommandServer.END_OF_RESPONSE)) {
+                    // skip the response body
+                }
+                latencies[i] = System.nanoTime() - start;
+            }
+        }
+        return latencies;
+    }
+
+    // Nearest-rank percentile of sorted values
+    private static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,63 @@
+package com.momo.app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Warm startup (mapping an existing column directory) and lookup cost of the mapped bill store.
+// Run with -prof gc to see that neither keeps the bills on the heap.
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx256m"})
+public class MappedBillRepositoryBenchmark {
+
+    private static final String[] PROVIDERS = {"EVN HCMC", "SAVACO HCMC", "VNPT", "VIETTEL", "FPT"};
+
+    @Param({"1000000", "10000000"})
+    private int billCount;
+
+    private Path dir;
+    private MappedBillRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("mapped-bench");
+        try (MappedBillRepository writer = new MappedBillRepository(dir)) {
+            LocalDate dueDate = LocalDate.of(2030, 1, 1);
+            for (int id = 1; id <= billCount; id++) {
+                writer.add(new Bill(id, BillType.ELECTRIC, id % 1000000, dueDate.plusDays(id % 365), Provider.of(PROVIDERS[id % PROVIDERS.length])));
+            }
+        }
+        repository = new MappedBillRepository(dir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        JournalBenchmark.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int open() throws IOException {
+        try (MappedBillRepository reopened = new MappedBillRepository(dir)) {
+            return reopened.size();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public Bill findBill() {
+        return repository.find(ThreadLocalRandom.current().nextInt(1, billCount + 1));
+    }
+}
@@ -0,0 +1,65 @@
+package com.momo.app;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.*;
+
+// What the metrics cost: the same DataStore operations with and without a Metrics
+// attached, and a bare histogram record. cashIn is the cheapest operation, so it
+// shows the worst relative overhead.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    @Param({"false", "true"})
+    public boolean metricsEnabled;
+
+    private DataStore store;
+    private LatencyHistogram histogram;
+    private int nextBillId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new DataStore(new InMemoryBillRepository());
+        if (metricsEnabled) {
+            store.setMetrics(new Metrics(App.COMMANDS));
+        }
+        store.cashIn(Integer.MAX_VALUE);
+        histogram = new LatencyHistogram();
+        nextBillId = 1;
+    }
+
+    // A fresh unpaid bill for every payBills invocation
+    @State(Scope.Thread)
+    public static class FreshBill {
+        List<Integer> toPay;
+
+        @Setup(Level.Invocation)
+        public void addBill(MetricsOverheadBenchmark benchmark) {
+            int id = benchmark.nextBillId++;
+            benchmark.store.addBill(DataStoreBenchmark.newBill(id));
+            toPay = List.of(id);
+        }
+    }
+
+    @Benchmark
+    public long cashIn() {
+        return store.cashIn(0);
+    }
+
+    @Benchmark
+    public PaymentResult payBills(FreshBill fresh) {
+        return store.payBills(fresh.toPay);
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(ThreadLocalRandom.current().nextLong(1_000_000));
+    }
+}
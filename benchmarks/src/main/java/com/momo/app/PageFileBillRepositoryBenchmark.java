@@ -0,0 +1,62 @@
+package com.momo.app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Lookups in the B+-tree bill store with a page cache of cachePages 4 KB pages, on a
+// heap far smaller than the bills. findBill spreads over all the bills, so most reads
+// miss a small cache; findRecentBill stays in the last 1% of ids, a working set the
+// cache holds. Run with -prof gc to see that the bills are not kept on the heap.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx256m"})
+public class PageFileBillRepositoryBenchmark {
+
+    private static final String[] PROVIDERS = {"EVN HCMC", "SAVACO HCMC", "VNPT", "VIETTEL", "FPT"};
+
+    @Param({"1000000"})
+    private int billCount;
+
+    @Param({"64", "8192"})
+    private int cachePages;
+
+    private Path dir;
+    private PageFileBillRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("page-file-bench");
+        try (PageFileBillRepository writer = new PageFileBillRepository(dir)) {
+            LocalDate dueDate = LocalDate.of(2030, 1, 1);
+            for (int id = 1; id <= billCount; id++) {
+                writer.add(new Bill(id, BillType.ELECTRIC, id % 1000000, dueDate.plusDays(id % 365), Provider.of(PROVIDERS[id % PROVIDERS.length])));
+            }
+        }
+        repository = new PageFileBillRepository(dir, cachePages);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        JournalBenchmark.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public Bill findBill() {
+        return repository.find(ThreadLocalRandom.current().nextInt(1, billCount + 1));
+    }
+
+    @Benchmark
+    public Bill findRecentBill() {
+        return repository.find(billCount - ThreadLocalRandom.current().nextInt(billCount / 100));
+    }
+}
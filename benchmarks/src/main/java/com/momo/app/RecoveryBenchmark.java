@@ -0,0 +1,60 @@
+package com.momo.app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Time to open a persisted store, either by replaying the whole journal
+// or from a snapshot with a short journal tail
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RecoveryBenchmark {
+
+    private static final int TAIL_OPERATIONS = 1000;
+
+    @Param({"10000", "100000"})
+    private int operations;
+
+    @Param({"false", "true"})
+    private boolean checkpointed;
+
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("recovery-bench");
+        try (Persistence persistence = Persistence.open(dir)) {
+            DataStore store = persistence.getStore();
+            int bills = operations / 2;
+            store.cashIn(bills);
+            for (int id = 4; id < 4 + bills; id++) {
+                store.addBill(new Bill(id, BillType.ELECTRIC, 1, LocalDate.of(2030, 1, 1), Provider.of("EVN HCMC")));
+                store.payBills(List.of(id));
+                if (checkpointed && id == 4 + bills - TAIL_OPERATIONS) {
+                    persistence.checkpoint();
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        JournalBenchmark.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public DataStore recover() throws IOException {
+        try (Persistence persistence = Persistence.open(dir)) {
+            return persistence.getStore();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.momo.app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Startup time of a store of billCount bills, a tenth of them paid and a tenth
+// scheduled: loading its snapshot against replaying the journal of the commands
+// that built it. Both directories hold the same store.
+//
+// The 10M-bill case needs a few GB of heap for the store being loaded:
+//   java -jar benchmarks/target/benchmarks.jar SnapshotBenchmark -p billCount=10000000 -jvmArgsAppend -Xmx8g
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SnapshotBenchmark {
+
+    private static final int BATCH_SIZE = 100_000;
+    private static final LocalDate DUE_DATE = LocalDate.of(2030, 1, 1);
+    private static final String[] PROVIDERS = {"EVN HCMC", "SAVACO HCMC", "VNPT", "VIETTEL", "FPT"};
+    private static final BillType[] TYPES = BillType.values();
+
+    @Param({"100000", "1000000"})
+    private int billCount;
+
+    private Path journalDir;
+    private Path snapshotDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        journalDir = Files.createTempDirectory("snapshot-bench-journal");
+        try (Persistence persistence = Persistence.open(journalDir)) {
+            DataStore store = persistence.getStore();
+            store.cashIn(Money.MAX / 2);
+            List<Bill> bills = new ArrayList<>(BATCH_SIZE);
+            for (int id = 4; id < 4 + billCount; id++) {
+                bills.add(new Bill(id, TYPES[id % TYPES.length], 1000 + id % 997, DUE_DATE.minusDays(id % 3650),
+                        Provider.of(PROVIDERS[id % PROVIDERS.length])));
+                if (bills.size() == BATCH_SIZE) {
+                    store.addBills(bills);
+                    bills.clear();
+                }
+            }
+            store.addBills(bills);
+            for (int id = 4; id < 4 + billCount; id += 10) {
+                store.payBills(List.of(id));
+                store.scheduleBill(id + 1, "01/01/2000");
+            }
+        }
+
+        snapshotDir = Files.createTempDirectory("snapshot-bench-snapshot");
+        Files.copy(journalDir.resolve(Persistence.JOURNAL_FILE), snapshotDir.resolve(Persistence.JOURNAL_FILE));
+        try (Persistence persistence = Persistence.open(snapshotDir)) {
+            persistence.checkpoint();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        JournalBenchmark.deleteRecursively(journalDir);
+        JournalBenchmark.deleteRecursively(snapshotDir);
+    }
+
+    @Benchmark
+    public DataStore loadSnapshot() throws IOException {
+        try (Persistence persistence = Persistence.open(snapshotDir)) {
+            return persistence.getStore();
+        }
+    }
+
+    @Benchmark
+    public DataStore replayJournal() throws IOException {
+        try (Persistence persistence = Persistence.open(journalDir)) {
+            return persistence.getStore();
+        }
+    }
+}
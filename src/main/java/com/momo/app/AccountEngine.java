@@ -0,0 +1,194 @@
+package com.momo.app;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Many accounts, each with its own balance, bills and payments (its own DataStore).
+//
+// Accounts are spread over N shards by the hash of their id. Every shard owns one
+// worker thread and only that thread touches the accounts of the shard, so
+// commands for one account run one after another in submission order, and
+// commands for accounts on different shards run in parallel without sharing
+// anything. Accounts are created on first use by the given factory.
+public class AccountEngine implements Closeable {
+    public static final String DEFAULT_ACCOUNT = "default";
+
+    private final Shard[] shards;
+    private final Function<String, DataStore> storeFactory;
+    private final Clock clock;
+    private ScheduledExecutorService ticker;
+
+    public AccountEngine(int shardCount, Function<String, DataStore> storeFactory, Clock clock) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1: " + shardCount);
+        }
+        this.storeFactory = storeFactory;
+        this.clock = clock;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    int shardOf(String accountId) {
+        return Math.floorMod(accountId.hashCode(), shards.length);
+    }
+
+    // Run a command against an account on the worker of its shard
+    public <T> CompletableFuture<T> submit(String accountId, Function<DataStore, T> command) {
+        Shard shard = shards[shardOf(accountId)];
+        return CompletableFuture.supplyAsync(() -> command.apply(shard.account(accountId).store), shard.worker);
+    }
+
+    // Like submit, but waits for the result. Must not be called from a shard worker
+    public <T> T execute(String accountId, Function<DataStore, T> command) {
+        return join(submit(accountId, command));
+    }
+
+    // Query the due date reminders of an account on the worker of its shard, waiting for the result
+    public <T> T executeDueDates(String accountId, Function<DueDateMonitor, T> query) {
+        Shard shard = shards[shardOf(accountId)];
+        return join(CompletableFuture.supplyAsync(() -> query.apply(shard.account(accountId).dueDates), shard.worker));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Run due scheduled payments and due date reminders of every account at a fixed interval, each shard on its own worker
+    public synchronized void startScheduling(Duration interval) {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "account-engine-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(() -> {
+            try {
+                tickAll();
+            } catch (RuntimeException e) { // an exception would cancel the ticker for every account
+                System.err.println("Error: Scheduled tick failed, retrying at the next one: " + e.getMessage());
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Settle due scheduled payments in all accounts, returns how many were settled. An account
+    // whose tick fails is reported and ticked again next time, the others are not held up
+    public int tickAll() {
+        CompletableFuture<?>[] ticks = new CompletableFuture<?>[shards.length];
+        int[] settled = new int[shards.length];
+        for (Shard shard : shards) {
+            ticks[shard.index] = CompletableFuture.runAsync(() -> settled[shard.index] = shard.tick(), shard.worker);
+        }
+        CompletableFuture.allOf(ticks).join();
+        int total = 0;
+        for (int count : settled) {
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (ticker != null) {
+                ticker.shutdownNow();
+                ticker = null;
+            }
+        }
+        for (Shard shard : shards) {
+            shard.worker.submit(shard::closeAccounts);
+            shard.worker.shutdown();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.worker.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static final class Account {
+        final DataStore store;
+        final PaymentScheduler scheduler; // ticked by the shard worker, never started on its own
+        final DueDateMonitor dueDates;    // likewise
+
+        Account(DataStore store, PaymentScheduler scheduler, DueDateMonitor dueDates) {
+            this.store = store;
+            this.scheduler = scheduler;
+            this.dueDates = dueDates;
+        }
+    }
+
+    private final class Shard {
+        final int index;
+        final ExecutorService worker;
+        final Map<String, Account> accounts = new HashMap<>(); // only used by the worker
+
+        Shard(int index) {
+            this.index = index;
+            this.worker = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "account-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        Account account(String accountId) {
+            Account account = accounts.get(accountId);
+            if (account == null) {
+                DataStore store = storeFactory.apply(accountId);
+                account = new Account(store, new PaymentScheduler(store, clock), new DueDateMonitor(store, clock));
+                accounts.put(accountId, account);
+            }
+            return account;
+        }
+
+        int tick() {
+            int settled = 0;
+            for (Map.Entry<String, Account> entry : accounts.entrySet()) {
+                Account account = entry.getValue();
+                try {
+                    settled += account.scheduler.tick();
+                    account.dueDates.tick();
+                } catch (RuntimeException e) {
+                    System.err.println("Error: Tick of account " + entry.getKey() + " failed, retrying at the next one: "
+                            + e.getMessage());
+                }
+            }
+            return settled;
+        }
+
+        void closeAccounts() {
+            for (Account account : accounts.values()) {
+                account.scheduler.close();
+                account.dueDates.close();
+            }
+        }
+    }
+}
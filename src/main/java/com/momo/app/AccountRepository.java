@@ -0,0 +1,15 @@
+package com.momo.app;
+
+import java.util.Iterator;
+
+// Where a Ledger keeps the postings of its account, in sequence order. The ledger
+// serializes appends and keeps the balances itself.
+public interface AccountRepository {
+    // Append a posting, its sequence is the new size()
+    void append(Posting.Kind kind, int day, int reference, long amount);
+
+    long size();
+
+    // Postings with a sequence greater than afterSequence and at most endSequence, in order
+    Iterator<Posting> iterate(long afterSequence, long endSequence);
+}
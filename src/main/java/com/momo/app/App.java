@@ -1,100 +1,350 @@
 package com.momo.app;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 
 import java.util.Scanner;
 
 public class App {
-    public static void main(String[] args) {
+    static final String[] COMMANDS = {
+        "CASH_IN", "LIST_BILL", "PAY", "LIST_PAYMENTS", "SCHEDULE_BILL", "DUE_DATE",
+        "SEARCH_BILL_BY_PROVIDER", "IMPORT", "SUMMARY", "SUMMARY_BY_PROVIDER", "BALANCE_AT",
+        "OVERDUE", "DUE_WITHIN",
+        "STATS", "EXIT"
+    };
+
+    public static void main(String[] args) throws IOException {
+        String dataDir = null;          // only with --data <dir>, keeps the store across runs
+        int archiveDays = (int) Persistence.DEFAULT_ARCHIVE_AGE.toDays(); // --archive-days <n>, with --data
+        int pageCache = 0;              // --page-cache <pages>, with --data keeps the store in page files
+        String batchFile = null;        // only with --batch <file>, runs the commands of a file
+        int shards = Runtime.getRuntime().availableProcessors(); // --shards <n>, worker threads for the accounts
+        int port = -1;                  // only with --port <n>, also serves the commands over TCP
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--data")) {
+                dataDir = args[i + 1];
+            } else if (args[i].equals("--archive-days")) {
+                archiveDays = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--page-cache")) {
+                pageCache = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--batch")) {
+                batchFile = args[i + 1];
+            } else if (args[i].equals("--shards")) {
+                shards = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--port")) {
+                port = Integer.parseInt(args[i + 1]);
+            }
+        }
+        // Payments settled more than archiveDays ago are moved to the payment archive at checkpoints
+        Persistence persistence = dataDir == null ? null : Persistence.open(Paths.get(dataDir),
+                Persistence.DEFAULT_CHECKPOINT_INTERVAL, Duration.ofDays(archiveDays), Clock.systemDefaultZone(), pageCache);
+        // The default account stays alive throughout the program and is the one kept on disk with --data,
+        // other accounts are created in memory when first used
+        DataStore defaultStore = persistence != null ? persistence.getStore() : new DataStore();
+        Metrics metrics = new Metrics(COMMANDS); // shown by STATS and over JMX
+        metrics.registerMBean();
+        AccountEngine engine = new AccountEngine(shards, account -> {
+            DataStore store = account.equals(AccountEngine.DEFAULT_ACCOUNT) ? defaultStore : new DataStore();
+            store.setMetrics(metrics);
+            return store;
+        }, Clock.systemDefaultZone());
+        engine.startScheduling(Duration.ofMinutes(1)); // runs scheduled payments
+        CommandServer server = null;
+        if (port >= 0) {
+            server = new CommandServer(engine, metrics, port);
+            server.start();
+            System.err.println("Listening for commands on port " + server.getPort());
+        }
+
+        if (batchFile != null) {
+            runBatch(engine, metrics, batchFile);
+        } else {
+            runInteractive(engine, metrics);
+        }
+
+        if (server != null) {
+            server.close();
+        }
+        engine.close();
+        if (persistence != null) {
+            persistence.checkpoint();
+            persistence.close();
+        }
+    }
+
+    private static void runInteractive(AccountEngine engine, Metrics metrics) {
         Scanner scanner = new Scanner(System.in);
-        DataStore store = new DataStore(); // stays alive throughout the program
+        ConsolePresenter presenter = new ConsolePresenter(System.out);
+        CommandLine line = new CommandLine();
 
         System.out.println("Welcome to Bill Payment System!");
         System.out.println("Available commands:");
         System.out.println("CASH_IN <amount>");
-        System.out.println("LIST_BILL");
-        System.out.println("PAY <billId> <billId> <billId> ...");
-        System.out.println("LIST_PAYMENTS");
+        System.out.println("LIST_BILL [--after <billId>] [--limit <n>]");
+        System.out.println("PAY [--best-effort] <billId> <billId> <billId> ...");
+        System.out.println("LIST_PAYMENTS [--archive] [--after <paymentId>] [--limit <n>]");
         System.out.println("SEARCH_BILL_BY_PROVIDER <provider>");
         System.out.println("SCHEDULE_BILL <billId> <dueDate>");
         System.out.println("DUE_DATE");
+        System.out.println("OVERDUE");
+        System.out.println("DUE_WITHIN <days>");
+        System.out.println("IMPORT <file.csv|file.jsonl>");
+        System.out.println("SUMMARY");
+        System.out.println("SUMMARY_BY_PROVIDER");
+        System.out.println("BALANCE_AT <date>");
+        System.out.println("STATS");
         System.out.println("EXIT");
+        System.out.println("Prefix a command with @<account> to run it on another account, e.g. @alice CASH_IN 100000");
 
         while (true) {
             System.out.print("\nEnter command: ");
+            if (!scanner.hasNextLine()) {
+                break;
+            }
             String input = scanner.nextLine().trim();
-            if (input.equalsIgnoreCase("EXIT")) {
-                System.out.println("Goodbye!");
+            if (!execute(engine, metrics, presenter, line.parse(input))) {
+                presenter.showMessage("Goodbye!");
                 break;
             }
+        }
 
-            String[] parts = input.split(" ");
-            String command = parts[0].toUpperCase();
+        scanner.close();
+    }
 
-            switch (command) {
-                case "CASH_IN":
-                    if (parts.length < 2) {
-                        System.out.println("Usage: CASHIN <amount>");
-                        break;
-                    }
-                    try { //FOOL PROOF EX: 99999999999999
-                        int amount = Integer.parseInt(parts[1]);
-                        store.cashIn(amount);
-                    } catch (NumberFormatException e) {
-                        System.out.println("Invalid amount.");
-                    }
+    // Run every command of a file ("-" for stdin) with all output going through one large buffer
+    private static void runBatch(AccountEngine engine, Metrics metrics, String file) throws IOException {
+        ConsolePresenter presenter = new ConsolePresenter(new PrintStream(
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 20), false, StandardCharsets.UTF_8));
+        InputStream in = file.equals("-") ? System.in : Files.newInputStream(Paths.get(file));
+        CommandLine line = new CommandLine();
+        long commands = 0;
+        long start = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            String input;
+            while ((input = reader.readLine()) != null) {
+                if (line.parse(input).size() == 0) {
+                    continue;
+                }
+                commands++;
+                if (!execute(engine, metrics, presenter, line)) {
                     break;
+                }
+            }
+        } finally {
+            presenter.flush();
+        }
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        System.err.println("Processed " + commands + " command(s) in " + elapsedNanos / 1_000_000 + " ms ("
+                + commands * 1_000_000_000L / elapsedNanos + " commands/s).");
+    }
 
-                case "LIST_BILL":
-                    store.listBills();
-                    break;
+    // Run one command, returns false on EXIT. A leading @<account> picks the account, the default one otherwise
+    static boolean execute(AccountEngine engine, Metrics metrics, ConsolePresenter presenter, CommandLine parts) {
+        boolean prefixed = parts.size() > 0 && parts.startsWith(0, '@');
+        String account = prefixed ? parts.token(0).substring(1) : AccountEngine.DEFAULT_ACCOUNT;
+        if (prefixed) {
+            parts.skip();
+        }
+        if (parts.size() == 0 || account.isEmpty()) {
+            presenter.showMessage("Unknown command.");
+            return true;
+        }
+        int command = parts.commandIndex(COMMANDS);
+        if (command < 0) {
+            presenter.showMessage("Unknown command.");
+            return true;
+        }
+        if (COMMANDS[command].equals("EXIT")) {
+            return false;
+        }
+        long start = System.nanoTime();
+        run(engine, metrics, presenter, account, COMMANDS[command], parts);
+        metrics.recordCommand(command, System.nanoTime() - start);
+        return true;
+    }
 
-                case "PAY":
-                    if (parts.length < 2) {
-                        System.out.println("Usage: PAY <billId>");
-                        break;
+    private static void run(AccountEngine engine, Metrics metrics, ConsolePresenter presenter,
+                            String account, String command, CommandLine parts) {
+        switch (command) {
+            case "CASH_IN": {
+                String key = parts.takeOption("key="); // retries with the same idempotency key cash in once
+                if (parts.size() < 2) {
+                    presenter.showMessage("Usage: CASHIN <amount>");
+                    break;
+                }
+                try { // amounts are longs, 99999999999999 fits; a balance past Money.MAX is refused
+                    long amount = parts.longToken(1);
+                    if (amount < 0) { // the ledger refuses these, answer like for any other bad amount
+                        throw new NumberFormatException("amount must not be negative");
                     }
-                    try {
-                        List<Integer> billIds = new ArrayList<>();
-                        for (int i = 1; i < parts.length; i++) {
-                            billIds.add(Integer.parseInt(parts[i]));
-                        }
-                        store.payBills(billIds);
-                    } catch (NumberFormatException e) {
-                        System.out.println("Invalid bill ID. Please provide numbers only.");
+                    presenter.showCashIn(engine.execute(account, store -> store.cashIn(key, amount)));
+                } catch (NumberFormatException | ArithmeticException e) {
+                    presenter.showMessage("Invalid amount.");
+                } catch (IllegalArgumentException e) { // the key came with another amount before
+                    presenter.showMessage("Error: " + e.getMessage());
+                }
+                break;
+            }
+
+            case "LIST_BILL":
+                try {
+                    int after = parts.takeIntOption("--after", 0);
+                    int limit = parts.takeIntOption("--limit", Integer.MAX_VALUE);
+                    if (limit < 1) {
+                        throw new NumberFormatException("limit must be positive");
                     }
-                    break;
+                    // Bills are pulled from the store as they are printed, a page at a time
+                    presenter.showBillPage(engine.execute(account, store -> store.iterateBills(BillQuery.ALL, after)), limit);
+                } catch (NumberFormatException e) {
+                    presenter.showMessage("Usage: LIST_BILL [--after <billId>] [--limit <n>]");
+                }
+                break;
 
-                case "LIST_PAYMENTS":
-                    store.listPayments();
+            case "PAY": {
+                String key = parts.takeOption("key="); // retries with the same idempotency key pay once
+                boolean bestEffort = parts.takeFlag("--best-effort"); // pay what can be paid, not all or none
+                if (parts.size() < 2) {
+                    presenter.showMessage("Usage: PAY [--best-effort] <billId>");
                     break;
-                
-                case "SCHEDULE_BILL":
-                    if (parts.length < 3) {
-                        System.out.println("Usage: SCHEDULE_BILL <billId> <dueDate>");
-                        break;
+                }
+                try {
+                    List<Integer> billIds = new ArrayList<>();
+                    for (int i = 1; i < parts.size(); i++) {
+                        billIds.add(parts.intToken(i));
+                    }
+                    if (bestEffort) {
+                        presenter.showBatchPayment(engine.execute(account, store -> store.payBillsBestEffort(key, billIds)));
+                    } else {
+                        presenter.showPayment(engine.execute(account, store -> store.payBills(key, billIds)));
                     }
-                    store.scheduleBill(Integer.parseInt(parts[1]), parts[2]);
+                } catch (NumberFormatException e) {
+                    presenter.showMessage("Invalid bill ID. Please provide numbers only.");
+                } catch (IllegalArgumentException e) { // the key came with other bills before
+                    presenter.showMessage("Error: " + e.getMessage());
+                }
+                break;
+            }
+
+            case "LIST_PAYMENTS":
+                try {
+                    // --archive also reads the old settled payments moved to the archive file
+                    PaymentQuery query = parts.takeFlag("--archive") ? PaymentQuery.ALL.includingArchived() : PaymentQuery.ALL;
+                    int after = parts.takeIntOption("--after", 0);
+                    int limit = parts.takeIntOption("--limit", Integer.MAX_VALUE);
+                    if (limit < 1) {
+                        throw new NumberFormatException("limit must be positive");
+                    }
+                    presenter.showPaymentPage(engine.execute(account, store -> store.iteratePayments(query, after)),
+                            limit, after <= 0);
+                } catch (NumberFormatException e) {
+                    presenter.showMessage("Usage: LIST_PAYMENTS [--archive] [--after <paymentId>] [--limit <n>]");
+                }
+                break;
+
+            case "SCHEDULE_BILL":
+                if (parts.size() < 3) {
+                    presenter.showMessage("Usage: SCHEDULE_BILL <billId> <dueDate>");
                     break;
-                
-                case "DUE_DATE":
-                    store.listUnpaidBills();
+                }
+                try {
+                    int billId = parts.intToken(1);
+                    String date = parts.token(2);
+                    presenter.showSchedule(engine.execute(account, store -> store.scheduleBill(billId, date)));
+                } catch (NumberFormatException e) {
+                    presenter.showMessage("Invalid bill ID. Please provide numbers only.");
+                }
+                break;
+
+            case "DUE_DATE":
+                presenter.showBills(engine.execute(account, DataStore::getUnpaidBills));
+                break;
+
+            case "OVERDUE":
+                presenter.showBills(engine.executeDueDates(account, DueDateMonitor::getOverdueBills));
+                break;
+
+            case "DUE_WITHIN":
+                if (parts.size() < 2) {
+                    presenter.showMessage("Usage: DUE_WITHIN <days>");
                     break;
+                }
+                try {
+                    int days = parts.intToken(1);
+                    if (days < 0) {
+                        throw new NumberFormatException("days must not be negative");
+                    }
+                    presenter.showBills(engine.executeDueDates(account, dueDates -> dueDates.getBillsDueWithin(days)));
+                } catch (NumberFormatException e) {
+                    presenter.showMessage("Invalid number of days.");
+                }
+                break;
 
-                case "SEARCH_BILL_BY_PROVIDER":
-                if (parts.length < 2) {
-                    System.out.println("Usage: SEARCH_BILL_BY_PROVIDER <provider>");
+            case "SEARCH_BILL_BY_PROVIDER":
+                if (parts.size() < 2) {
+                    presenter.showMessage("Usage: SEARCH_BILL_BY_PROVIDER <provider>");
                     break;
                 }
-                    store.listBillbyProvider(parts[1]);
+                String provider = parts.token(1);
+                presenter.showBills(engine.execute(account, store -> store.findBillsByProvider(provider)));
+                break;
+
+            case "IMPORT":
+                if (parts.size() < 2) {
+                    presenter.showMessage("Usage: IMPORT <file.csv|file.jsonl>");
                     break;
+                }
+                try {
+                    String file = parts.rest(1);
+                    presenter.showImport(engine.execute(account, store -> {
+                        try {
+                            return new BillImporter(store).importFile(Paths.get(file));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+                } catch (UncheckedIOException e) {
+                    presenter.showMessage("Error: Could not import bills: " + e.getCause().getMessage());
+                } catch (IllegalArgumentException e) {
+                    presenter.showMessage("Error: Could not import bills: " + e.getMessage());
+                }
+                break;
+
+            case "SUMMARY":
+                presenter.showSummary(engine.execute(account, DataStore::getSummary));
+                break;
+
+            case "SUMMARY_BY_PROVIDER":
+                presenter.showSummaryByProvider(engine.execute(account, DataStore::getSummary));
+                break;
 
-                default:
-                    System.out.println("Unknown command.");
+            case "BALANCE_AT":
+                if (parts.size() < 2) {
+                    presenter.showMessage("Usage: BALANCE_AT <date>");
                     break;
-            }
-        }
+                }
+                try {
+                    LocalDate date = LocalDate.parse(parts.token(1), DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+                    presenter.showBalanceAt(date, engine.execute(account, store -> store.getBalanceAt(date)));
+                } catch (DateTimeParseException e) {
+                    presenter.showMessage("Error: Invalid date format. Please use DD/MM/YYYY.");
+                }
+                break;
 
-        scanner.close();
+            case "STATS":
+                presenter.showStats(metrics);
+                break;
+
+            default:
+                presenter.showMessage("Unknown command.");
+                break;
+        }
     }
-}
\ No newline at end of file
+}
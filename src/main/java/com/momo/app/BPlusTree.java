@@ -0,0 +1,348 @@
+package com.momo.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+// B+-tree of long keys to fixed-size values, kept in a PageFile.
+//
+// Page 0 is the header: int magic, int valueSize, int root page, long size, long maxKey.
+// Every other page is a node: byte kind, short count, int next leaf, then
+//   leaf:  count entries of long key + valueSize bytes, in key order
+//   inner: int child0, then count of long key + int child; the keys under child i+1
+//          are >= key i, and the ones under child i are below it.
+// Values are read and written in place through callbacks given the page buffer and the
+// offset of the value, so a lookup copies nothing and allocates nothing.
+//
+// Keys usually come in increasing order (ids, sequences): a node that overflows at its
+// end keeps all its entries and starts a new one, so appended trees have full pages.
+// remove() only takes the entry out of its leaf, leaves are never merged. Not thread-safe.
+final class BPlusTree {
+    private static final int MAGIC = 0x42505431; // "BPT1"
+    private static final int HEADER_PAGE = 0;
+    private static final int NONE = 0;           // no next leaf, page 0 is never a node
+
+    private static final byte LEAF = 1;
+    private static final byte INNER = 2;
+    private static final int KIND = 0;
+    private static final int COUNT = 2;
+    private static final int NEXT = 4;
+    private static final int ENTRIES = 8;
+    private static final int INNER_ENTRY = 12;
+    private static final int INNER_CAPACITY = (PageFile.PAGE_SIZE - ENTRIES - 4) / INNER_ENTRY;
+
+    // Reads the value of an entry at buffer[offset, offset + valueSize)
+    interface ValueReader<T> {
+        T read(long key, ByteBuffer page, int offset);
+    }
+
+    // Writes a value at buffer[offset, offset + valueSize)
+    interface ValueWriter {
+        void write(ByteBuffer page, int offset);
+    }
+
+    private final PageFile file;
+    private final int valueSize;
+    private final int leafEntry;
+    private final int leafCapacity;
+    private int root;
+    private long size;
+    private long maxKey = Long.MIN_VALUE;
+    private long splitKey; // set by insert() when the node split: the first key of the new node
+    private int splitPage; // and its page
+
+    // Open the tree in the file, starting an empty one when the file is new
+    BPlusTree(PageFile file, int valueSize) throws IOException {
+        this.file = file;
+        this.valueSize = valueSize;
+        this.leafEntry = 8 + valueSize;
+        this.leafCapacity = (PageFile.PAGE_SIZE - ENTRIES) / leafEntry;
+        if (leafCapacity < 2) {
+            throw new IllegalArgumentException("Values of " + valueSize + " bytes do not fit a page twice");
+        }
+        if (file.pageCount() == 0) {
+            file.allocate();
+            root = file.allocate();
+            file.write(root).put(KIND, LEAF);
+            writeHeader();
+        } else {
+            ByteBuffer header = file.read(HEADER_PAGE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != valueSize) {
+                throw new IOException("Not a B+-tree of " + valueSize + " byte values");
+            }
+            root = header.getInt(8);
+            size = header.getLong(12);
+            maxKey = header.getLong(20);
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    // The greatest key ever put, Long.MIN_VALUE when none; removing keys does not lower it
+    long maxKey() {
+        return maxKey;
+    }
+
+    // The value of key read by reader, or null when the key is absent
+    <T> T get(long key, ValueReader<T> reader) {
+        int leaf = findLeaf(key);
+        ByteBuffer node = file.read(leaf);
+        int index = lowerBound(node, key);
+        if (index < count(node) && node.getLong(leafOffset(index)) == key) {
+            return reader.read(key, node, leafOffset(index) + 8);
+        }
+        return null;
+    }
+
+    // Rewrite part of the value of an existing key, returns false when the key is absent
+    boolean update(long key, ValueWriter writer) {
+        int leaf = findLeaf(key);
+        ByteBuffer node = file.read(leaf);
+        int index = lowerBound(node, key);
+        if (index < count(node) && node.getLong(leafOffset(index)) == key) {
+            writer.write(file.write(leaf), leafOffset(index) + 8);
+            return true;
+        }
+        return false;
+    }
+
+    // Insert the key, or overwrite its value when it is already there
+    void put(long key, ValueWriter writer) {
+        if (insert(root, key, writer)) {
+            int newRoot = file.allocate();
+            ByteBuffer node = file.write(newRoot);
+            node.put(KIND, INNER);
+            node.putShort(COUNT, (short) 1);
+            node.putInt(ENTRIES, root);
+            node.putLong(ENTRIES + 4, splitKey);
+            node.putInt(ENTRIES + 12, splitPage);
+            root = newRoot;
+        }
+        maxKey = Math.max(maxKey, key);
+        writeHeader();
+    }
+
+    // Returns false when the key is absent
+    boolean remove(long key) {
+        int leaf = findLeaf(key);
+        ByteBuffer node = file.read(leaf);
+        int count = count(node);
+        int index = lowerBound(node, key);
+        if (index == count || node.getLong(leafOffset(index)) != key) {
+            return false;
+        }
+        node = file.write(leaf);
+        shift(node, leafOffset(index + 1), leafOffset(count), -leafEntry);
+        node.putShort(COUNT, (short) (count - 1));
+        size--;
+        writeHeader();
+        return true;
+    }
+
+    // Read up to max entries with keys above afterKey, in key order, into results.
+    // Returns how many were read
+    <T> int scan(long afterKey, int max, ValueReader<T> reader, List<? super T> results) {
+        int leaf = findLeaf(afterKey);
+        ByteBuffer node = file.read(leaf);
+        int index = upperBound(node, afterKey);
+        int read = 0;
+        while (read < max) {
+            if (index == count(node)) {
+                leaf = node.getInt(NEXT);
+                if (leaf == NONE) {
+                    break;
+                }
+                node = file.read(leaf);
+                index = 0;
+                continue;
+            }
+            int offset = leafOffset(index++);
+            results.add(reader.read(node.getLong(offset), node, offset + 8));
+            read++;
+        }
+        return read;
+    }
+
+    // Insert into the subtree at page. Returns true when the page split, with the new
+    // right node in splitKey and splitPage
+    private boolean insert(int page, long key, ValueWriter writer) {
+        ByteBuffer node = file.read(page);
+        if (node.get(KIND) == LEAF) {
+            return insertIntoLeaf(page, key, writer);
+        }
+        int count = count(node);
+        int childIndex = childIndex(node, key);
+        if (!insert(node.getInt(childOffset(childIndex)), key, writer)) {
+            return false;
+        }
+        long newKey = splitKey;
+        int newChild = splitPage;
+        node = file.write(page); // read again, the descent may have evicted it
+        if (count < INNER_CAPACITY) {
+            int at = ENTRIES + 4 + childIndex * INNER_ENTRY;
+            shift(node, at, ENTRIES + 4 + count * INNER_ENTRY, INNER_ENTRY);
+            node.putLong(at, newKey);
+            node.putInt(at + 8, newChild);
+            node.putShort(COUNT, (short) (count + 1));
+            return false;
+        }
+
+        // Split: gather the count + 1 keys and count + 2 children, push the middle key up
+        long[] keys = new long[count + 1];
+        int[] children = new int[count + 2];
+        children[0] = node.getInt(ENTRIES);
+        for (int i = 0, j = 0; i < count + 1; i++) {
+            if (i == childIndex) {
+                keys[i] = newKey;
+                children[i + 1] = newChild;
+            } else {
+                keys[i] = node.getLong(ENTRIES + 4 + j * INNER_ENTRY);
+                children[i + 1] = node.getInt(ENTRIES + 4 + j * INNER_ENTRY + 8);
+                j++;
+            }
+        }
+        int middle = childIndex == count ? count : (count + 1) / 2;
+        int right = file.allocate();
+        node = file.write(page);
+        writeInner(node, keys, children, 0, middle);
+        writeInner(file.write(right), keys, children, middle + 1, count + 1);
+        splitKey = keys[middle];
+        splitPage = right;
+        return true;
+    }
+
+    // keys[from, to) with children[from, to], as an inner node
+    private static void writeInner(ByteBuffer node, long[] keys, int[] children, int from, int to) {
+        node.put(KIND, INNER);
+        node.putShort(COUNT, (short) (to - from));
+        node.putInt(ENTRIES, children[from]);
+        for (int i = from; i < to; i++) {
+            int at = ENTRIES + 4 + (i - from) * INNER_ENTRY;
+            node.putLong(at, keys[i]);
+            node.putInt(at + 8, children[i + 1]);
+        }
+    }
+
+    private boolean insertIntoLeaf(int page, long key, ValueWriter writer) {
+        ByteBuffer node = file.write(page);
+        int count = count(node);
+        int index = lowerBound(node, key);
+        if (index < count && node.getLong(leafOffset(index)) == key) {
+            writer.write(node, leafOffset(index) + 8);
+            return false;
+        }
+        size++;
+        if (count < leafCapacity) {
+            insertAt(node, index, count, key, writer);
+            return false;
+        }
+
+        int right = file.allocate();
+        node = file.write(page);
+        ByteBuffer sibling = file.write(right);
+        int moveFrom = index == count ? count : count / 2; // an append leaves this leaf full
+        int moved = count - moveFrom;
+        sibling.put(KIND, LEAF);
+        sibling.put(ENTRIES, node.array(), leafOffset(moveFrom), moved * leafEntry);
+        sibling.putShort(COUNT, (short) moved);
+        sibling.putInt(NEXT, node.getInt(NEXT));
+        node.putShort(COUNT, (short) moveFrom);
+        node.putInt(NEXT, right);
+        if (index >= moveFrom) {
+            insertAt(sibling, index - moveFrom, moved, key, writer);
+        } else {
+            insertAt(node, index, moveFrom, key, writer);
+        }
+        splitKey = sibling.getLong(ENTRIES);
+        splitPage = right;
+        return true;
+    }
+
+    private void insertAt(ByteBuffer node, int index, int count, long key, ValueWriter writer) {
+        int at = leafOffset(index);
+        shift(node, at, leafOffset(count), leafEntry);
+        node.putLong(at, key);
+        Arrays.fill(node.array(), at + 8, at + 8 + valueSize, (byte) 0); // writers may leave fields out
+        writer.write(node, at + 8);
+        node.putShort(COUNT, (short) (count + 1));
+    }
+
+    // The leaf where key is or would go
+    private int findLeaf(long key) {
+        int page = root;
+        ByteBuffer node = file.read(page);
+        while (node.get(KIND) == INNER) {
+            page = node.getInt(childOffset(childIndex(node, key)));
+            node = file.read(page);
+        }
+        return page;
+    }
+
+    // The child of an inner node to descend into for key: the number of keys <= key
+    private static int childIndex(ByteBuffer node, long key) {
+        int low = 0;
+        int high = count(node);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (node.getLong(ENTRIES + 4 + mid * INNER_ENTRY) <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int childOffset(int childIndex) {
+        return childIndex == 0 ? ENTRIES : ENTRIES + 4 + (childIndex - 1) * INNER_ENTRY + 8;
+    }
+
+    // The first leaf entry with a key >= key
+    private int lowerBound(ByteBuffer node, long key) {
+        int low = 0;
+        int high = count(node);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (node.getLong(leafOffset(mid)) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // The first leaf entry with a key > key
+    private int upperBound(ByteBuffer node, long key) {
+        int index = lowerBound(node, key);
+        return index < count(node) && node.getLong(leafOffset(index)) == key ? index + 1 : index;
+    }
+
+    private int leafOffset(int index) {
+        return ENTRIES + index * leafEntry;
+    }
+
+    private static int count(ByteBuffer node) {
+        return node.getShort(COUNT);
+    }
+
+    // Move node[from, to) by distance bytes
+    private static void shift(ByteBuffer node, int from, int to, int distance) {
+        if (from < to) {
+            byte[] array = node.array();
+            System.arraycopy(array, from, array, from + distance, to - from);
+        }
+    }
+
+    private void writeHeader() {
+        ByteBuffer header = file.write(HEADER_PAGE);
+        header.putInt(0, MAGIC);
+        header.putInt(4, valueSize);
+        header.putInt(8, root);
+        header.putLong(12, size);
+        header.putLong(20, maxKey);
+    }
+}
@@ -0,0 +1,64 @@
+package com.momo.app;
+
+import java.util.Arrays;
+
+// Outcome of DataStore.payBillsBestEffort: one entry per distinct requested bill id,
+// in request order, telling whether that bill was paid or why not.
+public final class BatchPaymentReport {
+    private final int[] billIds;
+    private final ErrorCode[] codes;   // null where the bill was paid
+    private final int[] paidBillIds;   // in the order they were paid
+    private final long balanceBefore;
+    private final long balance;
+    private final long totalAmount;
+
+    BatchPaymentReport(int[] billIds, ErrorCode[] codes, int[] paidBillIds,
+                       long balanceBefore, long balance, long totalAmount) {
+        this.billIds = billIds;
+        this.codes = codes;
+        this.paidBillIds = paidBillIds;
+        this.balanceBefore = balanceBefore;
+        this.balance = balance;
+        this.totalAmount = totalAmount;
+    }
+
+    // Number of distinct bill ids requested
+    public int getBillCount() {
+        return billIds.length;
+    }
+
+    public int getBillId(int index) {
+        return billIds[index];
+    }
+
+    public boolean isPaid(int index) {
+        return codes[index] == null;
+    }
+
+    // Why the bill at index was not paid, null when it was
+    public ErrorCode getErrorCode(int index) {
+        return codes[index];
+    }
+
+    public int getPaidCount() {
+        return paidBillIds.length;
+    }
+
+    // Ids of the paid bills in the order they were paid, earliest due date first
+    public int[] getPaidBillIds() {
+        return Arrays.copyOf(paidBillIds, paidBillIds.length);
+    }
+
+    public long getBalanceBefore() {
+        return balanceBefore;
+    }
+
+    public long getBalance() {
+        return balance;
+    }
+
+    // Amount taken for the paid bills
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+}
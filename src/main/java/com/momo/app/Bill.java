@@ -2,21 +2,22 @@ package com.momo.app;
 import java.time.LocalDate;
 
 public class Bill {
-    private int id;
-    private String type;       // ELECTRIC, WATER, INTERNET 
-    private int amount;        // amount of the bill
+    private final int id;
+    private BillType type;     // ELECTRIC, WATER, INTERNET 
+    private long amount;       // amount of the bill, see Money
     private LocalDate dueDate; // due date of the bill
-    private String state;      // NOT_PAID, PAID
-    private String provider;   // EVN, SAVACO, VNPT, ...
-    private LocalDate scheduledDate; // Can be null
+    private volatile BillState state;   // NOT_PAID, PAID
+    private Provider provider; // EVN, SAVACO, VNPT, ... shared per provider
+    private volatile LocalDate scheduledDate; // Can be null
+    private BillListener listener;   // Can be null, notified on state and schedule changes
 
-    public Bill(int id, String type, int amount, LocalDate dueDate, String provider) {
+    public Bill(int id, BillType type, long amount, LocalDate dueDate, Provider provider) {
         this.id = id;
         this.type = type;
         this.amount = amount;
         this.dueDate = dueDate;
         this.provider = provider;
-        this.state = "NOT_PAID";
+        this.state = BillState.NOT_PAID;
         this.scheduledDate = null; // Initially null
     }
 
@@ -25,11 +26,11 @@ public class Bill {
         return id; 
     }
 
-    public String getType() { 
+    public BillType getType() { 
         return type; 
     }
 
-    public int getAmount() {
+    public long getAmount() {
          return amount; 
     }
 
@@ -37,11 +38,11 @@ public class Bill {
         return dueDate; 
     }
 
-    public String getState() { 
+    public BillState getState() { 
         return state; 
     }
     
-    public String getProvider() { 
+    public Provider getProvider() { 
         return provider; 
     }
 
@@ -49,21 +50,49 @@ public class Bill {
         return scheduledDate; 
     }
 
+    // Returns false, leaving the date unchanged, when it is after the due date
     public boolean setScheduledDate(LocalDate newScheduledDate) {
         if (newScheduledDate.isAfter(this.dueDate)) {
-            System.out.println("Error: Scheduled date (" + newScheduledDate + ") cannot be after the due date (" + this.dueDate + ").");
             return false;
         }
+        LocalDate oldScheduledDate = this.scheduledDate;
         this.scheduledDate = newScheduledDate;
+        if (listener != null) {
+            listener.scheduledDateChanged(this, oldScheduledDate);
+        }
         return true;
     }
 
     // Mark bill as PAID
     public void markPaid() {
-        this.state = "PAID";
+        BillState oldState = this.state;
+        if (!oldState.canMoveTo(BillState.PAID)) {
+            return; // already paid
+        }
+        this.state = BillState.PAID;
+        if (listener != null) {
+            listener.stateChanged(this, oldState);
+        }
+    }
+
+    void setListener(BillListener listener) {
+        this.listener = listener;
     }
     
 
+    // A bill is its id: a store never holds two bills with one id, and disk-backed repositories
+    // may build a new instance per read. Hashing by id also keeps bills added in id order
+    // next to each other in the index hash tables, instead of at random identity hashes
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Bill && ((Bill) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
     @Override
     public String toString() {
         return id + ". " + type + " " + amount + " " + dueDate + " " + state + " " + provider;
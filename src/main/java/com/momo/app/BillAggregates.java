@@ -0,0 +1,130 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Running totals of the unpaid bills, kept up to date by DataStore on every bill
+// insert, payment and schedule so that summaries never scan the bills.
+//
+// Updates find their buckets without allocating: types by ordinal, providers by the
+// interned Provider, due months by an array index from the earliest month seen.
+class BillAggregates {
+    private final Totals unpaid = new Totals();
+    private final Totals scheduled = new Totals();                 // unpaid bills with a scheduled date
+    private final Totals[] byType = newTotals(BillType.values().length);
+    private final Map<Provider, Totals> byProvider = new HashMap<>();
+    private Totals[] byDueMonth = new Totals[0];                   // index = epoch month - firstMonth
+    private int firstMonth;
+
+    // A new bill, in whatever state it is in (snapshots load paid and scheduled bills)
+    synchronized void added(Bill bill) {
+        if (bill.getState() == BillState.NOT_PAID) {
+            addedUnpaid(bill.getType(), bill.getProvider(), bill.getAmount(), bill.getDueDate(),
+                    bill.getScheduledDate() != null);
+        }
+    }
+
+    // A new unpaid bill given by its fields, see BillRepository.forEachUnpaid
+    synchronized void addedUnpaid(BillType type, Provider provider, long amount, LocalDate dueDate, boolean isScheduled) {
+        update(type, provider, dueDate, 1, amount);
+        if (isScheduled) {
+            scheduled.add(1, amount);
+        }
+    }
+
+    // An unpaid bill has just been paid, wasScheduled tells whether it had a scheduled date
+    synchronized void paid(Bill bill, boolean wasScheduled) {
+        update(bill.getType(), bill.getProvider(), bill.getDueDate(), -1, -bill.getAmount());
+        if (wasScheduled) {
+            scheduled.add(-1, bill.getAmount());
+        }
+    }
+
+    // An unpaid bill has just been given a scheduled date
+    synchronized void scheduled(Bill bill) {
+        scheduled.add(1, bill.getAmount());
+    }
+
+    synchronized BillSummary summary() {
+        Map<BillType, BillSummary.Totals> types = new EnumMap<>(BillType.class);
+        for (BillType type : BillType.values()) {
+            put(types, type, byType[type.ordinal()]);
+        }
+        Map<String, BillSummary.Totals> providers = new TreeMap<>();
+        for (Map.Entry<Provider, Totals> entry : byProvider.entrySet()) {
+            put(providers, entry.getKey().getName(), entry.getValue());
+        }
+        Map<YearMonth, BillSummary.Totals> months = new TreeMap<>();
+        for (int i = 0; i < byDueMonth.length; i++) {
+            int month = firstMonth + i;
+            put(months, YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1), byDueMonth[i]);
+        }
+        return new BillSummary(unpaid.toSummary(), scheduled.toSummary(), types, providers, months);
+    }
+
+    private void update(BillType type, Provider provider, LocalDate dueDate, int count, long amount) {
+        unpaid.add(count, amount);
+        byType[type.ordinal()].add(count, amount);
+        Totals providerTotals = byProvider.get(provider);
+        if (providerTotals == null) {
+            providerTotals = new Totals();
+            byProvider.put(provider, providerTotals);
+        }
+        providerTotals.add(count, amount);
+        dueMonth(dueDate).add(count, amount);
+    }
+
+    // The bucket of the month of date, growing the buckets to the earlier or later month
+    private Totals dueMonth(LocalDate date) {
+        int month = date.getYear() * 12 + date.getMonthValue() - 1;
+        if (byDueMonth.length == 0) {
+            firstMonth = month;
+            byDueMonth = newTotals(1);
+        } else if (month < firstMonth) {
+            Totals[] grown = newTotals(byDueMonth.length + firstMonth - month);
+            System.arraycopy(byDueMonth, 0, grown, firstMonth - month, byDueMonth.length);
+            byDueMonth = grown;
+            firstMonth = month;
+        } else if (month - firstMonth >= byDueMonth.length) {
+            Totals[] grown = Arrays.copyOf(byDueMonth, month - firstMonth + 1);
+            for (int i = byDueMonth.length; i < grown.length; i++) {
+                grown[i] = new Totals();
+            }
+            byDueMonth = grown;
+        }
+        return byDueMonth[month - firstMonth];
+    }
+
+    private static <K> void put(Map<K, BillSummary.Totals> map, K key, Totals totals) {
+        if (totals != null && totals.count > 0) {
+            map.put(key, totals.toSummary());
+        }
+    }
+
+    private static Totals[] newTotals(int length) {
+        Totals[] totals = new Totals[length];
+        for (int i = 0; i < length; i++) {
+            totals[i] = new Totals();
+        }
+        return totals;
+    }
+
+    private static final class Totals {
+        long count;
+        long amount;
+
+        void add(long count, long amount) {
+            this.count += count;
+            this.amount += amount;
+        }
+
+        BillSummary.Totals toSummary() {
+            return new BillSummary.Totals(count, amount);
+        }
+    }
+}
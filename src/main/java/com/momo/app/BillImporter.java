@@ -0,0 +1,342 @@
+package com.momo.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Streams bills from provider statement files into a DataStore.
+//
+// Supported formats are CSV (id,type,amount,dueDate,provider, with an optional header
+// naming the columns in any order) and line-delimited JSON, one flat object per line
+// with the same keys. Dates are yyyy-MM-dd or dd/MM/yyyy.
+//
+// The file is read in chunks of lines that are parsed in parallel; parsed chunks are
+// inserted in file order, so the first row with a given id wins and later ones count
+// as duplicates. At most a few chunks per parser thread are held in memory at once.
+public class BillImporter {
+    public enum Format {
+        CSV,
+        JSON_LINES;
+
+        // Guess the format from the file extension
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) {
+                return JSON_LINES;
+            }
+            throw new IllegalArgumentException("Unknown statement format: " + file.getFileName());
+        }
+    }
+
+    private static final int DEFAULT_CHUNK_SIZE = 8192;
+    private static final String[] DEFAULT_COLUMNS = {"id", "type", "amount", "duedate", "provider"};
+    private static final DateTimeFormatter DAY_FIRST = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final DataStore store;
+    private final int threads;
+    private final int chunkSize;
+
+    public BillImporter(DataStore store) {
+        this(store, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public BillImporter(DataStore store, int threads, int chunkSize) {
+        this.store = store;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportReport importFile(Path file) throws IOException {
+        return importFile(file, Format.of(file));
+    }
+
+    public ImportReport importFile(Path file, Format format) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "bill-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = threads * 2;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            String[] columns = DEFAULT_COLUMNS;
+            long lineNumber = 0;
+            long chunkFirstLine = 1;
+            List<String> lines = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && format == Format.CSV && isHeader(line)) {
+                    columns = splitCsv(line).stream().map(BillImporter::columnName).toArray(String[]::new);
+                    chunkFirstLine = 2;
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    inFlight.add(submit(parsers, format, columns, lines, chunkFirstLine));
+                    lines = new ArrayList<>(chunkSize);
+                    chunkFirstLine = lineNumber + 1;
+                    if (inFlight.size() >= maxInFlight) {
+                        insert(inFlight.poll(), report); // wait for the oldest chunk, keeps memory bounded
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                inFlight.add(submit(parsers, format, columns, lines, chunkFirstLine));
+            }
+            while (!inFlight.isEmpty()) {
+                insert(inFlight.poll(), report);
+            }
+        } finally {
+            parsers.shutdownNow();
+        }
+        report.setElapsedNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    private Future<ParsedChunk> submit(ExecutorService parsers, Format format, String[] columns,
+                                       List<String> lines, long firstLine) {
+        return parsers.submit(() -> parseChunk(format, columns, lines, firstLine));
+    }
+
+    private void insert(Future<ParsedChunk> future, ImportReport report) throws IOException {
+        ParsedChunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed", e.getCause());
+        }
+        int added = store.addBills(chunk.bills);
+        report.addChunk(chunk.rows, added, chunk.bills.size() - added, chunk.errors);
+    }
+
+    static ParsedChunk parseChunk(Format format, String[] columns, List<String> lines, long firstLine) {
+        ParsedChunk chunk = new ParsedChunk(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.rows++;
+            try {
+                Map<String, String> fields = format == Format.CSV ? csvFields(columns, line) : jsonFields(line);
+                chunk.bills.add(toBill(fields));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                chunk.errors.add("Line " + (firstLine + i) + ": " + e.getMessage());
+            }
+        }
+        return chunk;
+    }
+
+    private static Bill toBill(Map<String, String> fields) {
+        int id = Integer.parseInt(required(fields, "id").trim());
+        if (id <= 0) {
+            throw new IllegalArgumentException("id must be positive, got " + id);
+        }
+        long amount = Long.parseLong(required(fields, "amount").trim());
+        if (amount <= 0 || amount > Money.MAX) {
+            throw new IllegalArgumentException("amount must be between 1 and " + Money.MAX + ", got " + amount);
+        }
+        return new Bill(
+                id,
+                BillType.valueOf(required(fields, "type").trim().toUpperCase(Locale.ROOT)),
+                amount,
+                parseDate(required(fields, "duedate").trim()),
+                Provider.of(required(fields, "provider").trim()));
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("missing " + name);
+        }
+        return value;
+    }
+
+    private static LocalDate parseDate(String value) {
+        return value.length() > 2 && value.charAt(2) == '/' ? LocalDate.parse(value, DAY_FIRST) : LocalDate.parse(value);
+    }
+
+    // A header starts with a known column name, any other first line is a row and is checked like one
+    private static boolean isHeader(String line) {
+        try {
+            return Arrays.asList(DEFAULT_COLUMNS).contains(columnName(splitCsv(line).get(0)));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String columnName(String field) {
+        return field.trim().toLowerCase(Locale.ROOT).replace("_", "");
+    }
+
+    private static Map<String, String> csvFields(String[] columns, String line) {
+        List<String> values = splitCsv(line);
+        if (values.size() != columns.length) {
+            throw new IllegalArgumentException("expected " + columns.length + " fields, got " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>(columns.length * 2);
+        for (int i = 0; i < columns.length; i++) {
+            fields.put(columns[i], values.get(i));
+        }
+        return fields;
+    }
+
+    // Split one CSV line, supporting double-quoted fields with "" as an escaped quote
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>(8);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        values.add(field.toString());
+        return values;
+    }
+
+    // Parse one flat JSON object whose values are strings, numbers, booleans or null
+    static Map<String, String> jsonFields(String line) {
+        Map<String, String> fields = new HashMap<>(16);
+        int[] pos = {skipSpaces(line, 0)};
+        expect(line, pos, '{');
+        if (peek(line, pos) == '}') {
+            pos[0]++;
+            return fields;
+        }
+        while (true) {
+            String key = jsonString(line, pos);
+            expect(line, pos, ':');
+            String value = peek(line, pos) == '"' ? jsonString(line, pos) : jsonLiteral(line, pos);
+            fields.put(key.toLowerCase(Locale.ROOT).replace("_", ""), value);
+            char next = peek(line, pos);
+            pos[0]++;
+            if (next == '}') {
+                return fields;
+            }
+            if (next != ',') {
+                throw new IllegalArgumentException("malformed JSON at column " + pos[0]);
+            }
+        }
+    }
+
+    private static String jsonString(String line, int[] pos) {
+        expect(line, pos, '"');
+        StringBuilder value = new StringBuilder();
+        for (int i = pos[0]; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                pos[0] = i + 1;
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (++i >= line.length()) {
+                break;
+            }
+            char escaped = line.charAt(i);
+            switch (escaped) {
+                case 'n': value.append('\n'); break;
+                case 't': value.append('\t'); break;
+                case 'r': value.append('\r'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'u':
+                    if (i + 4 >= line.length()) {
+                        throw new IllegalArgumentException("malformed JSON escape");
+                    }
+                    value.append((char) Integer.parseInt(line.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default: value.append(escaped); // \" \\ \/
+            }
+        }
+        throw new IllegalArgumentException("unterminated JSON string");
+    }
+
+    private static String jsonLiteral(String line, int[] pos) {
+        int start = pos[0];
+        int end = start;
+        while (end < line.length() && ",} \t".indexOf(line.charAt(end)) < 0) {
+            end++;
+        }
+        if (end == start) {
+            throw new IllegalArgumentException("malformed JSON at column " + start);
+        }
+        pos[0] = end;
+        String literal = line.substring(start, end);
+        return literal.equals("null") ? null : literal;
+    }
+
+    private static void expect(String line, int[] pos, char expected) {
+        if (peek(line, pos) != expected) {
+            throw new IllegalArgumentException("expected '" + expected + "' at column " + pos[0]);
+        }
+        pos[0]++;
+    }
+
+    // The next non-space character, leaving pos on it
+    private static char peek(String line, int[] pos) {
+        pos[0] = skipSpaces(line, pos[0]);
+        if (pos[0] >= line.length()) {
+            throw new IllegalArgumentException("unexpected end of line");
+        }
+        return line.charAt(pos[0]);
+    }
+
+    private static int skipSpaces(String line, int pos) {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    static class ParsedChunk {
+        final List<Bill> bills;
+        final List<String> errors = new ArrayList<>();
+        int rows;
+
+        ParsedChunk(int capacity) {
+            this.bills = new ArrayList<>(capacity);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// Secondary indexes over bills: provider -> bills, unpaid bills and
+// due date -> unpaid bills. Paid bills are not indexed
+// by state, they only pile up and are found by scanning; this keeps paying a bill
+// from allocating index entries.
+// Kept current through the BillListener callbacks of every indexed bill.
+// All access is synchronized, queries return copies that are safe to iterate.
+class BillIndex implements BillListener {
+    private final Map<Provider, List<Bill>> byProvider = new HashMap<>(); // providers are interned
+    private final Set<Bill> unpaid = new LinkedHashSet<>();
+    private final NavigableMap<LocalDate, Set<Bill>> unpaidByDueDate = new TreeMap<>();
+
+    // Start indexing a bill and listen to its changes
+    synchronized void add(Bill bill) {
+        byProvider.computeIfAbsent(bill.getProvider(), k -> new ArrayList<>()).add(bill);
+        if (bill.getState() == BillState.NOT_PAID) {
+            unpaid.add(bill);
+            addTo(unpaidByDueDate, bill.getDueDate(), bill);
+        }
+        bill.setListener(this);
+    }
+
+    synchronized List<Bill> findByProvider(Provider provider) {
+        return new ArrayList<>(byProvider.getOrDefault(provider, Collections.emptyList()));
+    }
+
+    synchronized List<Bill> findByState(BillState state) {
+        if (state == BillState.NOT_PAID) {
+            return new ArrayList<>(unpaid);
+        }
+        List<Bill> result = new ArrayList<>();
+        for (List<Bill> bills : byProvider.values()) {
+            for (Bill bill : bills) {
+                if (bill.getState() == state) {
+                    result.add(bill);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Unpaid bills with from <= dueDate <= to, earliest due date first
+    synchronized List<Bill> findUnpaidDueBetween(LocalDate from, LocalDate to) {
+        return collect(unpaidByDueDate.subMap(from, true, to, true));
+    }
+
+    @Override
+    public synchronized void stateChanged(Bill bill, BillState oldState) {
+        if (oldState == BillState.NOT_PAID) {
+            unpaid.remove(bill);
+            removeFrom(unpaidByDueDate, bill.getDueDate(), bill);
+        }
+        if (bill.getState() == BillState.NOT_PAID) {
+            unpaid.add(bill);
+            addTo(unpaidByDueDate, bill.getDueDate(), bill);
+        }
+    }
+
+    @Override
+    public void scheduledDateChanged(Bill bill, LocalDate oldScheduledDate) {
+        // not indexed, PaymentScheduler queues scheduled bills itself
+    }
+
+    private static <K> void addTo(Map<K, Set<Bill>> index, K key, Bill bill) {
+        index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(bill);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Bill>> index, K key, Bill bill) {
+        Set<Bill> set = index.get(key);
+        if (set != null && set.remove(bill) && set.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static List<Bill> collect(Map<LocalDate, Set<Bill>> range) {
+        List<Bill> result = new ArrayList<>();
+        for (Set<Bill> set : range.values()) {
+            result.addAll(set);
+        }
+        return result;
+    }
+}
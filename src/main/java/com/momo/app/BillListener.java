@@ -0,0 +1,10 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+
+// Notified by a Bill whenever its state or scheduled date changes
+interface BillListener {
+    void stateChanged(Bill bill, BillState oldState);
+
+    void scheduledDateChanged(Bill bill, LocalDate oldScheduledDate);
+}
@@ -0,0 +1,58 @@
+package com.momo.app;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Striped locks guarding bill state. Bills hashing to different stripes never contend.
+// Multi-bill operations take their stripes in ascending order, so they cannot deadlock.
+class BillLocks {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    BillLocks(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    int stripeOf(int billId) {
+        int h = billId * 0x9E3779B9; // spread consecutive ids over the stripes
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    void lock(int billId) {
+        stripes[stripeOf(billId)].lock();
+    }
+
+    void unlock(int billId) {
+        stripes[stripeOf(billId)].unlock();
+    }
+
+    // Lock the stripes of billIds[0..count), writing them to taken (at least count long).
+    // Returns how many stripes were taken, pass both to unlockAll
+    int lockAll(int[] billIds, int count, int[] taken) {
+        for (int i = 0; i < count; i++) {
+            taken[i] = stripeOf(billIds[i]);
+        }
+        Arrays.sort(taken, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || taken[i] != taken[i - 1]) {
+                taken[distinct++] = taken[i];
+            }
+        }
+        for (int i = 0; i < distinct; i++) {
+            stripes[taken[i]].lock();
+        }
+        return distinct;
+    }
+
+    void unlockAll(int[] taken, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[taken[i]].unlock();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+
+// Which bills a listing wants: any combination of a state, a provider and a due date
+// range. Repositories test the filters while they scan, before a bill is returned.
+public final class BillQuery {
+    public static final BillQuery ALL = new BillQuery(null, null, null, null);
+
+    private final BillState state;  // null for any
+    private final String provider;  // provider name, null for any
+    private final LocalDate dueFrom; // inclusive, null for no lower bound
+    private final LocalDate dueTo;   // inclusive, null for no upper bound
+
+    private BillQuery(BillState state, String provider, LocalDate dueFrom, LocalDate dueTo) {
+        this.state = state;
+        this.provider = provider;
+        this.dueFrom = dueFrom;
+        this.dueTo = dueTo;
+    }
+
+    public BillQuery withState(BillState state) {
+        return new BillQuery(state, provider, dueFrom, dueTo);
+    }
+
+    public BillQuery withProvider(String provider) {
+        return new BillQuery(state, provider, dueFrom, dueTo);
+    }
+
+    // Bills due between the two dates, both inclusive; either may be null for an open end
+    public BillQuery withDueBetween(LocalDate from, LocalDate to) {
+        return new BillQuery(state, provider, from, to);
+    }
+
+    BillState getState() {
+        return state;
+    }
+
+    String getProvider() {
+        return provider;
+    }
+
+    LocalDate getDueFrom() {
+        return dueFrom;
+    }
+
+    LocalDate getDueTo() {
+        return dueTo;
+    }
+
+    boolean matches(Bill bill) {
+        return (state == null || bill.getState() == state)
+                && (provider == null || bill.getProvider().getName().equals(provider))
+                && (dueFrom == null || !bill.getDueDate().isBefore(dueFrom))
+                && (dueTo == null || !bill.getDueDate().isAfter(dueTo));
+    }
+}
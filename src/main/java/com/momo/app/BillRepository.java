@@ -0,0 +1,45 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+
+// Where a DataStore keeps its bills. Changes made through Bill.markPaid() and
+// Bill.setScheduledDate() on a bill returned by the repository are kept by it.
+public interface BillRepository {
+    // Receives the fields of an unpaid bill, see forEachUnpaid
+    interface UnpaidBillVisitor {
+        void visit(BillType type, Provider provider, long amount, LocalDate dueDate, boolean scheduled);
+    }
+
+    // Add a new bill, throws IllegalArgumentException when the id is already used
+    void add(Bill bill);
+
+    // About count more bills are on their way, e.g. from a snapshot: make room for them at once
+    default void ensureCapacity(int count) {
+    }
+
+    // The bill with this id, or null
+    Bill find(int id);
+
+    List<Bill> findAll();
+
+    List<Bill> findByProvider(Provider provider);
+
+    List<Bill> findByState(BillState state);
+
+    // Unpaid bills with from <= dueDate <= to, earliest due date first
+    List<Bill> findUnpaidDueBetween(LocalDate from, LocalDate to);
+
+    // Bills with an id greater than afterId that match the query, in id order.
+    // Read lazily as the iterator advances; the filters are tested during the scan
+    Iterator<Bill> iterate(BillQuery query, int afterId);
+
+    // Pass the fields of every unpaid bill to the visitor, e.g. to total the bills of a
+    // repository reopened from disk. Repositories that keep the fields apart can read
+    // them without building the bills
+    default void forEachUnpaid(UnpaidBillVisitor visitor) {
+        iterate(BillQuery.ALL.withState(BillState.NOT_PAID), Integer.MIN_VALUE).forEachRemaining(bill -> visitor.visit(
+                bill.getType(), bill.getProvider(), bill.getAmount(), bill.getDueDate(), bill.getScheduledDate() != null));
+    }
+}
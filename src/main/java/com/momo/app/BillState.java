@@ -0,0 +1,11 @@
+package com.momo.app;
+
+// A bill starts NOT_PAID and can only move to PAID
+public enum BillState {
+    NOT_PAID,
+    PAID;
+
+    public boolean canMoveTo(BillState next) {
+        return this == NOT_PAID && next == PAID;
+    }
+}
@@ -0,0 +1,70 @@
+package com.momo.app;
+
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.Map;
+
+// Count and amount of the unpaid bills, in total and broken down by type, provider
+// and due month. A copy taken at one point in time; empty groups are left out.
+public final class BillSummary {
+    private final Totals unpaid;
+    private final Totals scheduled;
+    private final Map<BillType, Totals> byType;
+    private final Map<String, Totals> byProvider;
+    private final Map<YearMonth, Totals> byDueMonth;
+
+    BillSummary(Totals unpaid, Totals scheduled, Map<BillType, Totals> byType,
+                Map<String, Totals> byProvider, Map<YearMonth, Totals> byDueMonth) {
+        this.unpaid = unpaid;
+        this.scheduled = scheduled;
+        this.byType = Collections.unmodifiableMap(byType);
+        this.byProvider = Collections.unmodifiableMap(byProvider);
+        this.byDueMonth = Collections.unmodifiableMap(byDueMonth);
+    }
+
+    public Totals getUnpaid() {
+        return unpaid;
+    }
+
+    // The unpaid bills that have a payment scheduled
+    public Totals getScheduled() {
+        return scheduled;
+    }
+
+    public Map<BillType, Totals> getByType() {
+        return byType;
+    }
+
+    // By provider name, in name order
+    public Map<String, Totals> getByProvider() {
+        return byProvider;
+    }
+
+    // Earliest month first
+    public Map<YearMonth, Totals> getByDueMonth() {
+        return byDueMonth;
+    }
+
+    public static final class Totals {
+        private final long count;
+        private final long amount;
+
+        Totals(long count, long amount) {
+            this.count = count;
+            this.amount = amount;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getAmount() {
+            return amount;
+        }
+
+        @Override
+        public String toString() {
+            return count + " " + amount;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.momo.app;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bills by id in an open addressing hash table, so looking a bill up by its int id
+// does not box it the way a Map<Integer, Bill> does.
+// Writers are serialized; readers take no lock: a bill is published to its slot
+// with a volatile write and a resize publishes a fully filled new table.
+class BillTable {
+    private volatile AtomicReferenceArray<Bill> slots = new AtomicReferenceArray<>(1024);
+    private int size; // guarded by this
+
+    Bill get(int id) {
+        AtomicReferenceArray<Bill> table = slots;
+        int mask = table.length() - 1;
+        int slot = slotOf(id, mask);
+        Bill bill;
+        while ((bill = table.get(slot)) != null) {
+            if (bill.getId() == id) {
+                return bill;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    // Returns false, leaving the table unchanged, when a bill with the same id exists
+    synchronized boolean putIfAbsent(Bill bill) {
+        if (get(bill.getId()) != null) {
+            return false;
+        }
+        if ((size + 1) * 2 > slots.length()) { // keep the load factor under 1/2
+            resize(slots.length() * 2);
+        }
+        insert(slots, bill);
+        size++;
+        return true;
+    }
+
+    // Grow once to hold count more bills, rather than doubling as they come
+    synchronized void ensureCapacity(int count) {
+        long needed = 2L * (size + (long) count);
+        if (needed > slots.length() && needed <= 1 << 30) {
+            resize(Integer.highestOneBit((int) needed - 1) << 1);
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void resize(int length) {
+        AtomicReferenceArray<Bill> table = slots;
+        AtomicReferenceArray<Bill> larger = new AtomicReferenceArray<>(length);
+        for (int i = 0; i < table.length(); i++) {
+            Bill existing = table.get(i);
+            if (existing != null) {
+                insert(larger, existing);
+            }
+        }
+        slots = larger;
+    }
+
+    private static void insert(AtomicReferenceArray<Bill> table, Bill bill) {
+        int mask = table.length() - 1;
+        int slot = slotOf(bill.getId(), mask);
+        while (table.get(slot) != null) {
+            slot = (slot + 1) & mask;
+        }
+        table.set(slot, bill);
+    }
+
+    private static int slotOf(int id, int mask) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,7 @@
+package com.momo.app;
+
+public enum BillType {
+    ELECTRIC,
+    WATER,
+    INTERNET
+}
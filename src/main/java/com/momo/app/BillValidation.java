@@ -0,0 +1,60 @@
+package com.momo.app;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Looks up and checks the bills of a batch payment. Batches above SEQUENTIAL_LIMIT are
+// split in halves over the common fork-join pool; each slot of found and codes is
+// written by exactly one task. The caller holds the locks of all the bills, so the
+// tasks only read bills that cannot change meanwhile.
+final class BillValidation extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    static final int SEQUENTIAL_LIMIT = 1024;
+
+    private final BillRepository bills;
+    private final int[] ids;
+    private final Bill[] found;     // the bill of ids[i] when it can be paid
+    private final ErrorCode[] codes; // why ids[i] cannot be paid
+    private final int from;
+    private final int to;
+
+    private BillValidation(BillRepository bills, int[] ids, Bill[] found, ErrorCode[] codes, int from, int to) {
+        this.bills = bills;
+        this.ids = ids;
+        this.found = found;
+        this.codes = codes;
+        this.from = from;
+        this.to = to;
+    }
+
+    // Fill found[i] or codes[i] for every id
+    static void validate(BillRepository bills, int[] ids, Bill[] found, ErrorCode[] codes) {
+        BillValidation task = new BillValidation(bills, ids, found, codes, 0, ids.length);
+        if (ids.length <= SEQUENTIAL_LIMIT) {
+            task.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= SEQUENTIAL_LIMIT) {
+            for (int i = from; i < to; i++) {
+                Bill bill = bills.find(ids[i]);
+                if (bill == null) {
+                    codes[i] = ErrorCode.BILL_NOT_FOUND;
+                } else if (bill.getState() == BillState.PAID) {
+                    codes[i] = ErrorCode.BILL_ALREADY_PAID;
+                } else {
+                    found[i] = bill;
+                }
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        invokeAll(new BillValidation(bills, ids, found, codes, from, mid),
+                new BillValidation(bills, ids, found, codes, mid, to));
+    }
+}
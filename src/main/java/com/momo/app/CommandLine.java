@@ -0,0 +1,164 @@
+package com.momo.app;
+
+import java.util.Arrays;
+
+// One command line split into whitespace separated tokens. The tokens are kept as
+// offsets into the line, so parsing allocates nothing; a CommandLine can be reused
+// for every line of a batch.
+class CommandLine {
+    private String line = "";
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count;
+    private int first; // tokens before it were taken off with skip
+
+    CommandLine parse(String line) {
+        this.line = line;
+        this.count = 0;
+        this.first = 0;
+        int i = 0;
+        int length = line.length();
+        while (i < length) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = i;
+            count++;
+        }
+        return this;
+    }
+
+    // Number of tokens, the command included
+    int size() {
+        return count - first;
+    }
+
+    // Drop the first token, e.g. an account prefix, so the command becomes token 0
+    void skip() {
+        first++;
+    }
+
+    // If the last token is <prefix><value>, remove it and return the value, otherwise null
+    String takeOption(String prefix) {
+        if (size() < 2) {
+            return null;
+        }
+        int start = starts[count - 1];
+        int length = ends[count - 1] - start;
+        if (length < prefix.length() || !line.regionMatches(true, start, prefix, 0, prefix.length())) {
+            return null;
+        }
+        count--;
+        return line.substring(start + prefix.length(), start + length);
+    }
+
+    // If the line has the flag, e.g. "--archive", remove it and return true
+    boolean takeFlag(String name) {
+        for (int i = first + 1; i < count; i++) {
+            int length = ends[i] - starts[i];
+            if (length == name.length() && line.regionMatches(true, starts[i], name, 0, length)) {
+                System.arraycopy(starts, i + 1, starts, i, count - i - 1);
+                System.arraycopy(ends, i + 1, ends, i, count - i - 1);
+                count--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // If the line has the option name followed by a number, e.g. "--limit 20", remove both
+    // tokens and return the number, otherwise missing. Throws NumberFormatException when
+    // the option is not followed by an int
+    int takeIntOption(String name, int missing) {
+        for (int i = first + 1; i < count; i++) {
+            int length = ends[i] - starts[i];
+            if (length != name.length() || !line.regionMatches(true, starts[i], name, 0, length)) {
+                continue;
+            }
+            if (i + 1 == count) {
+                throw new NumberFormatException("Missing value for " + name);
+            }
+            int value = intToken(i + 1 - first);
+            System.arraycopy(starts, i + 2, starts, i, count - i - 2);
+            System.arraycopy(ends, i + 2, ends, i, count - i - 2);
+            count -= 2;
+            return value;
+        }
+        return missing;
+    }
+
+    boolean startsWith(int index, char c) {
+        return line.charAt(starts[first + index]) == c;
+    }
+
+    // Index of the first token in the given names (ignoring case), or -1 when it matches none
+    int commandIndex(String[] names) {
+        if (size() == 0) {
+            return -1;
+        }
+        int length = ends[first] - starts[first];
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].length() == length && line.regionMatches(true, starts[first], names[i], 0, length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    String token(int index) {
+        return line.substring(starts[first + index], ends[first + index]);
+    }
+
+    // The line from the start of the given token to the end, e.g. a file path with spaces
+    String rest(int index) {
+        return line.substring(starts[first + index]).trim();
+    }
+
+    // Parse a token as an int straight from the characters of the line
+    int intToken(int index) {
+        long value = longToken(index);
+        if ((int) value != value) {
+            throw new NumberFormatException("Out of range: " + token(index));
+        }
+        return (int) value;
+    }
+
+    // Parse a token as a long straight from the characters of the line. Digits are
+    // accumulated as a negative number, like Long.parseLong, so Long.MIN_VALUE fits
+    long longToken(int index) {
+        int i = starts[first + index];
+        int end = ends[first + index];
+        boolean negative = line.charAt(i) == '-';
+        if (negative || line.charAt(i) == '+') {
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException("Not a number: " + token(index));
+        }
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a number: " + token(index));
+            }
+            if (value < limit / 10 || value * 10 < limit + digit) {
+                throw new NumberFormatException("Out of range: " + token(index));
+            }
+            value = value * 10 - digit;
+        }
+        return negative ? value : -value;
+    }
+}
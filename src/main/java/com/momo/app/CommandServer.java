@@ -0,0 +1,104 @@
+package com.momo.app;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+// TCP front end for the console commands.
+//
+// A client sends one command per line, exactly as typed in the console (including
+// the @<account> prefix), and gets back the console output of the command followed
+// by a line holding only END_OF_RESPONSE. EXIT closes the connection. Every
+// connection is served by its own thread, a virtual one when the JVM supports it,
+// so many idle clients cost little; the commands themselves run on the shards of
+// the AccountEngine.
+public class CommandServer implements Closeable {
+    public static final String END_OF_RESPONSE = ".";
+
+    private final AccountEngine engine;
+    private final Metrics metrics;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    // Port 0 picks a free port, see getPort
+    public CommandServer(AccountEngine engine, Metrics metrics, int port) throws IOException {
+        this.engine = engine;
+        this.metrics = metrics;
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.connections = VirtualThreads.newThreadPerTaskExecutor("command-connection");
+        this.acceptor = new Thread(this::acceptLoop, "command-server");
+        this.acceptor.setDaemon(true);
+    }
+
+    public void start() {
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                openSockets.add(socket);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Error: Could not accept connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false, StandardCharsets.UTF_8);
+            ConsolePresenter presenter = new ConsolePresenter(out);
+            CommandLine line = new CommandLine();
+            String input;
+            while ((input = in.readLine()) != null) {
+                boolean keepOpen = App.execute(engine, metrics, presenter, line.parse(input));
+                if (!keepOpen) {
+                    presenter.showMessage("Goodbye!");
+                }
+                presenter.showMessage(END_OF_RESPONSE);
+                presenter.flush();
+                if (!keepOpen) {
+                    break;
+                }
+            }
+        } catch (SocketException e) {
+            // client went away or the server is closing
+        } catch (IOException e) {
+            System.err.println("Error: Connection failed: " + e.getMessage());
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : openSockets) {
+            socket.close();
+        }
+        connections.shutdown();
+    }
+}
@@ -0,0 +1,213 @@
+package com.momo.app;
+
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Renders DataStore results as the text of the console app
+public class ConsolePresenter {
+    private static final String BILL_HEADER = "Bill No. Type Amount Due Date State PROVIDER";
+    private static final DateTimeFormatter DATE_INPUT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("MM/yyyy");
+
+    private final PrintStream out;
+
+    public ConsolePresenter(PrintStream out) {
+        this.out = out;
+    }
+
+    public void showMessage(String message) {
+        out.println(message);
+    }
+
+    public void showCashIn(long balance) {
+        out.println("Your available balance: " + balance);
+    }
+
+    public void showBalanceAt(LocalDate date, long balance) {
+        out.println("Your balance at the end of " + DATE_INPUT.format(date) + ": " + balance);
+    }
+
+    public void showPayment(PaymentResult result) {
+        if (result.getErrorCode() == ErrorCode.NO_BILLS) {
+            out.println("Usage: PAY <billId1> <billId2> ...");
+            return;
+        }
+        out.println("Your available balance: " + result.getBalanceBefore());
+        if (!result.getBillErrors().isEmpty()) {
+            for (PaymentResult.BillError error : result.getBillErrors()) {
+                out.println(billError(error.getBillId(), error.getCode()));
+            }
+            out.println("Transaction failed due to one or more errors. No bills were paid.");
+        } else if (result.getErrorCode() == ErrorCode.INSUFFICIENT_FUNDS) {
+            out.println("Sorry! Not enough funds to proceed with payment.");
+            out.println("Total amount needed: " + result.getTotalAmount());
+        } else {
+            out.println("Payment has been completed for " + result.getPaidBillIds().length + " bill(s).");
+            out.println("Your current balance: " + result.getBalance());
+        }
+    }
+
+    // Errors are listed per bill id, paid bills only counted
+    public void showBatchPayment(BatchPaymentReport report) {
+        if (report.getBillCount() == 0) {
+            out.println("Usage: PAY --best-effort <billId1> <billId2> ...");
+            return;
+        }
+        out.println("Your available balance: " + report.getBalanceBefore());
+        for (int i = 0; i < report.getBillCount(); i++) {
+            if (!report.isPaid(i)) {
+                out.println(billError(report.getBillId(i), report.getErrorCode(i)));
+            }
+        }
+        out.println("Payment has been completed for " + report.getPaidCount() + " of "
+                + report.getBillCount() + " bill(s), total amount: " + report.getTotalAmount() + ".");
+        out.println("Your current balance: " + report.getBalance());
+    }
+
+    public void showSchedule(ScheduleResult result) {
+        if (result.isSuccess()) {
+            out.println("Payment for bill " + result.getBillId() + " is scheduled on " + DATE_INPUT.format(result.getScheduledDate()));
+            return;
+        }
+        switch (result.getErrorCode()) {
+            case INVALID_DATE:
+                out.println("Error: Invalid date format. Please use DD/MM/YYYY.");
+                break;
+            case AFTER_DUE_DATE:
+                out.println("Error: Scheduled date (" + result.getScheduledDate() + ") cannot be after the due date (" + result.getDueDate() + ").");
+                break;
+            default:
+                out.println(billError(result.getBillId(), result.getErrorCode()));
+                break;
+        }
+    }
+
+    public void showBills(List<Bill> bills) {
+        out.println(BILL_HEADER);
+        for (Bill bill : bills) {
+            out.println(bill);
+        }
+    }
+
+    public void showPayments(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            out.println("No payments yet.");
+            return;
+        }
+        out.println("No. Amount Payment Date State Bill Id");
+        for (Payment p : payments) {
+            out.println(p);
+        }
+    }
+
+    // At most limit bills pulled from the iterator, then the command for the next page if there is one
+    public void showBillPage(Iterator<Bill> bills, int limit) {
+        out.println(BILL_HEADER);
+        int lastId = 0;
+        for (int shown = 0; shown < limit && bills.hasNext(); shown++) {
+            Bill bill = bills.next();
+            out.println(bill);
+            lastId = bill.getId();
+        }
+        if (bills.hasNext()) {
+            out.println("More bills: LIST_BILL --after " + lastId + " --limit " + limit);
+        }
+    }
+
+    // At most limit payments pulled from the iterator, then the command for the next page if there is one
+    public void showPaymentPage(Iterator<Payment> payments, int limit, boolean firstPage) {
+        if (!payments.hasNext()) {
+            out.println(firstPage ? "No payments yet." : "No more payments.");
+            return;
+        }
+        out.println("No. Amount Payment Date State Bill Id");
+        int lastId = 0;
+        for (int shown = 0; shown < limit && payments.hasNext(); shown++) {
+            Payment payment = payments.next();
+            out.println(payment);
+            lastId = payment.getId();
+        }
+        if (payments.hasNext()) {
+            out.println("More payments: LIST_PAYMENTS --after " + lastId + " --limit " + limit);
+        }
+    }
+
+    public void showImport(ImportReport report) {
+        out.println(report);
+        for (String error : report.getErrors()) {
+            out.println(error);
+        }
+    }
+
+    // Unpaid totals, then the breakdown by type and by due month
+    public void showSummary(BillSummary summary) {
+        out.println("Unpaid bills: " + summary.getUnpaid().getCount() + ", total amount: " + summary.getUnpaid().getAmount());
+        out.println("Scheduled: " + summary.getScheduled().getCount() + ", amount: " + summary.getScheduled().getAmount());
+        out.println("Type Count Amount");
+        for (Map.Entry<BillType, BillSummary.Totals> entry : summary.getByType().entrySet()) {
+            out.println(entry.getKey() + " " + entry.getValue());
+        }
+        out.println("Due Month Count Amount");
+        for (Map.Entry<YearMonth, BillSummary.Totals> entry : summary.getByDueMonth().entrySet()) {
+            out.println(MONTH.format(entry.getKey()) + " " + entry.getValue());
+        }
+    }
+
+    public void showSummaryByProvider(BillSummary summary) {
+        out.println("Provider Count Amount");
+        for (Map.Entry<String, BillSummary.Totals> entry : summary.getByProvider().entrySet()) {
+            out.println(entry.getKey() + " " + entry.getValue());
+        }
+    }
+
+    // Count and latency of every command and store operation that ran, then the error counts
+    public void showStats(Metrics metrics) {
+        out.println("Command Count p50(us) p99(us) Max(us)");
+        String[] names = metrics.getNames();
+        for (int i = 0; i < names.length; i++) {
+            long count = metrics.getCount(i);
+            if (count == 0) {
+                continue;
+            }
+            LatencyHistogram latency = metrics.getLatency(i);
+            out.println(names[i] + " " + count + " " + micros(latency.getValueAtPercentile(50))
+                    + " " + micros(latency.getValueAtPercentile(99)) + " " + micros(latency.getMax()));
+        }
+        out.println("Error Count");
+        for (ErrorCode code : ErrorCode.values()) {
+            long count = metrics.getErrorCount(code);
+            if (count > 0) {
+                out.println(code + " " + count);
+            }
+        }
+    }
+
+    public void flush() {
+        out.flush();
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+
+    private static String billError(int billId, ErrorCode code) {
+        switch (code) {
+            case BILL_NOT_FOUND:
+                return "Error: Bill with id " + billId + " not found.";
+            case BILL_ALREADY_PAID:
+                return "Error: Bill with id " + billId + " is already paid.";
+            case ALREADY_SCHEDULED:
+                return "Error: A payment for bill id " + billId + " is already scheduled.";
+            case INSUFFICIENT_FUNDS:
+                return "Error: Not enough funds to pay bill with id " + billId + ".";
+            default:
+                return "Error: " + code + " (bill " + billId + ")";
+        }
+    }
+}
@@ -1,202 +1,875 @@
 package com.momo.app;
 
+import java.io.IOException;
 import java.util.*;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.stream.Collectors;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
+// Safe to use from many threads: the balance is kept by the Ledger and bill
+// changes are guarded by striped per-bill locks (see BillLocks).
 public class DataStore {
-    private int balance;
-    private List<Bill> bills;
-    private List<Payment> payments;
+    private static final int LOCK_STRIPES = 256;
+    private static final int PAYMENT_SCAN_CHUNK = 1024;
+    static final int IDEMPOTENCY_KEYS = 10_000;                  // remembered keys per request type
+    static final Duration IDEMPOTENCY_TTL = Duration.ofHours(24); // how long a key is remembered
+
+    // Outcome of settling a scheduled payment
+    enum Settlement {
+        SETTLED,
+        INSUFFICIENT_FUNDS,
+        NOT_PENDING // paid in the meantime, or never scheduled
+    }
+
+    private final Ledger ledger;                             // every balance change, see Money
+    private final BillRepository bills;
+    private final PaymentRepository payments;                // guarded by itself, live payments in id order
+    private int lastPaymentId;                               // guarded by payments
+    private final Map<Integer, Payment> pendingPaymentIndex; // bill id -> its PENDING payment
+    private final BillLocks billLocks;
+    private volatile Journal journal;                        // Can be null, mutations are logged to it when set
+    private volatile PaymentArchive archive;                 // Can be null, settled payments are moved to it when set
+    private final List<DataStoreListener> listeners = new CopyOnWriteArrayList<>();
+    private final IdempotencyCache<PaymentResult> paymentRequests;
+    private final IdempotencyCache<BatchPaymentReport> batchPaymentRequests;
+    private final IdempotencyCache<Long> cashInRequests;
+    private volatile Day today;                              // cached current date, see today()
+    private volatile Metrics metrics;                        // Can be null, operations are timed into it when set
+    private final BillAggregates aggregates = new BillAggregates();
 
     public DataStore() {
-        this.balance = 0;
-        this.bills = new ArrayList<>();
-        this.payments = new ArrayList<>();
+        this(new InMemoryBillRepository());
+        addSampleBills();
+    }
+
+    // A store over the given bills, without the sample data
+    public DataStore(BillRepository bills) {
+        this(bills, Clock.systemUTC());
+    }
+
+    // The clock only ages idempotency keys
+    DataStore(BillRepository bills, Clock clock) {
+        this(bills, new InMemoryPaymentRepository(), new InMemoryAccountRepository(), clock);
+    }
+
+    // A store over the given repositories, without the sample data. Repositories reopened
+    // from disk may already hold bills, payments and postings
+    public DataStore(BillRepository bills, PaymentRepository payments, AccountRepository postings) {
+        this(bills, payments, postings, Clock.systemUTC());
+    }
+
+    DataStore(BillRepository bills, PaymentRepository payments, AccountRepository postings, Clock clock) {
+        this.ledger = new Ledger(postings);
+        this.bills = bills;
+        this.payments = payments;
+        this.pendingPaymentIndex = new ConcurrentHashMap<>();
+        this.billLocks = new BillLocks(LOCK_STRIPES);
+        this.paymentRequests = new IdempotencyCache<>(IDEMPOTENCY_KEYS, IDEMPOTENCY_TTL, clock);
+        this.batchPaymentRequests = new IdempotencyCache<>(IDEMPOTENCY_KEYS, IDEMPOTENCY_TTL, clock);
+        this.cashInRequests = new IdempotencyCache<>(IDEMPOTENCY_KEYS, IDEMPOTENCY_TTL, clock);
+        bills.forEachUnpaid(aggregates::addedUnpaid); // a repository reopened from disk already has bills
+        synchronized (payments) {
+            lastPaymentId = payments.lastId();
+            int lastId = Integer.MIN_VALUE;
+            List<Payment> chunk;
+            do { // a chunk at a time, only the pending payments are kept
+                chunk = payments.findAfter(lastId, PAYMENT_SCAN_CHUNK);
+                for (Payment payment : chunk) {
+                    if (payment.getState() == PaymentState.PENDING) {
+                        pendingPaymentIndex.put(payment.getBillId(), payment);
+                    }
+                    lastId = payment.getId();
+                }
+            } while (chunk.size() == PAYMENT_SCAN_CHUNK);
+        }
+    }
+
+    // Some sample data
+    void addSampleBills() {
+        applyBill(new Bill(1, BillType.ELECTRIC, 200000, LocalDate.of(2020, 10, 25), Provider.of("EVN HCMC")));
+        applyBill(new Bill(2, BillType.WATER, 175000, LocalDate.of(2020, 10, 30), Provider.of("SAVACO HCMC")));
+        applyBill(new Bill(3, BillType.INTERNET, 800000, LocalDate.of(2020, 11, 30), Provider.of("VNPT")));
+    }
+
+    public void addListener(DataStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(DataStoreListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Time cashIn, payBills and scheduleBill and count their errors, null to stop
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Start logging every mutation, called once recovery has replayed the journal
+    void attachJournal(Journal journal) {
+        this.journal = journal;
+    }
 
-        // Some sample dât
-        bills.add(new Bill(1, "ELECTRIC", 200000, LocalDate.of(2020, 10, 25), "EVN HCMC"));
-        bills.add(new Bill(2, "WATER", 175000, LocalDate.of(2020, 10, 30), "SAVACO HCMC"));
-        bills.add(new Bill(3, "INTERNET", 800000, LocalDate.of(2020, 11, 30), "VNPT"));
+    // Let archivePayments move settled payments to the archive. Called before journal
+    // replay, so that new payments do not reuse the ids of archived ones
+    void attachArchive(PaymentArchive archive) {
+        this.archive = archive;
+        synchronized (payments) {
+            lastPaymentId = Math.max(lastPaymentId, archive.lastId());
+        }
     }
 
-    // Cash in money
-    public void cashIn(int amount) {
-        balance += amount;
-        System.out.println("Your available balance: " + balance);
+    // Add a new bill, bill ids must be unique
+    public void addBill(Bill bill) {
+        long lsn = 0;
+        beginMutation();
+        billLocks.lock(bill.getId());
+        try {
+            applyBill(bill);
+            if (journal != null) {
+                lsn = journal.logBill(bill);
+            }
+            for (DataStoreListener listener : listeners) {
+                listener.billAdded(bill);
+            }
+        } finally {
+            billLocks.unlock(bill.getId());
+            endMutation();
+        }
+        awaitDurable(lsn);
     }
 
-    // List all bills
-    public void listBills() {
-        System.out.println("Bill No. Type Amount Due Date State PROVIDER");
-        for (Bill bill : bills) {
-            System.out.println(bill);
+    // Add many bills at once, skipping those whose id already exists.
+    // Returns how many were added; the batch is made durable with a single journal sync
+    public int addBills(List<Bill> newBills) {
+        long lsn = 0;
+        int added = 0;
+        beginMutation();
+        try {
+            for (Bill bill : newBills) {
+                billLocks.lock(bill.getId());
+                try {
+                    if (findBill(bill.getId()) != null) {
+                        continue; // duplicate id
+                    }
+                    applyBill(bill);
+                    added++;
+                    if (journal != null) {
+                        lsn = journal.logBill(bill);
+                    }
+                    for (DataStoreListener listener : listeners) {
+                        listener.billAdded(bill);
+                    }
+                } finally {
+                    billLocks.unlock(bill.getId());
+                }
+            }
+        } finally {
+            endMutation();
         }
+        awaitDurable(lsn);
+        return added;
+    }
+
+    public long getBalance() {
+        return ledger.getBalance();
     }
 
-    // Pay MULTIPLE bills at once
-    public void payBills(List<Integer> billIds) {
-        if (billIds.isEmpty()) {
-            System.out.println("Usage: PAY <billId1> <billId2> ...");
+    // The balance at the end of the given day, from the ledger checkpoints
+    public long getBalanceAt(LocalDate date) {
+        return ledger.balanceAt(date);
+    }
+
+    // Ledger postings after the given sequence, in order
+    public Iterator<Posting> iteratePostings(long afterSequence) {
+        return ledger.postings(afterSequence);
+    }
+
+    // Copy of all bills, in the order of the bill repository
+    public List<Bill> getBills() {
+        return bills.findAll();
+    }
+
+    // Copy of the live payments in id order, archived payments are left out
+    public List<Payment> getPayments() {
+        synchronized (payments) {
+            return payments.findAll();
+        }
+    }
+
+    // Cash in money, returns the new balance. Throws IllegalArgumentException for a negative
+    // amount and ArithmeticException when the balance would go above Money.MAX, adding nothing
+    public long cashIn(long amount) {
+        Metrics m = metrics;
+        if (m == null) {
+            return cashInUntimed(amount);
+        }
+        long start = System.nanoTime();
+        long newBalance = cashInUntimed(amount);
+        m.recordOperation(Metrics.Operation.CASH_IN, System.nanoTime() - start, null);
+        return newBalance;
+    }
+
+    private long cashInUntimed(long amount) {
+        long lsn = 0;
+        long newBalance;
+        beginMutation();
+        try {
+            LocalDate today = today();
+            synchronized (ledger) { // journal records must follow the order of the postings
+                newBalance = applyCashIn(amount, today);
+                if (journal != null) {
+                    lsn = journal.logCashIn(amount, today);
+                }
+            }
+        } finally {
+            endMutation();
+        }
+        awaitDurable(lsn);
+        return newBalance;
+    }
+
+    // Cash in at most once per idempotency key: a retry with the same key gets the
+    // balance of the first attempt back and adds nothing. A null key always cashes in.
+    // Throws IllegalArgumentException when the key was used with another amount
+    public long cashIn(String idempotencyKey, long amount) {
+        if (idempotencyKey == null) {
+            return cashIn(amount);
+        }
+        return cashInRequests.getOrRun(idempotencyKey, amount, () -> cashIn(amount));
+    }
+
+    // Pay at most once per idempotency key: a retry with the same key gets the result
+    // of the first attempt back without validating or paying again. A null key always pays.
+    // Throws IllegalArgumentException when the key was used with other bill ids
+    public PaymentResult payBills(String idempotencyKey, List<Integer> billIds) {
+        if (idempotencyKey == null) {
+            return payBills(billIds);
+        }
+        return paymentRequests.getOrRun(idempotencyKey, List.copyOf(billIds), () -> payBills(billIds));
+    }
+
+    // Pay MULTIPLE bills at once, all of them or none
+    public PaymentResult payBills(List<Integer> billIds) {
+        Metrics m = metrics;
+        if (m == null) {
+            return payBillsUntimed(billIds);
+        }
+        long start = System.nanoTime();
+        PaymentResult result = payBillsUntimed(billIds);
+        m.recordOperation(Metrics.Operation.PAY, System.nanoTime() - start, result.getErrorCode());
+        return result;
+    }
+
+    private PaymentResult payBillsUntimed(List<Integer> billIds) {
+        int[] ids = new int[billIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = billIds.get(i);
+        }
+        PaymentOutcome outcome = new PaymentOutcome();
+        payInto(ids, ids.length, outcome);
+        return outcome.toResult();
+    }
+
+    // payBills for hot callers: pays the distinct ids among billIds[0..count), all or none,
+    // and fills the given outcome. Reusing one outcome per thread makes a payment
+    // allocation-free apart from the Payment records it keeps
+    public PaymentOutcome payBills(int[] billIds, int count, PaymentOutcome outcome) {
+        Metrics m = metrics;
+        if (m == null) {
+            payInto(billIds, count, outcome);
+            return outcome;
+        }
+        long start = System.nanoTime();
+        payInto(billIds, count, outcome);
+        m.recordOperation(Metrics.Operation.PAY, System.nanoTime() - start, outcome.getErrorCode());
+        return outcome;
+    }
+
+    // payBillsBestEffort at most once per idempotency key, like payBills(String, List)
+    public BatchPaymentReport payBillsBestEffort(String idempotencyKey, List<Integer> billIds) {
+        if (idempotencyKey == null) {
+            return payBillsBestEffort(billIds);
+        }
+        return batchPaymentRequests.getOrRun(idempotencyKey, List.copyOf(billIds), () -> payBillsBestEffort(billIds));
+    }
+
+    // Pay what can be paid instead of all or none: unknown and already paid ids are
+    // reported and skipped, and the other bills are paid earliest due date first (request
+    // order among equal dates) while the balance covers them. A bill the balance no longer
+    // covers does not stop cheaper ones after it. Large batches are validated in parallel
+    public BatchPaymentReport payBillsBestEffort(List<Integer> billIds) {
+        Metrics m = metrics;
+        if (m == null) {
+            return payBestEffort(billIds);
+        }
+        long start = System.nanoTime();
+        BatchPaymentReport report = payBestEffort(billIds);
+        ErrorCode error = null;
+        if (report.getBillCount() == 0) {
+            error = ErrorCode.NO_BILLS;
+        } else if (report.getPaidCount() == 0) {
+            error = report.getErrorCode(0);
+        }
+        m.recordOperation(Metrics.Operation.PAY, System.nanoTime() - start, error);
+        return report;
+    }
+
+    private BatchPaymentReport payBestEffort(List<Integer> billIds) {
+        int[] ids = billIds.stream().mapToInt(Integer::intValue).distinct().toArray();
+        Bill[] found = new Bill[ids.length];
+        ErrorCode[] codes = new ErrorCode[ids.length];
+        int[] stripes = new int[ids.length];
+        BatchPaymentReport report;
+        long lsn = 0;
+        beginMutation();
+        int stripeCount = billLocks.lockAll(ids, ids.length, stripes);
+        try {
+            BillValidation.validate(bills, ids, found, codes);
+            int[] order = dueDateOrder(found);
+            Bill[] toPay = new Bill[order.length];
+            LocalDate today = today();
+            long balanceBefore;
+            long totalAmount = 0;
+            int paidCount = 0;
+            long newBalance;
+            int[] paidIds;
+            synchronized (ledger) { // the balance holds still and the journal follows the postings
+                balanceBefore = ledger.getBalance();
+                long remaining = balanceBefore;
+                for (int index : order) {
+                    Bill bill = found[index];
+                    if (bill.getAmount() <= remaining) {
+                        remaining -= bill.getAmount();
+                        totalAmount += bill.getAmount();
+                        toPay[paidCount++] = bill;
+                        codes[index] = null;
+                    } else {
+                        codes[index] = ErrorCode.INSUFFICIENT_FUNDS;
+                    }
+                }
+                // nothing the balance covers: the ledger is not asked
+                newBalance = paidCount == 0 ? balanceBefore : ledger.pay(toPay, paidCount, totalAmount, today);
+
+                paidIds = new int[paidCount];
+                synchronized (payments) { // new payment ids must follow the journal order
+                    for (int i = 0; i < paidCount; i++) {
+                        settle(toPay[i], today);
+                        paidIds[i] = toPay[i].getId();
+                    }
+                    if (journal != null && paidCount > 0) {
+                        lsn = journal.logPayment(today, paidIds, paidCount);
+                    }
+                }
+            }
+            report = new BatchPaymentReport(ids, codes, paidIds, balanceBefore, newBalance, totalAmount);
+        } finally {
+            billLocks.unlockAll(stripes, stripeCount);
+            endMutation();
+        }
+        awaitDurable(lsn);
+        return report;
+    }
+
+    // Indexes of the bills found, earliest due date first and in index order among equal dates
+    private static int[] dueDateOrder(Bill[] found) {
+        long[] keys = new long[found.length]; // epoch day in the high half, index in the low half
+        int count = 0;
+        for (int i = 0; i < found.length; i++) {
+            if (found[i] != null) {
+                keys[count++] = found[i].getDueDate().toEpochDay() << 32 | i;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    private void payInto(int[] billIds, int count, PaymentOutcome outcome) {
+        outcome.start(billIds, count); // Use distinct IDs
+        if (outcome.idCount() == 0) {
+            outcome.noBills();
             return;
         }
-        
-        System.out.println("Your available balance: " + balance);
 
-        List<Bill> billsToPay = new ArrayList<>();
+        long lsn;
+        beginMutation();
+        int stripeCount = billLocks.lockAll(outcome.ids(), outcome.idCount(), outcome.stripes);
+        try {
+            lsn = payLocked(outcome);
+        } finally {
+            billLocks.unlockAll(outcome.stripes, stripeCount);
+            endMutation();
+        }
+        awaitDurable(lsn);
+    }
+
+    // Validate and settle the distinct bills of the outcome, the caller holds the locks of all of them.
+    // Returns the journal lsn of the payment, or 0 when nothing was logged
+    private long payLocked(PaymentOutcome outcome) {
+        long balanceBefore = ledger.getBalance();
+        int[] ids = outcome.ids();
+        int count = outcome.idCount();
+        Bill[] billsToPay = outcome.bills;
         long totalAmount = 0;
-        boolean hasErrors = false;
 
         // Validate all bills and calculate total amount
-        for (int billId : billIds.stream().distinct().collect(Collectors.toList())) { // Use distinct IDs
-            Bill bill = findBill(billId);
+        for (int i = 0; i < count; i++) {
+            Bill bill = findBill(ids[i]);
             if (bill == null) {
-                System.out.println("Error: Bill with id " + billId + " not found.");
-                hasErrors = true;
-            } else if ("PAID".equals(bill.getState())) {
-                System.out.println("Error: Bill with id " + billId + " is already paid.");
-                hasErrors = true;
+                outcome.addBillError(ids[i], ErrorCode.BILL_NOT_FOUND);
+            } else if (bill.getState() == BillState.PAID) {
+                outcome.addBillError(ids[i], ErrorCode.BILL_ALREADY_PAID);
             } else {
-                billsToPay.add(bill);
-                totalAmount += bill.getAmount();
+                billsToPay[i] = bill;
+                totalAmount = Money.add(totalAmount, bill.getAmount());
             }
         }
 
-        if (hasErrors) {
-            System.out.println("Transaction failed due to one or more errors. No bills were paid.");
-            return;
+        if (outcome.getBillErrorCount() > 0) {
+            outcome.balances(balanceBefore, balanceBefore, 0);
+            Arrays.fill(billsToPay, 0, count, null);
+            return 0;
         }
 
-        //Check if balance is sufficient
-        if (balance < totalAmount) {
-            System.out.println("Sorry! Not enough funds to proceed with payment.");
-            System.out.println("Total amount needed: " + totalAmount);
-            return;
+        //Check if balance is sufficient and take the whole amount at once
+        LocalDate today = today();
+        long lsn = 0;
+        long newBalance;
+        synchronized (ledger) { // journal records must follow the order of the postings
+            balanceBefore = ledger.getBalance();
+            newBalance = ledger.pay(billsToPay, count, totalAmount, today);
+            if (newBalance >= 0) {
+                // Execute payment for all valid bills
+                synchronized (payments) { // new payment ids must follow the journal order
+                    for (int i = 0; i < count; i++) {
+                        settle(billsToPay[i], today);
+                    }
+                    if (journal != null) {
+                        lsn = journal.logPayment(today, ids, count);
+                    }
+                }
+            }
+        }
+        Arrays.fill(billsToPay, 0, count, null); // the outcome must not keep bills reachable
+        if (newBalance < 0) {
+            outcome.balances(balanceBefore, balanceBefore, totalAmount);
+            outcome.insufficientFunds();
+            return 0;
         }
+        outcome.balances(balanceBefore, newBalance, totalAmount);
+        return lsn;
+    }
 
-        // Execute payment for all valid bills
-        for (Bill bill : billsToPay) {
-            balance -= bill.getAmount();
-            bill.markPaid();
-            // Find an existing PENDING payment for this bill
-            Payment existingPayment = findPendingPaymentByBillId(bill.getId());
+    // Mark the bill paid and record its payment, the balance has already been debited
+    private void settle(Bill bill, LocalDate paymentDate) {
+        boolean scheduled = bill.getScheduledDate() != null;
+        bill.markPaid();
+        aggregates.paid(bill, scheduled);
+        // Find an existing PENDING payment for this bill, only scheduled bills have one
+        Payment existingPayment = scheduled ? pendingPaymentIndex.remove(bill.getId()) : null;
 
-            if (existingPayment != null) {
-                // If found, update it to PROCESSED
-                existingPayment.setState("PROCESSED");
-                existingPayment.setPaymentDate(LocalDate.now());
-            } else {
-                // If not found, create a new PROCESSED payment record
-                Payment payment = new Payment(
-                    payments.size() + 1,
-                    bill.getAmount(),
-                    LocalDate.now(),
-                    "PROCESSED",
-                    bill.getId()
-                );
-                payments.add(payment);
+        if (existingPayment != null) {
+            // If found, update it to PROCESSED
+            existingPayment.setState(PaymentState.PROCESSED);
+            existingPayment.setPaymentDate(paymentDate);
+            synchronized (payments) {
+                payments.update(existingPayment);
             }
+        } else {
+            // If not found, create a new PROCESSED payment record
+            recordPayment(bill.getAmount(), paymentDate, PaymentState.PROCESSED, bill.getId());
         }
-
-        System.out.println("Payment has been completed for " + billsToPay.size() + " bill(s).");
-        System.out.println("Your current balance: " + balance);
     }
 
-    // List all payments
-    public void listPayments() {
-        if (payments.isEmpty()) {
-            System.out.println("No payments yet.");
-            return;
-        }
-        System.out.println("No. Amount Payment Date State Bill Id");
-        for (Payment p : payments) {
-            System.out.println(p);
+    // Append a payment with the next id, archived payments keep their ids taken
+    private Payment recordPayment(long amount, LocalDate paymentDate, PaymentState state, int billId) {
+        synchronized (payments) {
+            Payment payment = new Payment(++lastPaymentId, amount, paymentDate, state, billId);
+            payments.add(payment);
+            return payment;
         }
     }
 
-    // List all unpaid bills
-    public void listUnpaidBills() {
-        System.out.println("Bill No. Type Amount Due Date State PROVIDER");
-        for (Bill bill : bills) {
-            if (bill.getState().equals("NOT_PAID")) {
-                System.out.println(bill);
+    // Bills with an id greater than afterId that match the query, in id order. Bills are
+    // read lazily as the iterator advances, so a listing never copies all of them
+    public Iterator<Bill> iterateBills(BillQuery query, int afterId) {
+        return bills.iterate(query, afterId);
+    }
+
+    // Payments with an id greater than afterId that match the query, in id order. Live
+    // payments are scanned PAYMENT_SCAN_CHUNK at a time per hold of the payments lock;
+    // archived ones are only read when the query includes them
+    public Iterator<Payment> iteratePayments(PaymentQuery query, int afterId) {
+        Iterator<Payment> live = new LazyIterator<Payment>() {
+            private final List<Payment> matches = new ArrayList<>();
+            private int next;
+            private int lastId = afterId;
+            private boolean scannedAll;
+
+            @Override
+            protected Payment computeNext() {
+                while (next == matches.size()) {
+                    if (scannedAll) {
+                        return null;
+                    }
+                    matches.clear();
+                    next = 0;
+                    List<Payment> chunk;
+                    synchronized (payments) { // resume by id, archiving may have removed payments meanwhile
+                        chunk = payments.findAfter(lastId, PAYMENT_SCAN_CHUNK);
+                    }
+                    for (Payment payment : chunk) {
+                        if (query.matches(payment, bills)) {
+                            matches.add(payment);
+                        }
+                        lastId = payment.getId();
+                    }
+                    scannedAll = chunk.size() < PAYMENT_SCAN_CHUNK;
+                }
+                return matches.get(next++);
             }
+        };
+        PaymentArchive archive = this.archive;
+        if (archive == null || !query.isIncludingArchived()) {
+            return live;
         }
+        return mergeById(archive.iterate(query, afterId, bills), live);
     }
 
-    // List all bills by provider
-    public void listBillbyProvider(String provider) {
-        System.out.println("Bill No. Type Amount Due Date State PROVIDER");
-        for (Bill bill : bills) {
-            if (bill.getProvider().equals(provider)) {
-                System.out.println(bill);
+    // Two iterators of payments in id order merged into one, ids never appear in both
+    private static Iterator<Payment> mergeById(Iterator<Payment> first, Iterator<Payment> second) {
+        return new LazyIterator<Payment>() {
+            private Payment a = first.hasNext() ? first.next() : null;
+            private Payment b = second.hasNext() ? second.next() : null;
+
+            @Override
+            protected Payment computeNext() {
+                Payment result;
+                if (a != null && (b == null || a.getId() < b.getId())) {
+                    result = a;
+                    a = first.hasNext() ? first.next() : null;
+                } else {
+                    result = b;
+                    b = b != null && second.hasNext() ? second.next() : null;
+                }
+                return result;
             }
+        };
+    }
+
+    // Move the PROCESSED payments dated before the given day out of the live list into the
+    // archive. Called by a checkpoint, which holds the journal gate so no payment changes
+    // meanwhile. Returns how many payments were moved
+    int archivePayments(LocalDate before) throws IOException {
+        PaymentArchive archive = this.archive;
+        if (archive == null) {
+            return 0;
+        }
+        List<Payment> settled = new ArrayList<>();
+        int lastId = Integer.MIN_VALUE;
+        List<Payment> chunk;
+        do { // a chunk at a time, only the payments to move are kept
+            synchronized (payments) {
+                chunk = payments.findAfter(lastId, PAYMENT_SCAN_CHUNK);
+            }
+            for (Payment payment : chunk) {
+                if (payment.getState() == PaymentState.PROCESSED && payment.getPaymentDate().isBefore(before)) {
+                    settled.add(payment);
+                }
+                lastId = payment.getId();
+            }
+        } while (chunk.size() == PAYMENT_SCAN_CHUNK);
+        if (settled.isEmpty()) {
+            return 0;
+        }
+        // The archive lsn ties the moved payments to the snapshot the checkpoint writes next
+        long lsn = journal != null ? journal.logArchive(settled.size()) : 0;
+        archive.append(settled, lsn);
+        synchronized (payments) {
+            payments.removeAll(settled);
+        }
+        return settled.size();
+    }
+
+    // Totals of the unpaid bills, read from aggregates kept up to date on every change
+    public BillSummary getSummary() {
+        return aggregates.summary();
+    }
+
+    // All unpaid bills
+    public List<Bill> getUnpaidBills() {
+        return bills.findByState(BillState.NOT_PAID);
+    }
+
+    // Unpaid bills due between two dates (inclusive), earliest due date first
+    public List<Bill> findUnpaidBillsDueBetween(LocalDate from, LocalDate to) {
+        return bills.findUnpaidDueBetween(from, to);
+    }
+
+    // All bills of a provider, by its name
+    public List<Bill> findBillsByProvider(String provider) {
+        Provider known = Provider.find(provider);
+        if (known == null) {
+            return Collections.emptyList(); // no bill has ever used this provider
+        }
+        return bills.findByProvider(known);
+    }
+
+    // Schedule a bill, the date is DD/MM/YYYY
+    public ScheduleResult scheduleBill(int billId, String dueDate) {
+        Metrics m = metrics;
+        if (m == null) {
+            return scheduleBillUntimed(billId, dueDate);
         }
+        long start = System.nanoTime();
+        ScheduleResult result = scheduleBillUntimed(billId, dueDate);
+        m.recordOperation(Metrics.Operation.SCHEDULE_BILL, System.nanoTime() - start, result.getErrorCode());
+        return result;
     }
 
-    // Schedule a bill
-    public void scheduleBill(int billId, String dueDate) {
+    private ScheduleResult scheduleBillUntimed(int billId, String dueDate) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
         LocalDate scheduledDate;
 
         try {
             scheduledDate = LocalDate.parse(dueDate, formatter);
         } catch (DateTimeParseException e) {
-            System.out.println("Error: Invalid date format. Please use DD/MM/YYYY.");
-            return;
+            return ScheduleResult.failed(billId, ErrorCode.INVALID_DATE, null);
+        }
+
+        ScheduleResult result;
+        long[] lsn = new long[1];
+        beginMutation();
+        billLocks.lock(billId);
+        try {
+            result = scheduleLocked(billId, scheduledDate, lsn);
+        } finally {
+            billLocks.unlock(billId);
+            endMutation();
         }
+        awaitDurable(lsn[0]);
+        return result;
+    }
 
+    // Schedule the bill, the caller holds its lock.
+    // Stores the journal lsn of the schedule in lsn[0], left 0 when nothing was logged
+    private ScheduleResult scheduleLocked(int billId, LocalDate scheduledDate, long[] lsn) {
         Bill bill = findBill(billId);
         if (bill == null) {
-            System.out.println("Error: Bill with id " + billId + " not found.");
-            return;
+            return ScheduleResult.failed(billId, ErrorCode.BILL_NOT_FOUND, scheduledDate);
         }
 
-        if ("PAID".equals(bill.getState())) {
-            System.out.println("Error: Bill with id " + billId + " is already paid.");
-            return;
+        if (bill.getState() == BillState.PAID) {
+            return ScheduleResult.failed(billId, ErrorCode.BILL_ALREADY_PAID, scheduledDate);
         }
         if (bill.getScheduledDate() != null) {
-            System.out.println("Error: A payment for bill id " + billId + " is already scheduled.");
-            return;
+            return ScheduleResult.failed(billId, ErrorCode.ALREADY_SCHEDULED, scheduledDate);
         }
 
-        try {
-            boolean success = bill.setScheduledDate(scheduledDate);
-            if (success) {
-                 System.out.println("Payment for bill " + billId + " is scheduled on " + dueDate);
-                 Payment payment = new Payment(
-                    payments.size() + 1,
-                    bill.getAmount(),
-                    LocalDate.now(), // Use current date for payment
-                    "PENDING",
-                    bill.getId()
-                );
-                payments.add(payment);
+        if (!bill.setScheduledDate(scheduledDate)) {
+            return ScheduleResult.afterDueDate(billId, scheduledDate, bill.getDueDate());
+        }
+        aggregates.scheduled(bill);
+        LocalDate today = today(); // Use current date for payment
+        Payment payment;
+        synchronized (payments) { // new payment ids must follow the journal order
+            payment = recordPendingPayment(bill, today);
+            if (journal != null) {
+                lsn[0] = journal.logSchedule(billId, scheduledDate, today);
             }
-        } catch (DateTimeParseException e) {
-            System.out.println("Error: Invalid date format. Please use DD/MM/YYYY.");
         }
+        for (DataStoreListener listener : listeners) {
+            listener.paymentScheduled(bill, payment);
+        }
+        return ScheduleResult.scheduled(billId, scheduledDate);
     }
 
-    // Helper to find bill
-    private Bill findBill(int id) {
-        for (Bill b : bills) {
-            if (b.getId() == id) return b;
+    // LocalDate.now() without allocating, the date is only recomputed when the day changes
+    private LocalDate today() {
+        long now = System.currentTimeMillis();
+        Day day = today;
+        if (day == null || now < day.startMillis || now >= day.endMillis) {
+            day = new Day(LocalDate.now(), ZoneId.systemDefault());
+            today = day;
         }
-        return null;
+        return day.date;
     }
 
-    //  Helper to find a pending payment by its bill ID
-    private Payment findPendingPaymentByBillId(int billId) {
-        for (Payment p : payments) {
-            if (p.getBillId() == billId && "PENDING".equals(p.getState())) {
-                return p;
+    private static final class Day {
+        final LocalDate date;
+        final long startMillis;
+        final long endMillis;
+
+        Day(LocalDate date, ZoneId zone) {
+            this.date = date;
+            this.startMillis = date.atStartOfDay(zone).toInstant().toEpochMilli();
+            this.endMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+    }
+
+    private Payment recordPendingPayment(Bill bill, LocalDate createdOn) {
+        Payment payment = recordPayment(bill.getAmount(), createdOn, PaymentState.PENDING, bill.getId());
+        pendingPaymentIndex.put(bill.getId(), payment);
+        return payment;
+    }
+
+    // Settle the PENDING payments of scheduled bills that are due, used by the PaymentScheduler.
+    // Bills are taken in the given order while the balance covers them, and all of them are
+    // paid under one journal record and one wait for durability. Returns the outcome of
+    // each of billIds
+    Settlement[] settleScheduledPayments(int[] billIds, LocalDate paymentDate) {
+        Settlement[] results = new Settlement[billIds.length];
+        Bill[] due = new Bill[billIds.length];
+        Bill[] toPay = new Bill[billIds.length];
+        int[] stripes = new int[billIds.length];
+        long lsn = 0;
+        beginMutation();
+        int stripeCount = billLocks.lockAll(billIds, billIds.length, stripes);
+        try {
+            Set<Integer> seen = new HashSet<>();
+            for (int i = 0; i < billIds.length; i++) {
+                Bill bill = findBill(billIds[i]);
+                if (bill == null || bill.getState() == BillState.PAID || findPendingPaymentByBillId(billIds[i]) == null
+                        || !seen.add(billIds[i])) {
+                    results[i] = Settlement.NOT_PENDING;
+                } else {
+                    due[i] = bill;
+                }
+            }
+            synchronized (ledger) { // the balance holds still and the journal follows the postings
+                long remaining = ledger.getBalance();
+                long totalAmount = 0;
+                int paidCount = 0;
+                for (int i = 0; i < due.length; i++) {
+                    Bill bill = due[i];
+                    if (bill == null) {
+                        continue;
+                    }
+                    if (bill.getAmount() <= remaining) {
+                        remaining -= bill.getAmount();
+                        totalAmount += bill.getAmount();
+                        toPay[paidCount++] = bill;
+                        results[i] = Settlement.SETTLED;
+                    } else {
+                        results[i] = Settlement.INSUFFICIENT_FUNDS;
+                    }
+                }
+                if (paidCount > 0) {
+                    ledger.pay(toPay, paidCount, totalAmount, paymentDate);
+                }
+
+                int[] paidIds = new int[paidCount];
+                synchronized (payments) { // the PENDING payments keep their ids, the lock keeps journal order
+                    for (int i = 0; i < paidCount; i++) {
+                        settle(toPay[i], paymentDate);
+                        paidIds[i] = toPay[i].getId();
+                    }
+                    if (journal != null && paidCount > 0) {
+                        lsn = journal.logPayment(paymentDate, paidIds, paidCount);
+                    }
+                }
             }
+        } finally {
+            billLocks.unlockAll(stripes, stripeCount);
+            endMutation();
+        }
+        awaitDurable(lsn);
+        return results;
+    }
+
+    // --- Mutation cores, shared by the public operations, journal replay and snapshot loading ---
+
+    // Room for count bills about to be applied
+    void expectBills(int count) {
+        bills.ensureCapacity(count);
+    }
+
+    void applyBill(Bill bill) {
+        bills.add(bill);
+        aggregates.added(bill);
+    }
+
+    long applyCashIn(long amount, LocalDate date) {
+        return ledger.cashIn(amount, date);
+    }
+
+    void applyPayment(LocalDate paymentDate, int[] billIds) {
+        for (int billId : billIds) {
+            Bill bill = findBill(billId);
+            ledger.apply(Posting.Kind.BILL_PAYMENT, billId, bill.getAmount(), paymentDate);
+            settle(bill, paymentDate);
+        }
+    }
+
+    void applySchedule(int billId, LocalDate scheduledDate, LocalDate createdOn) {
+        Bill bill = findBill(billId);
+        bill.setScheduledDate(scheduledDate);
+        aggregates.scheduled(bill);
+        recordPendingPayment(bill, createdOn);
+    }
+
+    // A posting read back from a snapshot
+    void restorePosting(Posting.Kind kind, int reference, long amount, LocalDate date) {
+        ledger.apply(kind, reference, amount, date);
+    }
+
+    void restorePayment(Payment payment) {
+        synchronized (payments) {
+            payments.add(payment);
+            lastPaymentId = Math.max(lastPaymentId, payment.getId());
         }
-        return null;
+        if (payment.getState() == PaymentState.PENDING) {
+            pendingPaymentIndex.put(payment.getBillId(), payment);
+        }
+    }
+
+    // With a journal attached, mutations hold its gate so checkpoints see a consistent store
+    private void beginMutation() {
+        if (journal != null) {
+            journal.gate().readLock().lock();
+        }
+    }
+
+    private void endMutation() {
+        if (journal != null) {
+            journal.gate().readLock().unlock();
+        }
+    }
+
+    private void awaitDurable(long lsn) {
+        if (lsn > 0) {
+            journal.awaitDurable(lsn);
+        }
+    }
+
+    Ledger ledger() {
+        return ledger;
+    }
+
+    IdempotencyCache<PaymentResult> paymentRequests() {
+        return paymentRequests;
+    }
+
+    IdempotencyCache<Long> cashInRequests() {
+        return cashInRequests;
+    }
+
+    // Helper to find bill
+    Bill findBill(int id) {
+        return bills.find(id);
+    }
+
+    //  Helper to find a pending payment by its bill ID
+    Payment findPendingPaymentByBillId(int billId) {
+        return pendingPaymentIndex.get(billId);
     }
 }
 
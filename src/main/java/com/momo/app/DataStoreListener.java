@@ -0,0 +1,12 @@
+package com.momo.app;
+
+// Notified of DataStore operations as they happen, on the calling thread and while
+// the bill involved is locked, so keep implementations short and non-blocking.
+// Journal replay and snapshot loading do not notify listeners.
+public interface DataStoreListener {
+    default void billAdded(Bill bill) {
+    }
+
+    default void paymentScheduled(Bill bill, Payment payment) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.momo.app;
+
+// Notified by a DueDateMonitor as it ticks, on the ticking thread
+public interface DueDateListener {
+    // An unpaid bill is due within the reminder window
+    default void billDueSoon(Bill bill) {
+    }
+
+    // A scheduled payment runs within the reminder window, while the bill is still unpaid
+    default void scheduledPaymentSoon(Bill bill) {
+    }
+
+    // An unpaid bill's due date has passed
+    default void billOverdue(Bill bill) {
+    }
+}
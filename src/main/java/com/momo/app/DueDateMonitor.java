@@ -0,0 +1,163 @@
+package com.momo.app;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Reminders and overdue detection for the unpaid bills of a DataStore.
+//
+// Every unpaid bill gets timers in a TimerWheel: a reminder reminderDays before its due
+// date, another one before its scheduled payment, and an overdue timer on the day after
+// its due date. tick() advances the wheel to today and only touches the timers that
+// fire, each in O(1), instead of comparing every due date to today. A bill paid in the
+// meantime is not looked for in the wheel; its timers are dropped when they fire.
+// Time comes from a Clock, so tests can move it forward.
+public class DueDateMonitor implements DataStoreListener, Closeable {
+    static final int DEFAULT_REMINDER_DAYS = 3;
+
+    private static final int DUE_SOON = 0;
+    private static final int SCHEDULED_SOON = 1;
+    private static final int OVERDUE = 2;
+
+    private final DataStore store;
+    private final Clock clock;
+    private final int reminderDays;
+    private final TimerWheel wheel;                             // guarded by this
+    private final Set<Integer> overdue = new LinkedHashSet<>(); // guarded by this, ids of overdue bills
+    private final List<DueDateListener> listeners = new CopyOnWriteArrayList<>();
+    private long remindersSent;                                 // guarded by this
+
+    public DueDateMonitor(DataStore store, Clock clock) {
+        this(store, clock, DEFAULT_REMINDER_DAYS);
+    }
+
+    public DueDateMonitor(DataStore store, Clock clock, int reminderDays) {
+        this.store = store;
+        this.clock = clock;
+        this.reminderDays = reminderDays;
+        this.wheel = new TimerWheel(LocalDate.now(clock).toEpochDay());
+        store.addListener(this);
+        // Bills added before the monitor existed, e.g. recovered from disk; past due ones are overdue on the first tick
+        synchronized (this) {
+            for (Bill bill : store.getUnpaidBills()) {
+                register(bill);
+            }
+        }
+    }
+
+    public void addListener(DueDateListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(DueDateListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public synchronized void billAdded(Bill bill) {
+        if (bill.getState() == BillState.NOT_PAID) {
+            register(bill);
+        }
+    }
+
+    @Override
+    public synchronized void paymentScheduled(Bill bill, Payment payment) {
+        registerSchedule(bill);
+    }
+
+    // Fire the reminders and overdue timers due up to today, returns how many events were sent
+    public int tick() {
+        List<Bill> dueSoon = new ArrayList<>();
+        List<Bill> scheduledSoon = new ArrayList<>();
+        List<Bill> becameOverdue = new ArrayList<>();
+        synchronized (this) {
+            long today = LocalDate.now(clock).toEpochDay();
+            wheel.advanceTo(today, (billId, kind) -> {
+                Bill bill = store.findBill(billId);
+                if (bill == null || bill.getState() == BillState.PAID) {
+                    return; // paid since the timer was set
+                }
+                long due = bill.getDueDate().toEpochDay();
+                if (kind == OVERDUE) {
+                    if (overdue.add(billId)) {
+                        becameOverdue.add(bill);
+                    }
+                } else if (kind == DUE_SOON && due >= today) {
+                    dueSoon.add(bill);
+                } else if (kind == SCHEDULED_SOON && bill.getScheduledDate() != null
+                        && bill.getScheduledDate().toEpochDay() >= today) {
+                    scheduledSoon.add(bill);
+                }
+            });
+            remindersSent += dueSoon.size() + scheduledSoon.size();
+        }
+        for (DueDateListener listener : listeners) {
+            dueSoon.forEach(listener::billDueSoon);
+            scheduledSoon.forEach(listener::scheduledPaymentSoon);
+            becameOverdue.forEach(listener::billOverdue);
+        }
+        return dueSoon.size() + scheduledSoon.size() + becameOverdue.size();
+    }
+
+    // Unpaid bills past their due date, earliest due date first. Only the bills that
+    // became overdue are visited, paid ones are forgotten on the way
+    public List<Bill> getOverdueBills() {
+        tick();
+        List<Bill> result = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Integer> ids = overdue.iterator(); ids.hasNext(); ) {
+                Bill bill = store.findBill(ids.next());
+                if (bill == null || bill.getState() == BillState.PAID) {
+                    ids.remove();
+                } else {
+                    result.add(bill);
+                }
+            }
+        }
+        result.sort(Comparator.comparing(Bill::getDueDate).thenComparingInt(Bill::getId));
+        return result;
+    }
+
+    // Unpaid bills due from today to the given number of days ahead, earliest first
+    public List<Bill> getBillsDueWithin(int days) {
+        LocalDate today = LocalDate.now(clock);
+        return store.findUnpaidBillsDueBetween(today, today.plusDays(days));
+    }
+
+    // Timers waiting in the wheel
+    public synchronized int getQueuedCount() {
+        return wheel.size();
+    }
+
+    public synchronized long getRemindersSent() {
+        return remindersSent;
+    }
+
+    @Override
+    public void close() {
+        store.removeListener(this);
+    }
+
+    private void register(Bill bill) {
+        long due = bill.getDueDate().toEpochDay();
+        if (due >= wheel.now()) {
+            wheel.add(due - reminderDays, bill.getId(), DUE_SOON);
+        }
+        wheel.add(due + 1, bill.getId(), OVERDUE);
+        registerSchedule(bill);
+    }
+
+    private void registerSchedule(Bill bill) {
+        LocalDate scheduled = bill.getScheduledDate();
+        if (scheduled != null && scheduled.toEpochDay() >= wheel.now()) {
+            wheel.add(scheduled.toEpochDay() - reminderDays, bill.getId(), SCHEDULED_SOON);
+        }
+    }
+}
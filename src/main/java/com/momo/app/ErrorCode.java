@@ -0,0 +1,12 @@
+package com.momo.app;
+
+// Why a DataStore operation was rejected
+public enum ErrorCode {
+    NO_BILLS,          // PAY without any bill id
+    BILL_NOT_FOUND,
+    BILL_ALREADY_PAID,
+    ALREADY_SCHEDULED,
+    INVALID_DATE,      // not DD/MM/YYYY
+    AFTER_DUE_DATE,    // scheduled date later than the due date
+    INSUFFICIENT_FUNDS
+}
@@ -0,0 +1,130 @@
+package com.momo.app;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Remembers the result of a request by its idempotency key, so a retried request
+// gets the original result instead of running again. The arguments of the request are
+// kept with it: a key coming back with other arguments is a client bug, not a retry.
+//
+// Holds at most `capacity` keys for at most `ttl` each. Keys are kept in insertion
+// order, so both the oldest key (evicted when full) and expired keys are found at
+// the head of the map in O(1). A request that is still running when its key comes
+// in again is waited for, it is never run twice.
+class IdempotencyCache<V> {
+    private final int capacity;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(); // guarded by this
+    private long hits;        // guarded by this
+    private long misses;      // guarded by this
+    private long evictions;   // guarded by this, removed because the cache was full
+    private long expirations; // guarded by this, removed because they were older than the ttl
+
+    IdempotencyCache(int capacity, Duration ttl, Clock clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    // The result stored for the key, or the result of running the request when the key is new.
+    // A request that throws is not remembered, so it can be retried with the same key. Throws
+    // IllegalArgumentException when the key was stored with arguments not equal to these
+    V getOrRun(String key, Object arguments, Supplier<V> request) {
+        CompletableFuture<V> result;
+        boolean owner = false;
+        synchronized (this) {
+            long now = clock.millis();
+            expire(now);
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (!Objects.equals(entry.arguments, arguments)) {
+                    throw new IllegalArgumentException("Idempotency key " + key + " was already used for another request");
+                }
+                hits++;
+                result = entry.result;
+            } else {
+                misses++;
+                if (entries.size() == capacity) {
+                    Iterator<Entry<V>> oldest = entries.values().iterator();
+                    oldest.next();
+                    oldest.remove();
+                    evictions++;
+                }
+                result = new CompletableFuture<>();
+                entries.put(key, new Entry<>(result, arguments, now));
+                owner = true;
+            }
+        }
+        if (owner) {
+            try {
+                result.complete(request.get());
+            } catch (RuntimeException | Error e) {
+                synchronized (this) {
+                    entries.remove(key);
+                }
+                result.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    // Drop the keys at the head that are older than the ttl
+    private void expire(long now) {
+        Iterator<Map.Entry<String, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().getValue().createdAt < ttlMillis) {
+                return;
+            }
+            it.remove();
+            expirations++;
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getHitCount() {
+        return hits;
+    }
+
+    synchronized long getMissCount() {
+        return misses;
+    }
+
+    synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    synchronized long getExpirationCount() {
+        return expirations;
+    }
+
+    private static final class Entry<V> {
+        final CompletableFuture<V> result;
+        final Object arguments;
+        final long createdAt;
+
+        Entry(CompletableFuture<V> result, Object arguments, long createdAt) {
+            this.result = result;
+            this.arguments = arguments;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.momo.app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of a BillImporter run
+public class ImportReport {
+    static final int MAX_ERRORS_KEPT = 10;
+
+    private long rowsRead;
+    private long imported;
+    private long duplicates;
+    private long rejected;
+    private long elapsedNanos;
+    private final List<String> errors = new ArrayList<>(); // the first MAX_ERRORS_KEPT rejected rows
+
+    void addChunk(int rows, int imported, int duplicates, List<String> rejectedRows) {
+        this.rowsRead += rows;
+        this.imported += imported;
+        this.duplicates += duplicates;
+        this.rejected += rejectedRows.size();
+        for (String error : rejectedRows) {
+            if (errors.size() < MAX_ERRORS_KEPT) {
+                errors.add(error);
+            }
+        }
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    // Rows whose bill id already existed, in the store or earlier in the file
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    // Rows that could not be parsed
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    public long getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000L / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Imported " + imported + " of " + rowsRead + " row(s) in " + getElapsedMillis() + " ms ("
+                + getRowsPerSecond() + " rows/s), " + duplicates + " duplicate(s), " + rejected + " rejected.";
+    }
+}
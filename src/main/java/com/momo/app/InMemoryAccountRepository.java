@@ -0,0 +1,69 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+
+// Postings kept on the heap in chunks of CHUNK_SIZE parallel primitive arrays, so a
+// posting costs 17 bytes and appending one allocates nothing but a new chunk now and
+// then. Written under the Ledger's lock; a chunk never changes below the size it had
+// when an iterator was made, so iterators read it without the lock.
+public class InMemoryAccountRepository implements AccountRepository {
+    static final int CHUNK_SIZE = 1024;
+
+    private static final Posting.Kind[] KINDS = Posting.Kind.values();
+
+    private Chunk[] chunks = new Chunk[16]; // [0..chunkCount) in use
+    private int chunkCount;
+    private long size;
+
+    @Override
+    public void append(Posting.Kind kind, int day, int reference, long amount) {
+        int i = (int) (size % CHUNK_SIZE);
+        if (i == 0) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            chunks[chunkCount++] = new Chunk();
+        }
+        Chunk chunk = chunks[chunkCount - 1];
+        chunk.kinds[i] = (byte) kind.ordinal();
+        chunk.days[i] = day;
+        chunk.references[i] = reference;
+        chunk.amounts[i] = amount;
+        size++;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Posting> iterate(long afterSequence, long endSequence) {
+        Chunk[] snapshot = chunks;
+        long end = Math.min(endSequence, size);
+        return new LazyIterator<Posting>() {
+            private long next = Math.max(0, afterSequence);
+
+            @Override
+            protected Posting computeNext() {
+                if (next >= end) {
+                    return null;
+                }
+                Chunk chunk = snapshot[(int) (next / CHUNK_SIZE)];
+                int i = (int) (next % CHUNK_SIZE);
+                next++;
+                return new Posting(next, LocalDate.ofEpochDay(chunk.days[i]), KINDS[chunk.kinds[i]],
+                        chunk.references[i], chunk.amounts[i]);
+            }
+        };
+    }
+
+    private static final class Chunk {
+        final byte[] kinds = new byte[CHUNK_SIZE];
+        final int[] days = new int[CHUNK_SIZE];
+        final int[] references = new int[CHUNK_SIZE];
+        final long[] amounts = new long[CHUNK_SIZE];
+    }
+}
@@ -0,0 +1,137 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+// Bills kept on the heap, with hash lookup by id and the BillIndex secondary indexes.
+// Bills are appended to the bill list as they come. They usually arrive with increasing
+// ids; after an out of order id the list is sorted again by the next read that needs id
+// order, so a run of out of order inserts costs one sort instead of a shift each.
+public class InMemoryBillRepository implements BillRepository {
+    private static final int SCAN_CHUNK = 1024; // bills scanned per lock hold by iterate()
+    private static final Comparator<Bill> BY_ID = Comparator.comparingInt(Bill::getId);
+
+    private final ArrayList<Bill> bills = new ArrayList<>();              // guarded by itself
+    private boolean sorted = true;                                        // guarded by bills, bills is in id order
+    private final BillTable billIndex = new BillTable();                  // bill id -> bill
+    private final BillIndex searchIndex = new BillIndex();                // provider, state and date indexes
+
+    @Override
+    public void add(Bill bill) {
+        if (!billIndex.putIfAbsent(bill)) {
+            throw new IllegalArgumentException("Bill with id " + bill.getId() + " already exists.");
+        }
+        synchronized (bills) {
+            int size = bills.size();
+            if (size > 0 && bills.get(size - 1).getId() > bill.getId()) {
+                sorted = false;
+            }
+            bills.add(bill);
+        }
+        searchIndex.add(bill);
+    }
+
+    @Override
+    public void ensureCapacity(int count) {
+        billIndex.ensureCapacity(count);
+        synchronized (bills) {
+            bills.ensureCapacity(bills.size() + count);
+        }
+    }
+
+    @Override
+    public Bill find(int id) {
+        return billIndex.get(id);
+    }
+
+    // All bills in id order
+    @Override
+    public List<Bill> findAll() {
+        synchronized (bills) {
+            sortIfNeeded();
+            return new ArrayList<>(bills);
+        }
+    }
+
+    @Override
+    public List<Bill> findByProvider(Provider provider) {
+        return searchIndex.findByProvider(provider);
+    }
+
+    @Override
+    public List<Bill> findByState(BillState state) {
+        return searchIndex.findByState(state);
+    }
+
+    @Override
+    public List<Bill> findUnpaidDueBetween(LocalDate from, LocalDate to) {
+        return searchIndex.findUnpaidDueBetween(from, to);
+    }
+
+    // Scans SCAN_CHUNK bills per lock hold and picks up where it left off by id,
+    // so bills added meanwhile are seen if their id is still ahead
+    @Override
+    public Iterator<Bill> iterate(BillQuery query, int afterId) {
+        return new LazyIterator<Bill>() {
+            private final List<Bill> matches = new ArrayList<>();
+            private int next;
+            private int lastId = afterId;
+            private boolean scannedAll;
+
+            @Override
+            protected Bill computeNext() {
+                while (next == matches.size()) {
+                    if (scannedAll) {
+                        return null;
+                    }
+                    scanChunk();
+                }
+                return matches.get(next++);
+            }
+
+            private void scanChunk() {
+                matches.clear();
+                next = 0;
+                synchronized (bills) {
+                    sortIfNeeded();
+                    int i = firstAfter(lastId);
+                    int end = Math.min(bills.size(), i + SCAN_CHUNK);
+                    for (; i < end; i++) {
+                        Bill bill = bills.get(i);
+                        if (query.matches(bill)) {
+                            matches.add(bill);
+                        }
+                        lastId = bill.getId();
+                    }
+                    scannedAll = end == bills.size();
+                }
+            }
+        };
+    }
+
+    // Put the bills back in id order after out of order inserts, the caller holds the bills lock
+    private void sortIfNeeded() {
+        if (!sorted) {
+            bills.sort(BY_ID); // merges the sorted runs, close to linear when few ids were out of order
+            sorted = true;
+        }
+    }
+
+    // Index of the first bill with an id greater than id, the caller holds the bills lock
+    private int firstAfter(int id) {
+        int low = 0;
+        int high = bills.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bills.get(mid).getId() <= id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,58 @@
+package com.momo.app;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+// Payments kept on the heap in an id-ordered list; payments are the objects the store
+// changes, so update() has nothing to do. Not thread-safe, the store locks it.
+public class InMemoryPaymentRepository implements PaymentRepository {
+    private final ArrayList<Payment> payments = new ArrayList<>();
+    private int lastId;
+
+    @Override
+    public void add(Payment payment) {
+        payments.add(payment);
+        lastId = Math.max(lastId, payment.getId());
+    }
+
+    @Override
+    public void update(Payment payment) {
+    }
+
+    @Override
+    public List<Payment> findAfter(int afterId, int max) {
+        int from = firstAfter(afterId);
+        return new ArrayList<>(payments.subList(from, Math.min(payments.size(), from + max)));
+    }
+
+    @Override
+    public List<Payment> findAll() {
+        return new ArrayList<>(payments);
+    }
+
+    @Override
+    public void removeAll(List<Payment> removed) {
+        payments.removeAll(new HashSet<>(removed)); // payments compare by identity
+    }
+
+    @Override
+    public int lastId() {
+        return lastId;
+    }
+
+    // Index of the first payment with an id greater than id
+    private int firstAfter(int id) {
+        int low = 0;
+        int high = payments.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (payments.get(mid).getId() <= id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
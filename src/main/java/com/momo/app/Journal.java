@@ -0,0 +1,325 @@
+package com.momo.app;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+// Append-only binary write-ahead log of every DataStore mutation.
+//
+// Record layout: int bodyLength, int crc32(body), body = long lsn, byte type, payload.
+// Records are appended to an in-memory buffer; awaitDurable() writes and fsyncs it
+// (group commit): one caller does the fsync for every record buffered so far, while
+// the others keep appending to a second buffer for the next round. A failed write or
+// fsync leaves the file in an unknown state, so the journal then refuses every append
+// and wait; reopening replays the records that did reach the disk.
+class Journal implements Closeable {
+    static final byte PAY = 3;
+    static final byte SCHEDULE = 4;
+    static final byte BILL = 5;
+    static final byte ARCHIVE = 7; // payments moved to the PaymentArchive, see DataStore.archivePayments
+    static final byte CASH_IN = 8;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int BODY_PREFIX_SIZE = 9; // lsn + type
+
+    private final FileChannel channel;
+    private final ReadWriteLock gate = new ReentrantReadWriteLock();
+    private final Object syncLock = new Object();
+    private final CRC32 crc = new CRC32();            // guarded by this
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);   // guarded by this
+    private ByteBuffer flushing = ByteBuffer.allocate(1 << 16); // guarded by syncLock
+    private long lastLsn;                             // guarded by this
+    private long recordsSinceCheckpoint;              // guarded by this
+    private volatile long durableLsn;
+    private volatile IOException failure;             // the first write or fsync that failed
+    private int recordStart;                          // guarded by this
+
+    // Open the log for appending after the last valid record found by replay
+    Journal(Path file, ReplayResult replayed) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE), replayed);
+    }
+
+    Journal(FileChannel channel, ReplayResult replayed) throws IOException {
+        this.channel = channel;
+        channel.truncate(replayed.validLength); // drop a torn tail left by a crash
+        channel.position(replayed.validLength);
+        this.lastLsn = replayed.lastLsn;
+        this.durableLsn = replayed.lastLsn;
+        this.recordsSinceCheckpoint = replayed.replayedRecords;
+    }
+
+    // Mutations hold the read side, checkpoints the write side
+    ReadWriteLock gate() {
+        return gate;
+    }
+
+    synchronized long logBill(Bill bill) {
+        byte[] type = bill.getType().name().getBytes(StandardCharsets.UTF_8);
+        byte[] provider = bill.getProvider().getName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer b = begin(BILL, 4 + 8 + 8 + 2 + type.length + 2 + provider.length);
+        b.putInt(bill.getId());
+        b.putLong(bill.getAmount());
+        b.putLong(bill.getDueDate().toEpochDay());
+        putString(b, type);
+        putString(b, provider);
+        return end();
+    }
+
+    synchronized long logCashIn(long amount, LocalDate date) {
+        ByteBuffer b = begin(CASH_IN, 8 + 8);
+        b.putLong(amount);
+        b.putLong(date.toEpochDay());
+        return end();
+    }
+
+    synchronized long logPayment(LocalDate paymentDate, int[] billIds) {
+        return logPayment(paymentDate, billIds, billIds.length);
+    }
+
+    // Log the payment of billIds[0..count)
+    synchronized long logPayment(LocalDate paymentDate, int[] billIds, int count) {
+        ByteBuffer b = begin(PAY, 8 + 4 + 4 * count);
+        b.putLong(paymentDate.toEpochDay());
+        b.putInt(count);
+        for (int i = 0; i < count; i++) {
+            b.putInt(billIds[i]);
+        }
+        return end();
+    }
+
+    synchronized long logSchedule(int billId, LocalDate scheduledDate, LocalDate createdOn) {
+        ByteBuffer b = begin(SCHEDULE, 4 + 8 + 8);
+        b.putInt(billId);
+        b.putLong(scheduledDate.toEpochDay());
+        b.putLong(createdOn.toEpochDay());
+        return end();
+    }
+
+    // Only takes an lsn for the archived blocks, replay skips it: payments archived after
+    // the last snapshot are dropped from the archive on open and replayed as live ones
+    synchronized long logArchive(int paymentCount) {
+        ByteBuffer b = begin(ARCHIVE, 4);
+        b.putInt(paymentCount);
+        return end();
+    }
+
+    synchronized long lastLsn() {
+        return lastLsn;
+    }
+
+    synchronized long recordsSinceCheckpoint() {
+        return recordsSinceCheckpoint;
+    }
+
+    // Block until the record with this lsn, and every record before it, is on disk
+    void awaitDurable(long lsn) {
+        if (durableLsn >= lsn) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durableLsn >= lsn) {
+                return; // someone else's fsync covered it
+            }
+            checkNotFailed();
+            long upTo;
+            synchronized (this) {
+                ByteBuffer full = buffer;
+                buffer = flushing;
+                flushing = full;
+                upTo = lastLsn;
+            }
+            try {
+                flushing.flip();
+                while (flushing.hasRemaining()) {
+                    channel.write(flushing);
+                }
+                flushing.clear();
+                channel.force(false);
+            } catch (IOException e) {
+                failure = e; // the flushing buffer is partly written, it must not be written again
+                throw new UncheckedIOException("Failed to write the journal", e);
+            }
+            durableLsn = upTo;
+        }
+    }
+
+    // Make everything logged so far durable
+    void flush() {
+        awaitDurable(lastLsn());
+    }
+
+    // Drop all records once a snapshot covers them, the caller holds the write side of the gate
+    void truncate() throws IOException {
+        flush();
+        synchronized (syncLock) {
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+        }
+        synchronized (this) {
+            recordsSinceCheckpoint = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (failure == null) {
+                flush();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void checkNotFailed() {
+        IOException e = failure;
+        if (e != null) {
+            throw new UncheckedIOException("The journal failed earlier, reopen the store to recover", e);
+        }
+    }
+
+    private ByteBuffer begin(byte type, int payloadSize) {
+        checkNotFailed();
+        int needed = HEADER_SIZE + BODY_PREFIX_SIZE + payloadSize;
+        if (buffer.remaining() < needed) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+        recordStart = buffer.position();
+        buffer.putInt(0); // length, patched in end()
+        buffer.putInt(0); // crc, patched in end()
+        buffer.putLong(++lastLsn);
+        buffer.put(type);
+        return buffer;
+    }
+
+    private long end() {
+        int bodyStart = recordStart + HEADER_SIZE;
+        int bodyLength = buffer.position() - bodyStart;
+        crc.reset();
+        crc.update(buffer.array(), bodyStart, bodyLength);
+        buffer.putInt(recordStart, bodyLength);
+        buffer.putInt(recordStart + 4, (int) crc.getValue());
+        recordsSinceCheckpoint++;
+        return lastLsn;
+    }
+
+    private static void putString(ByteBuffer b, byte[] bytes) {
+        b.putShort((short) bytes.length);
+        b.put(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static class ReplayResult {
+        final long validLength;
+        final long lastLsn;
+        final long replayedRecords;
+
+        ReplayResult(long validLength, long lastLsn, long replayedRecords) {
+            this.validLength = validLength;
+            this.lastLsn = lastLsn;
+            this.replayedRecords = replayedRecords;
+        }
+    }
+
+    // Apply every record after afterLsn to the store, stopping at the first torn or corrupt record
+    static ReplayResult replay(Path file, long afterLsn, DataStore store) throws IOException {
+        if (!Files.exists(file)) {
+            return new ReplayResult(0, afterLsn, 0);
+        }
+        long validLength = 0;
+        long lastLsn = afterLsn;
+        long replayed = 0;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            byte[] body = new byte[256];
+            while (true) {
+                int length;
+                int expectedCrc;
+                try {
+                    length = in.readInt();
+                    expectedCrc = in.readInt();
+                    if (length < BODY_PREFIX_SIZE) {
+                        break;
+                    }
+                    if (body.length < length) {
+                        body = new byte[Math.max(length, body.length * 2)];
+                    }
+                    in.readFully(body, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(body, 0, length));
+                long lsn = record.readLong();
+                if (lsn > afterLsn) {
+                    apply(record.readByte(), record, store);
+                    replayed++;
+                }
+                lastLsn = Math.max(lastLsn, lsn);
+                validLength += HEADER_SIZE + length;
+            }
+        }
+        return new ReplayResult(validLength, lastLsn, replayed);
+    }
+
+    private static void apply(byte type, DataInputStream in, DataStore store) throws IOException {
+        switch (type) {
+            case BILL: {
+                int id = in.readInt();
+                long amount = in.readLong();
+                LocalDate dueDate = LocalDate.ofEpochDay(in.readLong());
+                BillType billType = BillType.valueOf(readString(in));
+                Provider provider = Provider.of(readString(in));
+                store.applyBill(new Bill(id, billType, amount, dueDate, provider));
+                break;
+            }
+            case CASH_IN: {
+                long amount = in.readLong();
+                store.applyCashIn(amount, LocalDate.ofEpochDay(in.readLong()));
+                break;
+            }
+            case PAY: {
+                LocalDate paymentDate = LocalDate.ofEpochDay(in.readLong());
+                int[] billIds = new int[in.readInt()];
+                for (int i = 0; i < billIds.length; i++) {
+                    billIds[i] = in.readInt();
+                }
+                store.applyPayment(paymentDate, billIds);
+                break;
+            }
+            case SCHEDULE: {
+                int billId = in.readInt();
+                LocalDate scheduledDate = LocalDate.ofEpochDay(in.readLong());
+                LocalDate createdOn = LocalDate.ofEpochDay(in.readLong());
+                store.applySchedule(billId, scheduledDate, createdOn);
+                break;
+            }
+            case ARCHIVE:
+                in.readInt();
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.momo.app;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// An Iterator that computes each element only when it is asked for.
+// computeNext() returns null once there is nothing left
+abstract class LazyIterator<T> implements Iterator<T> {
+    private T next;
+    private boolean done;
+
+    protected abstract T computeNext();
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = computeNext();
+            done = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T result = next;
+        next = null;
+        return result;
+    }
+}
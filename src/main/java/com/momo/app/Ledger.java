@@ -0,0 +1,147 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+
+// Append-only double-entry ledger of a DataStore: every cash in and every bill payment
+// is an immutable Posting, and the wallet balance is the running total of them.
+//
+// The postings themselves are kept by an AccountRepository; the ledger keeps the
+// account balances and, every CHUNK_SIZE postings, a checkpoint of the wallet balance
+// before the chunk and the day of its first posting. The balance at a date is a binary
+// search for the chunk plus a read of at most CHUNK_SIZE postings, never a replay of
+// the whole history.
+//
+// Posting dates never go backwards (a date before the last one is posted on the last
+// one), which is what keeps the search by date valid.
+class Ledger {
+    static final int CHUNK_SIZE = 1024;
+
+    private final AccountRepository postings;       // guarded by this
+    private long[] checkpoints = new long[16];      // guarded by this, wallet balance before chunk i
+    private int[] firstDays = new int[16];          // guarded by this, epoch day of the first posting of chunk i
+    private int chunkCount;                         // guarded by this
+    private long size;                              // guarded by this, number of postings
+    private int lastDay = Integer.MIN_VALUE;        // guarded by this, epoch day of the last posting
+    private final long[] accounts = new long[Posting.Account.values().length]; // guarded by this
+    private volatile long balance;                  // the WALLET account, written under this
+
+    Ledger() {
+        this(new InMemoryAccountRepository());
+    }
+
+    // A ledger over the postings of the repository, which may already hold some
+    Ledger(AccountRepository postings) {
+        this.postings = postings;
+        for (Iterator<Posting> existing = postings.iterate(0, postings.size()); existing.hasNext(); ) {
+            Posting posting = existing.next();
+            record(posting.getKind(), (int) posting.getDate().toEpochDay(), posting.getAmount());
+        }
+    }
+
+    // Post a cash in, returns the new balance. A cash in of 0 moves nothing and is not posted.
+    // Throws IllegalArgumentException for a negative amount and ArithmeticException when
+    // the balance would go above Money.MAX, posting nothing
+    synchronized long cashIn(long amount, LocalDate date) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Cannot cash in a negative amount: " + amount);
+        }
+        Money.addToBalance(balance, amount);
+        if (amount != 0) {
+            append(Posting.Kind.CASH_IN, 0, amount, date);
+        }
+        return balance;
+    }
+
+    // Post the payment of bills[0..count) if the balance covers their total, returns the
+    // new balance, or -1 and posts nothing when funds are not enough. An overflowed
+    // total (Money.OVERFLOW) is above any balance, so it is never taken
+    synchronized long pay(Bill[] bills, int count, long total, LocalDate date) {
+        if (balance < total) {
+            return -1;
+        }
+        for (int i = 0; i < count; i++) {
+            append(Posting.Kind.BILL_PAYMENT, bills[i].getId(), bills[i].getAmount(), date);
+        }
+        return balance;
+    }
+
+    // Post without any check, used by journal replay and snapshot loading
+    synchronized void apply(Posting.Kind kind, int reference, long amount, LocalDate date) {
+        append(kind, reference, amount, date);
+    }
+
+    long getBalance() {
+        return balance;
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    // Wallet balance at the end of the given day
+    synchronized long balanceAt(LocalDate date) {
+        long day = date.toEpochDay();
+        // Last chunk starting on or before the day
+        int low = 0;
+        int high = chunkCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (firstDays[mid] <= day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == 0) {
+            return 0; // nothing posted yet by then
+        }
+        long start = (long) (low - 1) * CHUNK_SIZE;
+        long result = checkpoints[low - 1];
+        for (Iterator<Posting> chunk = postings.iterate(start, start + CHUNK_SIZE); chunk.hasNext(); ) {
+            Posting posting = chunk.next();
+            if (posting.getDate().toEpochDay() > day) {
+                break;
+            }
+            result += walletChange(posting.getKind(), posting.getAmount());
+        }
+        return result;
+    }
+
+    // Postings after the given sequence, in order. Postings appended after the call are not included
+    synchronized Iterator<Posting> postings(long afterSequence) {
+        return postings.iterate(afterSequence, size);
+    }
+
+    private void append(Posting.Kind kind, int reference, long amount, LocalDate date) {
+        int day = Math.max(lastDay, Math.toIntExact(date.toEpochDay()));
+        postings.append(kind, day, reference, amount);
+        record(kind, day, amount);
+    }
+
+    // Count a posting into the balances and checkpoints
+    private void record(Posting.Kind kind, int day, long amount) {
+        if (size % CHUNK_SIZE == 0) {
+            if (chunkCount == checkpoints.length) {
+                checkpoints = Arrays.copyOf(checkpoints, chunkCount * 2);
+                firstDays = Arrays.copyOf(firstDays, chunkCount * 2);
+            }
+            checkpoints[chunkCount] = balance;
+            firstDays[chunkCount] = day;
+            chunkCount++;
+        }
+        lastDay = day;
+        size++;
+        accounts[kind.getDebit().ordinal()] += amount;
+        accounts[kind.getCredit().ordinal()] -= amount;
+        balance = accounts[Posting.Account.WALLET.ordinal()];
+    }
+
+    private static long walletChange(Posting.Kind kind, long amount) {
+        if (kind.getDebit() == Posting.Account.WALLET) {
+            return amount;
+        }
+        return kind.getCredit() == Posting.Account.WALLET ? -amount : 0;
+    }
+}
@@ -0,0 +1,485 @@
+package com.momo.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+// Bills kept off-heap in memory-mapped, fixed-width column files, one file per field:
+// id (int), amount (long), due date and scheduled date (int epoch days),
+// state (byte, the BillState ordinal) and type / provider (int dictionary codes).
+// Opening an existing directory only maps the files, nothing is loaded on the heap.
+//
+// Rows are appended in the order bills are added. While the ids come in increasing
+// order, find() is a binary search over the id column and nothing is kept on the heap.
+// Once a bill arrives out of id order, a RowIndex of the rows sorted by id is kept on
+// the heap (8 bytes a row) and rebuilt by a sort when the repository is reopened.
+// Bills returned by the repository write markPaid() and setScheduledDate() back to
+// their columns.
+public class MappedBillRepository implements BillRepository, BillListener, Closeable {
+    private static final int MAGIC = 0x4250434C; // "BPCL"
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int SCAN_CHUNK = 1024; // rows taken in id order per lock hold by iterate()
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final BillState[] STATES = BillState.values();
+
+    private final FileChannel metaChannel;
+    private final MappedByteBuffer meta; // magic, row count, 1 when the rows are not in id order
+    private final Column ids;
+    private final Column amounts;
+    private final Column dueDates;
+    private final Column scheduledDates;
+    private final Column states;
+    private final Column types;
+    private final Column providers;
+    private final Column[] columns;
+    private final StringDictionary typeDictionary;
+    private final StringDictionary providerDictionary;
+    private volatile int rowCount;
+    private volatile RowIndex index; // null while the rows are in id order, guarded by this once set
+    private int maxId;               // guarded by this, the greatest id added
+    private int capacity;            // guarded by this
+
+    // Open the bill columns in the directory, creating them if they do not exist
+    public MappedBillRepository(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.metaChannel = FileChannel.open(directory.resolve("bills.meta"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.meta = metaChannel.map(FileChannel.MapMode.READ_WRITE, 0, 12);
+        if (meta.getInt(0) == 0) {
+            meta.putInt(0, MAGIC);
+        } else if (meta.getInt(0) != MAGIC) {
+            throw new IOException("Not a bill column directory: " + directory);
+        }
+        this.rowCount = meta.getInt(4);
+
+        this.ids = new Column(directory.resolve("id.col"), 4);
+        this.amounts = new Column(directory.resolve("amount.col"), 8);
+        this.dueDates = new Column(directory.resolve("due_date.col"), 4);
+        this.scheduledDates = new Column(directory.resolve("scheduled_date.col"), 4);
+        this.states = new Column(directory.resolve("state.col"), 1);
+        this.types = new Column(directory.resolve("type.col"), 4);
+        this.providers = new Column(directory.resolve("provider.col"), 4);
+        this.columns = new Column[] {ids, amounts, dueDates, scheduledDates, states, types, providers};
+        this.typeDictionary = new StringDictionary(directory.resolve("type.dict"));
+        this.providerDictionary = new StringDictionary(directory.resolve("provider.dict"));
+
+        this.capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, rowCount)) << 1);
+        mapColumns();
+        if (meta.getInt(8) != 0) {
+            long[] entries = new long[Math.max(rowCount, 16)];
+            for (int row = 0; row < rowCount; row++) {
+                entries[row] = RowIndex.entry(ids.buffer.getInt(row * 4), row);
+            }
+            Arrays.sort(entries, 0, rowCount);
+            this.index = new RowIndex(entries, rowCount);
+            this.maxId = rowCount == 0 ? 0 : (int) (entries[rowCount - 1] >> 32);
+        } else {
+            this.maxId = rowCount == 0 ? 0 : ids.buffer.getInt((rowCount - 1) * 4);
+        }
+    }
+
+    @Override
+    public synchronized void add(Bill bill) {
+        int row = rowCount;
+        int id = bill.getId();
+        boolean inOrder = row == 0 || id > maxId;
+        if (!inOrder && findRow(id) >= 0) {
+            throw new IllegalArgumentException("Bill with id " + id + " already exists.");
+        }
+        if (row == capacity) {
+            capacity *= 2;
+            try {
+                mapColumns();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to grow the bill columns", e);
+            }
+        }
+        ids.buffer.putInt(row * 4, bill.getId());
+        amounts.buffer.putLong(row * 8, bill.getAmount());
+        dueDates.buffer.putInt(row * 4, (int) bill.getDueDate().toEpochDay());
+        scheduledDates.buffer.putInt(row * 4, encodeDate(bill.getScheduledDate()));
+        states.buffer.put(row, encodeState(bill.getState()));
+        types.buffer.putInt(row * 4, typeDictionary.encode(bill.getType().name()));
+        providers.buffer.putInt(row * 4, providerDictionary.encode(bill.getProvider().getName()));
+        if (inOrder) {
+            if (index != null) {
+                index.append(id, row);
+            }
+            maxId = id;
+        } else {
+            if (index == null) { // the rows so far are in id order, they make the sorted run
+                long[] entries = new long[Math.max(row, 16)];
+                for (int i = 0; i < row; i++) {
+                    entries[i] = RowIndex.entry(ids.buffer.getInt(i * 4), i);
+                }
+                index = new RowIndex(entries, row);
+                meta.putInt(8, 1);
+            }
+            index.insert(id, row);
+        }
+        rowCount = row + 1; // publish the row only once all columns and the index are written
+        meta.putInt(4, rowCount);
+        bill.setListener(this);
+    }
+
+    @Override
+    public Bill find(int id) {
+        int row = findRow(id);
+        return row < 0 ? null : read(row);
+    }
+
+    // All bills in id order
+    @Override
+    public List<Bill> findAll() {
+        return collect(BillQuery.ALL);
+    }
+
+    // Scans the provider column, comparing int codes instead of strings
+    @Override
+    public List<Bill> findByProvider(Provider provider) {
+        return collect(BillQuery.ALL.withProvider(provider.getName()));
+    }
+
+    @Override
+    public List<Bill> findByState(BillState state) {
+        return collect(BillQuery.ALL.withState(state));
+    }
+
+    @Override
+    public List<Bill> findUnpaidDueBetween(LocalDate from, LocalDate to) {
+        List<Bill> result = collect(BillQuery.ALL.withState(BillState.NOT_PAID).withDueBetween(from, to));
+        result.sort(Comparator.comparing(Bill::getDueDate)); // stable, ties stay in id order
+        return result;
+    }
+
+    // The filters are tested on the columns, only matching rows are read into a Bill
+    @Override
+    public Iterator<Bill> iterate(BillQuery query, int afterId) {
+        int providerCode = query.getProvider() == null ? -1 : providerDictionary.lookup(query.getProvider());
+        if (query.getProvider() != null && providerCode < 0) {
+            return Collections.emptyIterator(); // no bill has this provider
+        }
+        int stateCode = query.getState() == null ? -1 : encodeState(query.getState());
+        int fromDay = query.getDueFrom() == null ? Integer.MIN_VALUE : (int) query.getDueFrom().toEpochDay();
+        int toDay = query.getDueTo() == null ? Integer.MAX_VALUE : (int) query.getDueTo().toEpochDay();
+        return new LazyIterator<Bill>() {
+            private final int[] chunk = new int[SCAN_CHUNK];
+            private int chunkSize;
+            private int next;
+            private int lastId = afterId;
+            private boolean scannedAll;
+
+            @Override
+            protected Bill computeNext() {
+                while (true) {
+                    while (next < chunkSize) {
+                        int row = chunk[next++];
+                        int dueDay = dueDates.buffer.getInt(row * 4);
+                        if ((stateCode < 0 || states.buffer.get(row) == stateCode)
+                                && (providerCode < 0 || providers.buffer.getInt(row * 4) == providerCode)
+                                && dueDay >= fromDay && dueDay <= toDay) {
+                            return read(row);
+                        }
+                    }
+                    if (scannedAll) {
+                        return null;
+                    }
+                    chunkSize = rowsAfter(lastId, chunk);
+                    next = 0;
+                    scannedAll = chunkSize < SCAN_CHUNK;
+                    if (chunkSize > 0) {
+                        lastId = ids.buffer.getInt(chunk[chunkSize - 1] * 4);
+                    }
+                }
+            }
+        };
+    }
+
+    // Scans the state column and reads the other fields of the unpaid rows, decoding each
+    // type and provider code once
+    @Override
+    public void forEachUnpaid(UnpaidBillVisitor visitor) {
+        byte unpaid = encodeState(BillState.NOT_PAID);
+        BillType[] typeOfCode = new BillType[0];
+        Provider[] providerOfCode = new Provider[0];
+        int rows = rowCount;
+        for (int row = 0; row < rows; row++) {
+            if (states.buffer.get(row) != unpaid) {
+                continue;
+            }
+            int typeCode = types.buffer.getInt(row * 4);
+            if (typeCode >= typeOfCode.length) {
+                typeOfCode = Arrays.copyOf(typeOfCode, typeCode + 1);
+            }
+            if (typeOfCode[typeCode] == null) {
+                typeOfCode[typeCode] = BillType.valueOf(typeDictionary.decode(typeCode));
+            }
+            int providerCode = providers.buffer.getInt(row * 4);
+            if (providerCode >= providerOfCode.length) {
+                providerOfCode = Arrays.copyOf(providerOfCode, Math.max(providerCode + 1, providerOfCode.length * 2));
+            }
+            if (providerOfCode[providerCode] == null) {
+                providerOfCode[providerCode] = Provider.of(providerDictionary.decode(providerCode));
+            }
+            visitor.visit(typeOfCode[typeCode], providerOfCode[providerCode], amounts.buffer.getLong(row * 8),
+                    LocalDate.ofEpochDay(dueDates.buffer.getInt(row * 4)), scheduledDates.buffer.getInt(row * 4) != NO_DATE);
+        }
+    }
+
+    public int size() {
+        return rowCount;
+    }
+
+    @Override
+    public void stateChanged(Bill bill, BillState oldState) {
+        int row = findRow(bill.getId());
+        states.buffer.put(row, encodeState(bill.getState()));
+    }
+
+    @Override
+    public void scheduledDateChanged(Bill bill, LocalDate oldScheduledDate) {
+        int row = findRow(bill.getId());
+        scheduledDates.buffer.putInt(row * 4, encodeDate(bill.getScheduledDate()));
+    }
+
+    // Flush the columns to disk
+    @Override
+    public synchronized void close() throws IOException {
+        for (Column column : columns) {
+            column.buffer.force();
+            column.channel.close();
+        }
+        meta.force();
+        metaChannel.close();
+        typeDictionary.close();
+        providerDictionary.close();
+    }
+
+    private Bill read(int row) {
+        Bill bill = new Bill(
+                ids.buffer.getInt(row * 4),
+                BillType.valueOf(typeDictionary.decode(types.buffer.getInt(row * 4))),
+                amounts.buffer.getLong(row * 8),
+                LocalDate.ofEpochDay(dueDates.buffer.getInt(row * 4)),
+                Provider.of(providerDictionary.decode(providers.buffer.getInt(row * 4))));
+        if (STATES[states.buffer.get(row)] == BillState.PAID) {
+            bill.markPaid();
+        }
+        int scheduledDay = scheduledDates.buffer.getInt(row * 4);
+        if (scheduledDay != NO_DATE) {
+            bill.setScheduledDate(LocalDate.ofEpochDay(scheduledDay));
+        }
+        bill.setListener(this); // set last, restoring the fields above must not write back
+        return bill;
+    }
+
+    private List<Bill> collect(BillQuery query) {
+        List<Bill> result = new ArrayList<>();
+        iterate(query, Integer.MIN_VALUE).forEachRemaining(result::add);
+        return result;
+    }
+
+    // The row of the bill with this id, or -1
+    private int findRow(int id) {
+        int rows = rowCount; // read before index: a row count that includes an out of order row comes with its index
+        RowIndex index = this.index;
+        if (index != null) {
+            synchronized (this) {
+                return index.find(id);
+            }
+        }
+        ByteBuffer column = ids.buffer;
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = column.getInt(mid * 4);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // Fill rows with up to rows.length rows with an id greater than afterId, in id order.
+    // Returns how many were found
+    private int rowsAfter(int afterId, int[] rows) {
+        int rowsNow = rowCount;
+        RowIndex index = this.index;
+        if (index != null) {
+            synchronized (this) {
+                return index.rowsAfter(afterId, rows);
+            }
+        }
+        ByteBuffer column = ids.buffer;
+        int low = 0;
+        int high = rowsNow;
+        while (low < high) { // the first row with an id greater than afterId
+            int mid = (low + high) >>> 1;
+            if (column.getInt(mid * 4) <= afterId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int count = Math.min(rows.length, rowsNow - low);
+        for (int i = 0; i < count; i++) {
+            rows[i] = low + i;
+        }
+        return count;
+    }
+
+    private void mapColumns() throws IOException {
+        for (Column column : columns) {
+            column.map(capacity);
+        }
+    }
+
+    private static byte encodeState(BillState state) {
+        return (byte) state.ordinal();
+    }
+
+    private static int encodeDate(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+
+    // The rows sorted by id once they stopped being in id order: a sorted run that rows
+    // with a new greatest id are appended to, and a sorted tail of at most TAIL_CAPACITY
+    // rows added out of order, merged into the run when it is full. An out of order add
+    // then costs a shift of the tail, not of every row. Entries are id << 32 | row, so
+    // they sort by id. Guarded by the repository
+    private static final class RowIndex {
+        private static final int TAIL_CAPACITY = 4096;
+
+        private long[] run;
+        private int runCount;
+        private final long[] tail = new long[TAIL_CAPACITY];
+        private int tailCount;
+
+        RowIndex(long[] sortedEntries, int count) {
+            this.run = sortedEntries;
+            this.runCount = count;
+        }
+
+        static long entry(int id, int row) {
+            return (long) id << 32 | row;
+        }
+
+        // A row whose id is greater than every indexed id
+        void append(int id, int row) {
+            if (runCount == run.length) {
+                run = Arrays.copyOf(run, Math.max(16, run.length * 2));
+            }
+            run[runCount++] = entry(id, row);
+        }
+
+        void insert(int id, int row) {
+            if (tailCount == TAIL_CAPACITY) {
+                mergeTail();
+            }
+            int at = firstAtLeast(tail, tailCount, id);
+            System.arraycopy(tail, at, tail, at + 1, tailCount - at);
+            tail[at] = entry(id, row);
+            tailCount++;
+        }
+
+        int find(int id) {
+            int at = firstAtLeast(run, runCount, id);
+            if (at < runCount && (int) (run[at] >> 32) == id) {
+                return (int) run[at];
+            }
+            at = firstAtLeast(tail, tailCount, id);
+            return at < tailCount && (int) (tail[at] >> 32) == id ? (int) tail[at] : -1;
+        }
+
+        // Up to rows.length rows with an id greater than afterId, in id order
+        int rowsAfter(int afterId, int[] rows) {
+            int i = firstAbove(run, runCount, afterId);
+            int j = firstAbove(tail, tailCount, afterId);
+            int count = 0;
+            while (count < rows.length && (i < runCount || j < tailCount)) {
+                if (j == tailCount || (i < runCount && run[i] < tail[j])) {
+                    rows[count++] = (int) run[i++];
+                } else {
+                    rows[count++] = (int) tail[j++];
+                }
+            }
+            return count;
+        }
+
+        private void mergeTail() {
+            long[] merged = new long[runCount + tailCount + TAIL_CAPACITY];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < runCount + tailCount; k++) {
+                merged[k] = j == tailCount || (i < runCount && run[i] < tail[j]) ? run[i++] : tail[j++];
+            }
+            run = merged;
+            runCount += tailCount;
+            tailCount = 0;
+        }
+
+        // The first entry with an id >= id
+        private static int firstAtLeast(long[] entries, int count, int id) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if ((int) (entries[mid] >> 32) < id) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // The first entry with an id > id
+        private static int firstAbove(long[] entries, int count, int id) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if ((int) (entries[mid] >> 32) <= id) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static class Column {
+        final FileChannel channel;
+        final int width;
+        volatile MappedByteBuffer buffer;
+
+        Column(Path file, int width) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.width = width;
+        }
+
+        // Map room for the given number of rows, growing the file if needed
+        void map(int rows) throws IOException {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) rows * width);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.momo.app;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Counters and latency histograms for the console commands and the DataStore
+// operations behind them, plus error counts by ErrorCode.
+//
+// Recording is lock-free and allocation-free (LongAdder, LatencyHistogram), so it
+// can stay on in production. Commands are known by their index in the names
+// given to the constructor, which is how App dispatches them.
+public class Metrics implements MetricsMXBean {
+    public static final String OBJECT_NAME = "com.momo.app:type=Metrics";
+
+    // DataStore operations that are timed
+    public enum Operation {
+        CASH_IN,
+        PAY,
+        SCHEDULE_BILL
+    }
+
+    private final String[] commands;
+    private final LongAdder[] commandCounts;
+    private final LatencyHistogram[] commandLatencies;
+    private final LongAdder[] operationCounts = newCounters(Operation.values().length);
+    private final LatencyHistogram[] operationLatencies = newHistograms(Operation.values().length);
+    private final LongAdder[] errorCounts = newCounters(ErrorCode.values().length);
+
+    public Metrics(String[] commands) {
+        this.commands = commands.clone();
+        this.commandCounts = newCounters(commands.length);
+        this.commandLatencies = newHistograms(commands.length);
+    }
+
+    public void recordCommand(int command, long nanos) {
+        commandCounts[command].increment();
+        commandLatencies[command].record(nanos);
+    }
+
+    // errorCode is null when the operation succeeded
+    public void recordOperation(Operation operation, long nanos, ErrorCode errorCode) {
+        operationCounts[operation.ordinal()].increment();
+        operationLatencies[operation.ordinal()].record(nanos);
+        if (errorCode != null) {
+            errorCounts[errorCode.ordinal()].increment();
+        }
+    }
+
+    public long getOperationCount(Operation operation) {
+        return operationCounts[operation.ordinal()].sum();
+    }
+
+    public LatencyHistogram getOperationLatency(Operation operation) {
+        return operationLatencies[operation.ordinal()];
+    }
+
+    public long getErrorCount(ErrorCode code) {
+        return errorCounts[code.ordinal()].sum();
+    }
+
+    // Command names, then operation names prefixed with "store."; same order as the JMX maps
+    public String[] getNames() {
+        String[] names = new String[commands.length + Operation.values().length];
+        System.arraycopy(commands, 0, names, 0, commands.length);
+        for (Operation operation : Operation.values()) {
+            names[commands.length + operation.ordinal()] = "store." + operation;
+        }
+        return names;
+    }
+
+    // Histogram by name, as in getNames
+    public LatencyHistogram getLatency(int nameIndex) {
+        return nameIndex < commands.length ? commandLatencies[nameIndex] : operationLatencies[nameIndex - commands.length];
+    }
+
+    public long getCount(int nameIndex) {
+        return nameIndex < commands.length ? commandCounts[nameIndex].sum() : operationCounts[nameIndex - commands.length].sum();
+    }
+
+    // Make the metrics visible over JMX, replacing an earlier registration
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        String[] names = getNames();
+        for (int i = 0; i < names.length; i++) {
+            counts.put(names[i], getCount(i));
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        Map<String, Long> errors = new LinkedHashMap<>();
+        for (ErrorCode code : ErrorCode.values()) {
+            errors.put(code.name(), getErrorCount(code));
+        }
+        return errors;
+    }
+
+    @Override
+    public Map<String, Long> getP50Nanos() {
+        return latencies(histogram -> histogram.getValueAtPercentile(50));
+    }
+
+    @Override
+    public Map<String, Long> getP99Nanos() {
+        return latencies(histogram -> histogram.getValueAtPercentile(99));
+    }
+
+    @Override
+    public Map<String, Long> getMaxNanos() {
+        return latencies(LatencyHistogram::getMax);
+    }
+
+    private Map<String, Long> latencies(ToLongFunction<LatencyHistogram> value) {
+        Map<String, Long> latencies = new LinkedHashMap<>();
+        String[] names = getNames();
+        for (int i = 0; i < names.length; i++) {
+            latencies.put(names[i], value.applyAsLong(getLatency(i)));
+        }
+        return latencies;
+    }
+
+    private static LongAdder[] newCounters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    private static LatencyHistogram[] newHistograms(int size) {
+        LatencyHistogram[] histograms = new LatencyHistogram[size];
+        for (int i = 0; i < size; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+}
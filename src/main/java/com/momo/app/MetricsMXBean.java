@@ -0,0 +1,18 @@
+package com.momo.app;
+
+import java.util.Map;
+
+// JMX view of Metrics, registered as com.momo.app:type=Metrics
+public interface MetricsMXBean {
+    // Calls per command and per store operation
+    Map<String, Long> getCounts();
+
+    // Rejected operations per ErrorCode
+    Map<String, Long> getErrors();
+
+    Map<String, Long> getP50Nanos();
+
+    Map<String, Long> getP99Nanos();
+
+    Map<String, Long> getMaxNanos();
+}
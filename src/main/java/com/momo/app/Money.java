@@ -0,0 +1,30 @@
+package com.momo.app;
+
+// Money is a plain long count of the smallest currency unit (dong: VND has no minor
+// unit), so amounts stay primitive on the hot paths and never go through BigDecimal.
+//
+// Balances and amounts are at most MAX. Sums of amounts saturate to OVERFLOW instead
+// of wrapping around; OVERFLOW is above any balance, so an overflowed total can never
+// be debited and needs no separate check.
+final class Money {
+    static final long MAX = Long.MAX_VALUE - 1;
+    static final long OVERFLOW = Long.MAX_VALUE;
+
+    private Money() {
+    }
+
+    // a + b for amounts >= 0, or OVERFLOW when the sum does not fit
+    static long add(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? OVERFLOW : sum; // compiles to a conditional move, not a branch
+    }
+
+    // balance + amount for any amount, throws when the result would be above MAX
+    static long addToBalance(long balance, long amount) {
+        long sum = Math.addExact(balance, amount);
+        if (sum > MAX) {
+            throw new ArithmeticException("Balance would exceed " + MAX);
+        }
+        return sum;
+    }
+}
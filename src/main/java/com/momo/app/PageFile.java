@@ -0,0 +1,149 @@
+package com.momo.app;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A file of PAGE_SIZE pages read and written through an LRU page cache.
+//
+// At most cacheCapacity pages are on the heap. Reading a page that is not cached loads
+// it and evicts the least recently used one, writing it back first if it was changed.
+// A buffer returned by read() or write() stays valid until MIN_CACHE_PAGES - 1 other
+// pages have been read, so callers re-read a page by number after touching others.
+// Changes reach the disk on eviction and on flush(); nothing makes them atomic, a
+// crash between the two can leave the file torn. Not thread-safe.
+final class PageFile implements Closeable {
+    static final int PAGE_SIZE = 4096;
+    static final int MIN_CACHE_PAGES = 16;
+
+    private final FileChannel channel;
+    private final Map<Integer, Page> cache;
+    private int pageCount;
+    private long hits;
+    private long misses;
+
+    PageFile(Path file, int cacheCapacity) throws IOException {
+        if (cacheCapacity < MIN_CACHE_PAGES) {
+            throw new IllegalArgumentException("Page cache must hold at least " + MIN_CACHE_PAGES + " pages");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() % PAGE_SIZE != 0) {
+            throw new IOException("Not a page file: " + file);
+        }
+        this.pageCount = (int) (channel.size() / PAGE_SIZE);
+        this.cache = new LinkedHashMap<>(cacheCapacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+                if (size() <= cacheCapacity) {
+                    return false;
+                }
+                writeBack(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    int pageCount() {
+        return pageCount;
+    }
+
+    // A page to read from
+    ByteBuffer read(int page) {
+        return load(page).buffer;
+    }
+
+    // A page to change, written back on eviction or flush
+    ByteBuffer write(int page) {
+        Page cached = load(page);
+        cached.dirty = true;
+        return cached.buffer;
+    }
+
+    // A new zeroed page at the end of the file, returns its number
+    int allocate() {
+        int page = pageCount++;
+        Page cached = new Page();
+        cached.dirty = true;
+        cache.put(page, cached);
+        return page;
+    }
+
+    long cacheHits() {
+        return hits;
+    }
+
+    long cacheMisses() {
+        return misses;
+    }
+
+    // Write every changed page and force them to disk
+    void flush() throws IOException {
+        for (Iterator<Map.Entry<Integer, Page>> pages = cache.entrySet().iterator(); pages.hasNext(); ) {
+            Map.Entry<Integer, Page> entry = pages.next();
+            writeBack(entry.getKey(), entry.getValue());
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private Page load(int page) {
+        Page cached = cache.get(page);
+        if (cached != null) {
+            hits++;
+            return cached;
+        }
+        if (page < 0 || page >= pageCount) {
+            throw new IllegalArgumentException("No page " + page + " in a file of " + pageCount);
+        }
+        misses++;
+        cached = new Page();
+        try {
+            long position = (long) page * PAGE_SIZE;
+            while (cached.buffer.hasRemaining()) {
+                int read = channel.read(cached.buffer, position + cached.buffer.position());
+                if (read < 0) {
+                    throw new EOFException("Page " + page + " is cut short");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read page " + page, e);
+        }
+        cached.buffer.clear();
+        cache.put(page, cached);
+        return cached;
+    }
+
+    private void writeBack(int page, Page cached) {
+        if (!cached.dirty) {
+            return;
+        }
+        ByteBuffer buffer = cached.buffer.duplicate().clear();
+        try {
+            long position = (long) page * PAGE_SIZE;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write page " + page, e);
+        }
+        cached.dirty = false;
+    }
+
+    private static final class Page {
+        final ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        boolean dirty;
+    }
+}
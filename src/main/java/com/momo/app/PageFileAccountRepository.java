@@ -0,0 +1,95 @@
+package com.momo.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Postings kept on disk in a B+-tree by sequence (postings.tree), read through an LRU
+// page cache. A posting is 8 + 17 bytes: byte kind, int day, int reference, long amount.
+// Postings are only appended, so the tree fills its pages completely. Iterators read
+// SCAN_CHUNK postings per lock hold. Changes reach the disk on flush() and close(), see
+// PageFileBillRepository.
+public class PageFileAccountRepository implements AccountRepository, Closeable {
+    private static final int SCAN_CHUNK = 1024;
+    private static final int VALUE_SIZE = 17;
+    private static final Posting.Kind[] KINDS = Posting.Kind.values();
+
+    private final PageFile file;  // guarded by this
+    private final BPlusTree tree; // guarded by this
+
+    public PageFileAccountRepository(Path directory) throws IOException {
+        this(directory, PageFileBillRepository.DEFAULT_CACHE_PAGES);
+    }
+
+    // Open the postings in the directory, creating them if they do not exist
+    public PageFileAccountRepository(Path directory, int cachePages) throws IOException {
+        Files.createDirectories(directory);
+        this.file = new PageFile(directory.resolve("postings.tree"), cachePages);
+        this.tree = new BPlusTree(file, VALUE_SIZE);
+    }
+
+    @Override
+    public synchronized void append(Posting.Kind kind, int day, int reference, long amount) {
+        tree.put(tree.size() + 1, (page, offset) -> {
+            page.put(offset, (byte) kind.ordinal());
+            page.putInt(offset + 1, day);
+            page.putInt(offset + 5, reference);
+            page.putLong(offset + 9, amount);
+        });
+    }
+
+    @Override
+    public synchronized long size() {
+        return tree.size();
+    }
+
+    @Override
+    public Iterator<Posting> iterate(long afterSequence, long endSequence) {
+        return new LazyIterator<Posting>() {
+            private final List<Posting> chunk = new ArrayList<>();
+            private int next;
+            private long last = Math.max(0, afterSequence);
+
+            @Override
+            protected Posting computeNext() {
+                if (next == chunk.size()) {
+                    chunk.clear();
+                    next = 0;
+                    int max = (int) Math.min(SCAN_CHUNK, endSequence - last);
+                    if (max <= 0) {
+                        return null;
+                    }
+                    synchronized (PageFileAccountRepository.this) {
+                        tree.scan(last, max, PageFileAccountRepository::read, chunk);
+                    }
+                    if (chunk.isEmpty()) {
+                        return null;
+                    }
+                    last = chunk.get(chunk.size() - 1).getSequence();
+                }
+                return chunk.get(next++);
+            }
+        };
+    }
+
+    // Write the changed pages to disk
+    public synchronized void flush() throws IOException {
+        file.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+
+    private static Posting read(long sequence, ByteBuffer page, int offset) {
+        return new Posting(sequence, LocalDate.ofEpochDay(page.getInt(offset + 1)), KINDS[page.get(offset)],
+                page.getInt(offset + 5), page.getLong(offset + 9));
+    }
+}
@@ -0,0 +1,184 @@
+package com.momo.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+// Bills kept on disk in a B+-tree by id (bills.tree), read through an LRU page cache of
+// cachePages pages, so only the pages in use are on the heap whatever the number of
+// bills. A bill is 8 + 25 bytes: long amount, int due day, int scheduled day, byte
+// state, int type code, int provider code; type and provider names are dictionary
+// coded like in MappedBillRepository.
+//
+// Bills can be added in any id order. find() returns a new Bill that writes markPaid()
+// and setScheduledDate() back to the tree. There are no secondary indexes: searches by
+// provider, state or due date scan the leaves in id order. Changes reach the disk on
+// flush() and close(); a crash in between can leave the files torn, Persistence rebuilds
+// them from its snapshot and journal on open.
+public class PageFileBillRepository implements BillRepository, BillListener, Closeable {
+    static final int DEFAULT_CACHE_PAGES = 1024;
+
+    private static final int SCAN_CHUNK = 1024; // bills read per lock hold
+    private static final int VALUE_SIZE = 25;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final BillState[] STATES = BillState.values();
+
+    private final PageFile file;                 // guarded by this
+    private final BPlusTree tree;                // guarded by this
+    private final StringDictionary typeDictionary;
+    private final StringDictionary providerDictionary;
+    private final BPlusTree.ValueReader<Bill> reader = this::read;
+
+    public PageFileBillRepository(Path directory) throws IOException {
+        this(directory, DEFAULT_CACHE_PAGES);
+    }
+
+    // Open the bills in the directory, creating them if they do not exist
+    public PageFileBillRepository(Path directory, int cachePages) throws IOException {
+        Files.createDirectories(directory);
+        this.file = new PageFile(directory.resolve("bills.tree"), cachePages);
+        this.tree = new BPlusTree(file, VALUE_SIZE);
+        this.typeDictionary = new StringDictionary(directory.resolve("type.dict"));
+        this.providerDictionary = new StringDictionary(directory.resolve("provider.dict"));
+    }
+
+    @Override
+    public synchronized void add(Bill bill) {
+        if (tree.get(bill.getId(), (key, page, offset) -> Boolean.TRUE) != null) {
+            throw new IllegalArgumentException("Bill with id " + bill.getId() + " already exists.");
+        }
+        int type = typeDictionary.encode(bill.getType().name());
+        int provider = providerDictionary.encode(bill.getProvider().getName());
+        tree.put(bill.getId(), (page, offset) -> {
+            page.putLong(offset, bill.getAmount());
+            page.putInt(offset + 8, (int) bill.getDueDate().toEpochDay());
+            page.putInt(offset + 12, encodeDate(bill.getScheduledDate()));
+            page.put(offset + 16, (byte) bill.getState().ordinal());
+            page.putInt(offset + 17, type);
+            page.putInt(offset + 21, provider);
+        });
+        bill.setListener(this);
+    }
+
+    @Override
+    public synchronized Bill find(int id) {
+        return tree.get(id, reader);
+    }
+
+    // All bills in id order
+    @Override
+    public List<Bill> findAll() {
+        return collect(BillQuery.ALL);
+    }
+
+    @Override
+    public List<Bill> findByProvider(Provider provider) {
+        return collect(BillQuery.ALL.withProvider(provider.getName()));
+    }
+
+    @Override
+    public List<Bill> findByState(BillState state) {
+        return collect(BillQuery.ALL.withState(state));
+    }
+
+    @Override
+    public List<Bill> findUnpaidDueBetween(LocalDate from, LocalDate to) {
+        List<Bill> result = collect(BillQuery.ALL.withState(BillState.NOT_PAID).withDueBetween(from, to));
+        result.sort(Comparator.comparing(Bill::getDueDate)); // stable, ties stay in id order
+        return result;
+    }
+
+    // Reads SCAN_CHUNK bills per lock hold and picks up where it left off by id
+    @Override
+    public Iterator<Bill> iterate(BillQuery query, int afterId) {
+        return new LazyIterator<Bill>() {
+            private final List<Bill> chunk = new ArrayList<>();
+            private int next;
+            private int lastId = afterId;
+            private boolean scannedAll;
+
+            @Override
+            protected Bill computeNext() {
+                while (true) {
+                    while (next < chunk.size()) {
+                        Bill bill = chunk.get(next++);
+                        if (query.matches(bill)) {
+                            return bill;
+                        }
+                    }
+                    if (scannedAll) {
+                        return null;
+                    }
+                    chunk.clear();
+                    next = 0;
+                    synchronized (PageFileBillRepository.this) {
+                        scannedAll = tree.scan(lastId, SCAN_CHUNK, reader, chunk) < SCAN_CHUNK;
+                    }
+                    if (!chunk.isEmpty()) {
+                        lastId = chunk.get(chunk.size() - 1).getId();
+                    }
+                }
+            }
+        };
+    }
+
+    public synchronized long size() {
+        return tree.size();
+    }
+
+    @Override
+    public synchronized void stateChanged(Bill bill, BillState oldState) {
+        tree.update(bill.getId(), (page, offset) -> page.put(offset + 16, (byte) bill.getState().ordinal()));
+    }
+
+    @Override
+    public synchronized void scheduledDateChanged(Bill bill, LocalDate oldScheduledDate) {
+        tree.update(bill.getId(), (page, offset) -> page.putInt(offset + 12, encodeDate(bill.getScheduledDate())));
+    }
+
+    // Write the changed pages to disk
+    public synchronized void flush() throws IOException {
+        file.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+        typeDictionary.close();
+        providerDictionary.close();
+    }
+
+    private List<Bill> collect(BillQuery query) {
+        List<Bill> result = new ArrayList<>();
+        iterate(query, Integer.MIN_VALUE).forEachRemaining(result::add);
+        return result;
+    }
+
+    private Bill read(long id, ByteBuffer page, int offset) {
+        Bill bill = new Bill((int) id,
+                BillType.valueOf(typeDictionary.decode(page.getInt(offset + 17))),
+                page.getLong(offset),
+                LocalDate.ofEpochDay(page.getInt(offset + 8)),
+                Provider.of(providerDictionary.decode(page.getInt(offset + 21))));
+        if (STATES[page.get(offset + 16)] == BillState.PAID) {
+            bill.markPaid();
+        }
+        int scheduledDay = page.getInt(offset + 12);
+        if (scheduledDay != NO_DATE) {
+            bill.setScheduledDate(LocalDate.ofEpochDay(scheduledDay));
+        }
+        bill.setListener(this); // set last, restoring the fields above must not write back
+        return bill;
+    }
+
+    private static int encodeDate(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+}
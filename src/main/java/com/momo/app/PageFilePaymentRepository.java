@@ -0,0 +1,92 @@
+package com.momo.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Payments kept on disk in a B+-tree by id (payments.tree), read through an LRU page
+// cache. A payment is 8 + 17 bytes: long amount, int payment day, byte state, int bill
+// id. Payments read from the repository are copies, update() writes their state and
+// date back. Changes reach the disk on flush() and close(), see PageFileBillRepository.
+public class PageFilePaymentRepository implements PaymentRepository, Closeable {
+    private static final int VALUE_SIZE = 17;
+    private static final PaymentState[] STATES = PaymentState.values();
+
+    private final PageFile file;  // guarded by this
+    private final BPlusTree tree; // guarded by this
+
+    public PageFilePaymentRepository(Path directory) throws IOException {
+        this(directory, PageFileBillRepository.DEFAULT_CACHE_PAGES);
+    }
+
+    // Open the payments in the directory, creating them if they do not exist
+    public PageFilePaymentRepository(Path directory, int cachePages) throws IOException {
+        Files.createDirectories(directory);
+        this.file = new PageFile(directory.resolve("payments.tree"), cachePages);
+        this.tree = new BPlusTree(file, VALUE_SIZE);
+    }
+
+    @Override
+    public synchronized void add(Payment payment) {
+        tree.put(payment.getId(), (page, offset) -> {
+            page.putLong(offset, payment.getAmount());
+            page.putInt(offset + 8, (int) payment.getPaymentDate().toEpochDay());
+            page.put(offset + 12, (byte) payment.getState().ordinal());
+            page.putInt(offset + 13, payment.getBillId());
+        });
+    }
+
+    @Override
+    public synchronized void update(Payment payment) {
+        tree.update(payment.getId(), (page, offset) -> {
+            page.putInt(offset + 8, (int) payment.getPaymentDate().toEpochDay());
+            page.put(offset + 12, (byte) payment.getState().ordinal());
+        });
+    }
+
+    @Override
+    public synchronized List<Payment> findAfter(int afterId, int max) {
+        List<Payment> result = new ArrayList<>(Math.min(max, 1024));
+        tree.scan(afterId, max, PageFilePaymentRepository::read, result);
+        return result;
+    }
+
+    @Override
+    public synchronized List<Payment> findAll() {
+        List<Payment> result = new ArrayList<>();
+        tree.scan(Long.MIN_VALUE, Integer.MAX_VALUE, PageFilePaymentRepository::read, result);
+        return result;
+    }
+
+    @Override
+    public synchronized void removeAll(List<Payment> payments) {
+        for (Payment payment : payments) {
+            tree.remove(payment.getId());
+        }
+    }
+
+    @Override
+    public synchronized int lastId() {
+        return (int) Math.max(0, tree.maxKey());
+    }
+
+    // Write the changed pages to disk
+    public synchronized void flush() throws IOException {
+        file.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+
+    private static Payment read(long id, ByteBuffer page, int offset) {
+        return new Payment((int) id, page.getLong(offset), LocalDate.ofEpochDay(page.getInt(offset + 8)),
+                STATES[page.get(offset + 12)], page.getInt(offset + 13));
+    }
+}
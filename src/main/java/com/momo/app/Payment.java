@@ -4,12 +4,12 @@ import java.time.LocalDate;
 
 public class Payment {
     private int id; // id of the payment
-    private int amount; // amount of the payment
-    private LocalDate paymentDate; // date the of the payment
-    private String state;   // PROCESSED or PENDING
+    private long amount; // amount of the payment, see Money
+    private volatile LocalDate paymentDate; // date the of the payment
+    private volatile PaymentState state; // PROCESSED or PENDING
     private int billId;     // id of the bill
 
-    public Payment(int id, int amount, LocalDate paymentDate, String state, int billId) {
+    public Payment(int id, long amount, LocalDate paymentDate, PaymentState state, int billId) {
         this.id = id;
         this.amount = amount;
         this.paymentDate = paymentDate;
@@ -22,7 +22,7 @@ public class Payment {
         return id; 
     }
 
-    public int getAmount() {
+    public long getAmount() {
         return amount; 
     }
 
@@ -30,7 +30,7 @@ public class Payment {
         return paymentDate; 
     }
 
-    public String getState() {
+    public PaymentState getState() {
         return state; 
     }
 
@@ -38,7 +38,10 @@ public class Payment {
         return billId; 
     }
 
-    public void setState(String state) {
+    public void setState(PaymentState state) {
+        if (state != this.state && !this.state.canMoveTo(state)) {
+            throw new IllegalStateException("Payment " + id + " cannot move from " + this.state + " to " + state);
+        }
         this.state = state;
     }
 
@@ -0,0 +1,311 @@
+package com.momo.app;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Append-only, compressed file of settled payments moved out of a DataStore's live list.
+//
+// Payments are written in id order within a block, in blocks of up to BLOCK_PAYMENTS. A
+// payment settled late is archived by a later checkpoint than payments with higher ids,
+// so the id ranges of blocks can overlap; iterate() merges overlapping blocks. Block layout:
+// int compressedLength, int crc32(compressed), long lsn, int count, int firstId, int lastId,
+// then the deflated body: per payment the varint deltas of id, bill id (zigzag) and
+// payment date (zigzag epoch day) from the previous payment, and the amount as a varint.
+// Only PROCESSED payments are archived, so the state is not stored.
+//
+// The lsn is the journal lsn of the checkpoint that archived the block. Opening drops
+// blocks newer than the snapshot that was loaded, and a torn block left by a crash:
+// the payments in them are still in the live list of that snapshot or journal.
+class PaymentArchive implements Closeable {
+    static final int BLOCK_PAYMENTS = 4096;
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 4;
+    private static final int MAX_ENCODED_PAYMENT = 32; // four varints of at most 10 bytes, in practice far less
+
+    private final FileChannel channel;
+    private final List<Block> blocks = new ArrayList<>(); // guarded by this
+    private long size;                                   // guarded by this, file length
+    private long paymentCount;                           // guarded by this
+    private int lastId;                                  // guarded by this, highest id in any block
+
+    // Open the archive, keeping only the blocks archived at or before committedLsn
+    PaymentArchive(Path file, long committedLsn) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long length = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE <= length) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            Block block = new Block(position, header.getInt(), header.getInt(), header.getLong(),
+                    header.getInt(), header.getInt(), header.getInt());
+            if (block.lsn > committedLsn || position + HEADER_SIZE + block.compressedLength > length
+                    || !block.checksumMatches()) {
+                break;
+            }
+            blocks.add(block);
+            paymentCount += block.count;
+            lastId = Math.max(lastId, block.lastId);
+            position += HEADER_SIZE + block.compressedLength;
+        }
+        if (position < length) {
+            channel.truncate(position);
+            channel.force(true);
+        }
+        this.size = position;
+    }
+
+    // Append payments, in increasing id order, archived by the checkpoint with this lsn.
+    // They are on disk when this returns
+    synchronized void append(List<Payment> payments, long lsn) throws IOException {
+        for (int start = 0; start < payments.size(); start += BLOCK_PAYMENTS) {
+            List<Payment> chunk = payments.subList(start, Math.min(payments.size(), start + BLOCK_PAYMENTS));
+            byte[] compressed = compress(encode(chunk));
+            Block block = new Block(size, compressed.length, crc(compressed), lsn, chunk.size(),
+                    chunk.get(0).getId(), chunk.get(chunk.size() - 1).getId());
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + compressed.length);
+            buffer.putInt(block.compressedLength).putInt(block.crc).putLong(block.lsn)
+                    .putInt(block.count).putInt(block.firstId).putInt(block.lastId).put(compressed);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, size + buffer.position());
+            }
+            blocks.add(block);
+            size += buffer.limit();
+            paymentCount += block.count;
+            lastId = Math.max(lastId, block.lastId);
+        }
+        channel.force(false);
+    }
+
+    // Highest archived payment id, or 0
+    synchronized int lastId() {
+        return lastId;
+    }
+
+    synchronized long getPaymentCount() {
+        return paymentCount;
+    }
+
+    // Bytes on disk
+    synchronized long getSize() {
+        return size;
+    }
+
+    // Archived payments with an id greater than afterId that match the query, in id order.
+    // Blocks are taken by first id and read and inflated as the iterator advances, one at
+    // a time unless their id ranges overlap, in which case the overlapping ones are read
+    // together and sorted. Blocks that end at or before afterId are skipped from their
+    // header alone
+    Iterator<Payment> iterate(PaymentQuery query, int afterId, BillRepository bills) {
+        List<Block> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(blocks);
+        }
+        snapshot.removeIf(block -> block.lastId <= afterId);
+        snapshot.sort(Comparator.comparingInt(block -> block.firstId));
+        return new LazyIterator<Payment>() {
+            private int nextBlock;
+            private List<Payment> current = Collections.emptyList();
+            private int next;
+
+            @Override
+            protected Payment computeNext() {
+                while (true) {
+                    while (next < current.size()) {
+                        Payment payment = current.get(next++);
+                        if (payment.getId() > afterId && query.matches(payment, bills)) {
+                            return payment;
+                        }
+                    }
+                    if (nextBlock == snapshot.size()) {
+                        return null;
+                    }
+                    Block block = snapshot.get(nextBlock++);
+                    current = read(block);
+                    int groupLastId = block.lastId;
+                    if (nextBlock < snapshot.size() && snapshot.get(nextBlock).firstId <= groupLastId) {
+                        current = new ArrayList<>(current);
+                        do {
+                            block = snapshot.get(nextBlock++);
+                            current.addAll(read(block));
+                            groupLastId = Math.max(groupLastId, block.lastId);
+                        } while (nextBlock < snapshot.size() && snapshot.get(nextBlock).firstId <= groupLastId);
+                        current.sort(Comparator.comparingInt(Payment::getId));
+                    }
+                    next = 0;
+                }
+            }
+        };
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private List<Payment> read(Block block) {
+        try {
+            ByteBuffer compressed = ByteBuffer.allocate(block.compressedLength);
+            readFully(compressed, block.offset + HEADER_SIZE);
+            Inflater inflater = new Inflater();
+            inflater.setInput(compressed.array());
+            byte[] body = new byte[block.count * MAX_ENCODED_PAYMENT];
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == body.length) {
+                    body = Arrays.copyOf(body, body.length * 2);
+                }
+                int inflated = inflater.inflate(body, length, body.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated block");
+                }
+                length += inflated;
+            }
+            inflater.end();
+            return decode(ByteBuffer.wrap(body, 0, length), block.count);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the payment archive", e);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt payment archive block at " + block.offset, e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Payment archive ends at " + (position + buffer.position()));
+            }
+        }
+    }
+
+    private static byte[] encode(List<Payment> payments) {
+        ByteBuffer out = ByteBuffer.allocate(payments.size() * MAX_ENCODED_PAYMENT);
+        int previousId = 0;
+        int previousBillId = 0;
+        long previousDay = 0;
+        for (Payment payment : payments) {
+            long day = payment.getPaymentDate().toEpochDay();
+            putVarLong(out, payment.getId() - previousId);
+            putVarLong(out, zigzag(payment.getBillId() - (long) previousBillId));
+            putVarLong(out, zigzag(day - previousDay));
+            putVarLong(out, payment.getAmount());
+            previousId = payment.getId();
+            previousBillId = payment.getBillId();
+            previousDay = day;
+        }
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    private static List<Payment> decode(ByteBuffer in, int count) {
+        List<Payment> payments = new ArrayList<>(count);
+        int id = 0;
+        int billId = 0;
+        long day = 0;
+        for (int i = 0; i < count; i++) {
+            id += (int) getVarLong(in);
+            billId += (int) unzigzag(getVarLong(in));
+            day += unzigzag(getVarLong(in));
+            long amount = getVarLong(in);
+            payments.add(new Payment(id, amount, LocalDate.ofEpochDay(day), PaymentState.PROCESSED, billId));
+        }
+        return payments;
+    }
+
+    private static byte[] compress(byte[] body) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(body);
+        deflater.finish();
+        byte[] out = new byte[body.length + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        deflater.end();
+        return Arrays.copyOf(out, length);
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    // Amounts are never negative, ids and dates use zigzag so small negative deltas stay short
+    private static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private final class Block {
+        final long offset;
+        final int compressedLength;
+        final int crc;
+        final long lsn;
+        final int count;
+        final int firstId;
+        final int lastId;
+
+        Block(long offset, int compressedLength, int crc, long lsn, int count, int firstId, int lastId) {
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.crc = crc;
+            this.lsn = lsn;
+            this.count = count;
+            this.firstId = firstId;
+            this.lastId = lastId;
+        }
+
+        boolean checksumMatches() throws IOException {
+            if (compressedLength < 0 || count <= 0) {
+                return false;
+            }
+            ByteBuffer compressed = ByteBuffer.allocate(compressedLength);
+            readFully(compressed, offset + HEADER_SIZE);
+            return crc(compressed.array()) == crc;
+        }
+    }
+}
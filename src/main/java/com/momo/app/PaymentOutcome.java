@@ -0,0 +1,184 @@
+package com.momo.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Reusable, mutable outcome of DataStore.payBills(int[], int, PaymentOutcome).
+//
+// Besides the result it carries the scratch space the payment needs (distinct ids,
+// bills, lock stripes), so a caller that keeps one instance per thread pays bills
+// without allocating once the arrays have grown to its batch size. Not thread-safe;
+// use toResult() for an immutable copy.
+public final class PaymentOutcome {
+    private static final int LINEAR_DEDUP_LIMIT = 32; // above it ids are deduplicated with a hash set
+
+    private ErrorCode errorCode;
+    private long balanceBefore;
+    private long balance;
+    private long totalAmount;
+    private int[] ids = new int[16];          // distinct ids in request order, the paid ones on success
+    private int idCount;
+    private int[] errorIds = new int[4];
+    private ErrorCode[] errorCodes = new ErrorCode[4];
+    private int errorCount;
+
+    // Scratch space, only used while paying
+    Bill[] bills = new Bill[16];
+    int[] stripes = new int[16];
+    private int[] seenIds = new int[64];      // open addressing set of ids, valid where seenStamps == stamp
+    private int[] seenStamps = new int[64];
+    private int stamp;
+
+    public boolean isSuccess() {
+        return errorCode == null;
+    }
+
+    // null on success; for invalid bill ids the code of the first bad id
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    public long getBalanceBefore() {
+        return balanceBefore;
+    }
+
+    public long getBalance() {
+        return balance;
+    }
+
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+
+    // Number of bills paid, 0 when the payment failed
+    public int getPaidCount() {
+        return isSuccess() ? idCount : 0;
+    }
+
+    public int getPaidBillId(int index) {
+        return ids[index];
+    }
+
+    public int getBillErrorCount() {
+        return errorCount;
+    }
+
+    public int getBillErrorId(int index) {
+        return errorIds[index];
+    }
+
+    public ErrorCode getBillErrorCode(int index) {
+        return errorCodes[index];
+    }
+
+    public PaymentResult toResult() {
+        if (errorCode == ErrorCode.NO_BILLS) {
+            return PaymentResult.noBills();
+        }
+        if (errorCount > 0) {
+            List<PaymentResult.BillError> errors = new ArrayList<>(errorCount);
+            for (int i = 0; i < errorCount; i++) {
+                errors.add(new PaymentResult.BillError(errorIds[i], errorCodes[i]));
+            }
+            return PaymentResult.invalidBills(balanceBefore, errors);
+        }
+        if (errorCode == ErrorCode.INSUFFICIENT_FUNDS) {
+            return PaymentResult.insufficientFunds(balanceBefore, totalAmount);
+        }
+        return PaymentResult.paid(Arrays.copyOf(ids, idCount), balanceBefore, balance, totalAmount);
+    }
+
+    // --- Filled in by DataStore ---
+
+    // Reset and take the distinct ids of billIds[0..count), keeping their first-seen order
+    void start(int[] billIds, int count) {
+        errorCode = null;
+        balanceBefore = 0;
+        balance = 0;
+        totalAmount = 0;
+        errorCount = 0;
+        idCount = 0;
+        if (ids.length < count) {
+            ids = new int[Math.max(count, ids.length * 2)];
+            bills = new Bill[ids.length];
+            stripes = new int[ids.length];
+        }
+        if (count <= LINEAR_DEDUP_LIMIT) {
+            for (int i = 0; i < count; i++) {
+                if (!containsId(billIds[i])) {
+                    ids[idCount++] = billIds[i];
+                }
+            }
+            return;
+        }
+        if (seenIds.length < count * 2) {
+            int size = Integer.highestOneBit(count * 2 - 1) << 1;
+            seenIds = new int[size];
+            seenStamps = new int[size];
+            stamp = 0;
+        }
+        if (++stamp == 0) { // wrapped, forget all old stamps
+            Arrays.fill(seenStamps, 0);
+            stamp = 1;
+        }
+        int mask = seenIds.length - 1;
+        for (int i = 0; i < count; i++) {
+            int id = billIds[i];
+            int slot = (id * 0x9E3779B9) & mask;
+            while (seenStamps[slot] == stamp && seenIds[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            if (seenStamps[slot] != stamp) {
+                seenStamps[slot] = stamp;
+                seenIds[slot] = id;
+                ids[idCount++] = id;
+            }
+        }
+    }
+
+    private boolean containsId(int id) {
+        for (int i = 0; i < idCount; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int[] ids() {
+        return ids;
+    }
+
+    int idCount() {
+        return idCount;
+    }
+
+    void noBills() {
+        errorCode = ErrorCode.NO_BILLS;
+    }
+
+    void addBillError(int billId, ErrorCode code) {
+        if (errorCount == errorIds.length) {
+            errorIds = Arrays.copyOf(errorIds, errorCount * 2);
+            errorCodes = Arrays.copyOf(errorCodes, errorCount * 2);
+        }
+        if (errorCount == 0) {
+            errorCode = code;
+        }
+        errorIds[errorCount] = billId;
+        errorCodes[errorCount] = code;
+        errorCount++;
+    }
+
+    void balances(long balanceBefore, long balance, long totalAmount) {
+        this.balanceBefore = balanceBefore;
+        this.balance = balance;
+        this.totalAmount = totalAmount;
+    }
+
+    void insufficientFunds() {
+        errorCode = ErrorCode.INSUFFICIENT_FUNDS;
+        balance = balanceBefore;
+    }
+}
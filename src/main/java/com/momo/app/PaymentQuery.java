@@ -0,0 +1,60 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+
+// Which payments a listing wants: any combination of a state, the provider of the
+// paid bill and a payment date range. Tested while the payments are scanned.
+public final class PaymentQuery {
+    public static final PaymentQuery ALL = new PaymentQuery(null, null, null, null, false);
+
+    private final PaymentState state;    // null for any
+    private final String provider;       // provider name of the bill, null for any
+    private final LocalDate paidFrom;    // inclusive, null for no lower bound
+    private final LocalDate paidTo;      // inclusive, null for no upper bound
+    private final boolean archived;      // also read the payment archive
+
+    private PaymentQuery(PaymentState state, String provider, LocalDate paidFrom, LocalDate paidTo, boolean archived) {
+        this.state = state;
+        this.provider = provider;
+        this.paidFrom = paidFrom;
+        this.paidTo = paidTo;
+        this.archived = archived;
+    }
+
+    public PaymentQuery withState(PaymentState state) {
+        return new PaymentQuery(state, provider, paidFrom, paidTo, archived);
+    }
+
+    public PaymentQuery withProvider(String provider) {
+        return new PaymentQuery(state, provider, paidFrom, paidTo, archived);
+    }
+
+    // Payments dated between the two dates, both inclusive; either may be null for an open end
+    public PaymentQuery withDateBetween(LocalDate from, LocalDate to) {
+        return new PaymentQuery(state, provider, from, to, archived);
+    }
+
+    // Also list the settled payments moved to the archive, which are read from disk
+    public PaymentQuery includingArchived() {
+        return new PaymentQuery(state, provider, paidFrom, paidTo, true);
+    }
+
+    boolean isIncludingArchived() {
+        return archived;
+    }
+
+    // The paid bill is looked up in bills only when a provider is asked for
+    boolean matches(Payment payment, BillRepository bills) {
+        LocalDate date = payment.getPaymentDate();
+        if ((state != null && payment.getState() != state)
+                || (paidFrom != null && date.isBefore(paidFrom))
+                || (paidTo != null && date.isAfter(paidTo))) {
+            return false;
+        }
+        if (provider == null) {
+            return true;
+        }
+        Bill bill = bills.find(payment.getBillId());
+        return bill != null && bill.getProvider().getName().equals(provider);
+    }
+}
@@ -0,0 +1,25 @@
+package com.momo.app;
+
+import java.util.List;
+
+// Where a DataStore keeps its live payments, in id order. A payment changed with
+// setState() or setPaymentDate() is kept once it is passed to update(). The store
+// serializes every call by locking the repository.
+public interface PaymentRepository {
+    // Add a payment with an id greater than all the ones added before
+    void add(Payment payment);
+
+    // Write back the state and date of a payment of the repository
+    void update(Payment payment);
+
+    // Payments with an id greater than afterId, in id order, at most max of them
+    List<Payment> findAfter(int afterId, int max);
+
+    List<Payment> findAll();
+
+    // Remove the given payments, when archived
+    void removeAll(List<Payment> payments);
+
+    // The greatest id ever added, 0 when none
+    int lastId();
+}
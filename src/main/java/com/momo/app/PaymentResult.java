@@ -0,0 +1,94 @@
+package com.momo.app;
+
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of DataStore.payBills. Nothing is formatted here, see ConsolePresenter
+public final class PaymentResult {
+    private static final int[] NONE = new int[0];
+
+    // A bill id that made the payment fail
+    public static final class BillError {
+        private final int billId;
+        private final ErrorCode code;
+
+        BillError(int billId, ErrorCode code) {
+            this.billId = billId;
+            this.code = code;
+        }
+
+        public int getBillId() {
+            return billId;
+        }
+
+        public ErrorCode getCode() {
+            return code;
+        }
+    }
+
+    private final ErrorCode errorCode;     // null when the bills were paid
+    private final int[] paidBillIds;
+    private final long balanceBefore;
+    private final long balance;
+    private final long totalAmount;
+    private final List<BillError> billErrors;
+
+    private PaymentResult(ErrorCode errorCode, int[] paidBillIds, long balanceBefore, long balance,
+                          long totalAmount, List<BillError> billErrors) {
+        this.errorCode = errorCode;
+        this.paidBillIds = paidBillIds;
+        this.balanceBefore = balanceBefore;
+        this.balance = balance;
+        this.totalAmount = totalAmount;
+        this.billErrors = billErrors;
+    }
+
+    static PaymentResult paid(int[] billIds, long balanceBefore, long balance, long totalAmount) {
+        return new PaymentResult(null, billIds, balanceBefore, balance, totalAmount, Collections.emptyList());
+    }
+
+    static PaymentResult noBills() {
+        return new PaymentResult(ErrorCode.NO_BILLS, NONE, 0, 0, 0, Collections.emptyList());
+    }
+
+    static PaymentResult invalidBills(long balance, List<BillError> billErrors) {
+        return new PaymentResult(billErrors.get(0).getCode(), NONE, balance, balance, 0,
+                Collections.unmodifiableList(billErrors));
+    }
+
+    static PaymentResult insufficientFunds(long balance, long totalAmount) {
+        return new PaymentResult(ErrorCode.INSUFFICIENT_FUNDS, NONE, balance, balance, totalAmount, Collections.emptyList());
+    }
+
+    public boolean isSuccess() {
+        return errorCode == null;
+    }
+
+    // null on success; for invalid bill ids the code of the first bad id, see getBillErrors
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    // Distinct ids of the paid bills, empty when nothing was paid. Do not modify
+    public int[] getPaidBillIds() {
+        return paidBillIds;
+    }
+
+    public long getBalanceBefore() {
+        return balanceBefore;
+    }
+
+    // Balance after the payment, or the unchanged balance when it failed
+    public long getBalance() {
+        return balance;
+    }
+
+    // Amount taken, or needed when funds were not enough
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+
+    public List<BillError> getBillErrors() {
+        return billErrors;
+    }
+}
@@ -0,0 +1,186 @@
+package com.momo.app;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Executes SCHEDULE_BILL payments once their date arrives.
+//
+// Every scheduled payment sits in a priority queue ordered by the day it should run,
+// so a tick only touches the payments that are due instead of scanning all payments.
+// A payment that cannot be covered by the balance is retried with exponential
+// backoff (1, 2, 4, ... days, capped) and given up after MAX_ATTEMPTS; it then stays
+// PENDING until paid with PAY. Time comes from a Clock, so tests can move it forward.
+public class PaymentScheduler implements DataStoreListener, Closeable {
+    static final int MAX_ATTEMPTS = 5;
+    static final int MAX_BACKOFF_DAYS = 8;
+
+    private final DataStore store;
+    private final Clock clock;
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(); // guarded by itself
+    private ScheduledExecutorService executor;
+    private long settledCount;  // guarded by this
+    private long retriedCount;  // guarded by this
+    private long gaveUpCount;   // guarded by this
+
+    public PaymentScheduler(DataStore store, Clock clock) {
+        this.store = store;
+        this.clock = clock;
+        store.addListener(this);
+        // Pick up payments scheduled before the scheduler existed, e.g. recovered from disk
+        Iterator<Payment> pending = store.iteratePayments(PaymentQuery.ALL.withState(PaymentState.PENDING), 0);
+        while (pending.hasNext()) {
+            Bill bill = store.findBill(pending.next().getBillId());
+            if (bill != null && bill.getScheduledDate() != null) {
+                enqueue(new Entry(bill.getScheduledDate().toEpochDay(), bill.getId(), 0));
+            }
+        }
+    }
+
+    @Override
+    public void paymentScheduled(Bill bill, Payment payment) {
+        enqueue(new Entry(bill.getScheduledDate().toEpochDay(), bill.getId(), 0));
+    }
+
+    // Settle every payment due today or earlier, returns how many were settled. The due
+    // payments are settled together, earliest first while the balance covers them
+    public int tick() {
+        LocalDate today = LocalDate.now(clock);
+        List<Entry> due = pollDue(today.toEpochDay());
+        if (due.isEmpty()) {
+            return 0;
+        }
+        int[] billIds = new int[due.size()];
+        for (int i = 0; i < billIds.length; i++) {
+            billIds[i] = due.get(i).billId;
+        }
+        DataStore.Settlement[] results;
+        try {
+            results = store.settleScheduledPayments(billIds, today);
+        } catch (RuntimeException e) {
+            synchronized (queue) { // the next tick tries them again, any settled meanwhile are skipped then
+                queue.addAll(due);
+            }
+            throw e;
+        }
+        int settled = 0;
+        int retried = 0;
+        int gaveUp = 0;
+        for (int i = 0; i < results.length; i++) {
+            Entry entry = due.get(i);
+            switch (results[i]) {
+                case SETTLED:
+                    settled++;
+                    break;
+                case INSUFFICIENT_FUNDS:
+                    int attempts = entry.attempts + 1;
+                    if (attempts >= MAX_ATTEMPTS) {
+                        gaveUp++;
+                    } else {
+                        long backoffDays = Math.min(1L << (attempts - 1), MAX_BACKOFF_DAYS);
+                        enqueue(new Entry(today.toEpochDay() + backoffDays, entry.billId, attempts));
+                        retried++;
+                    }
+                    break;
+                case NOT_PENDING:
+                    break; // already paid with PAY
+            }
+        }
+        synchronized (this) {
+            settledCount += settled;
+            retriedCount += retried;
+            gaveUpCount += gaveUp;
+        }
+        return settled;
+    }
+
+    // Tick in the background at a fixed interval
+    public synchronized void start(Duration interval) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "payment-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) { // an exception would cancel the task
+                System.err.println("Error: Scheduled payments failed, retrying at the next tick: " + e.getMessage());
+            }
+        }, 0, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        store.removeListener(this);
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public int getQueuedCount() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public synchronized long getSettledCount() {
+        return settledCount;
+    }
+
+    public synchronized long getRetriedCount() {
+        return retriedCount;
+    }
+
+    public synchronized long getGaveUpCount() {
+        return gaveUpCount;
+    }
+
+    private void enqueue(Entry entry) {
+        synchronized (queue) {
+            queue.add(entry);
+        }
+    }
+
+    // Remove and return the entries due on or before the given day, earliest first
+    private List<Entry> pollDue(long epochDay) {
+        List<Entry> due = new ArrayList<>();
+        synchronized (queue) {
+            while (!queue.isEmpty() && queue.peek().runOn <= epochDay) {
+                due.add(queue.poll());
+            }
+        }
+        return due;
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        final long runOn; // epoch day
+        final int billId;
+        final int attempts;
+
+        Entry(long runOn, int billId, int attempts) {
+            this.runOn = runOn;
+            this.billId = billId;
+            this.attempts = attempts;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byDay = Long.compare(runOn, other.runOn);
+            return byDay != 0 ? byDay : Integer.compare(billId, other.billId);
+        }
+    }
+}
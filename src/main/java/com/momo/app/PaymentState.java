@@ -0,0 +1,12 @@
+package com.momo.app;
+
+// A scheduled payment starts PENDING and becomes PROCESSED once settled,
+// a payment made right away is PROCESSED from the start
+public enum PaymentState {
+    PENDING,
+    PROCESSED;
+
+    public boolean canMoveTo(PaymentState next) {
+        return this == PENDING && next == PROCESSED;
+    }
+}
@@ -0,0 +1,169 @@
+package com.momo.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Keeps a DataStore on disk: a snapshot plus a write-ahead journal of the mutations since.
+// Startup loads the snapshot and replays only the journal tail, and a background
+// checkpoint periodically writes a fresh snapshot and empties the journal.
+//
+// Bills, payments and postings are kept on the heap, or with a page cache size in page
+// files under PAGES_DIR, so only the pages in use are on the heap. The page files are a
+// cache of the snapshot and journal, not a copy of their own: their pages reach the disk
+// in any order and with no commit point, so they are emptied and rebuilt on every open.
+public class Persistence implements Closeable {
+    static final String SNAPSHOT_FILE = "snapshot.bin";
+    static final String JOURNAL_FILE = "journal.log";
+    static final String ARCHIVE_FILE = "payments.archive";
+    static final String PAGES_DIR = "pages";
+
+    static final Duration DEFAULT_CHECKPOINT_INTERVAL = Duration.ofMinutes(1);
+    static final Duration DEFAULT_ARCHIVE_AGE = Duration.ofDays(90);
+
+    private final Path directory;
+    private final DataStore store;
+    private final Journal journal;
+    private final PaymentArchive archive;
+    private final List<Closeable> pageFiles; // the page-file repositories, empty on the heap
+    private final Duration archiveAge;
+    private final Clock clock;
+    private final ScheduledExecutorService checkpointer;
+
+    private Persistence(Path directory, DataStore store, Journal journal, PaymentArchive archive,
+                        List<Closeable> pageFiles, Duration checkpointInterval, Duration archiveAge, Clock clock) {
+        this.directory = directory;
+        this.store = store;
+        this.journal = journal;
+        this.archive = archive;
+        this.pageFiles = pageFiles;
+        this.archiveAge = archiveAge;
+        this.clock = clock;
+        this.checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "datastore-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = checkpointInterval.toMillis();
+        checkpointer.scheduleWithFixedDelay(this::checkpointIfNeeded, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public static Persistence open(Path directory) throws IOException {
+        return open(directory, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public static Persistence open(Path directory, Duration checkpointInterval) throws IOException {
+        return open(directory, checkpointInterval, DEFAULT_ARCHIVE_AGE, Clock.systemDefaultZone());
+    }
+
+    // Recover the store kept in the directory, or start a new one with the sample bills.
+    // Checkpoints move PROCESSED payments older than archiveAge to the payment archive
+    public static Persistence open(Path directory, Duration checkpointInterval, Duration archiveAge, Clock clock)
+            throws IOException {
+        return open(directory, checkpointInterval, archiveAge, clock, 0);
+    }
+
+    // Like above, with the store in page files read through cachePages pages each when
+    // cachePages is positive
+    public static Persistence open(Path directory, Duration checkpointInterval, Duration archiveAge, Clock clock,
+                                   int cachePages) throws IOException {
+        Files.createDirectories(directory);
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        Path journalFile = directory.resolve(JOURNAL_FILE);
+
+        List<Closeable> pageFiles = new ArrayList<>();
+        BillRepository bills = new InMemoryBillRepository();
+        PaymentRepository payments = new InMemoryPaymentRepository();
+        AccountRepository postings = new InMemoryAccountRepository();
+        if (cachePages > 0) {
+            Path pages = directory.resolve(PAGES_DIR);
+            emptyDirectory(pages);
+            PageFileBillRepository pageBills = new PageFileBillRepository(pages, cachePages);
+            PageFilePaymentRepository pagePayments = new PageFilePaymentRepository(pages, cachePages);
+            PageFileAccountRepository pagePostings = new PageFileAccountRepository(pages, cachePages);
+            bills = pageBills;
+            payments = pagePayments;
+            postings = pagePostings;
+            pageFiles.addAll(List.of(pageBills, pagePayments, pagePostings));
+        }
+
+        DataStore store = new DataStore(bills, payments, postings);
+        long snapshotLsn = 0;
+        if (Files.exists(snapshotFile)) {
+            snapshotLsn = Snapshot.read(snapshotFile, store);
+        } else {
+            store.addSampleBills();
+        }
+        PaymentArchive archive = new PaymentArchive(directory.resolve(ARCHIVE_FILE), snapshotLsn);
+        store.attachArchive(archive);
+        Journal.ReplayResult replayed = Journal.replay(journalFile, snapshotLsn, store);
+        Journal journal = new Journal(journalFile, replayed);
+        store.attachJournal(journal);
+        return new Persistence(directory, store, journal, archive, pageFiles, checkpointInterval, archiveAge, clock);
+    }
+
+    public DataStore getStore() {
+        return store;
+    }
+
+    // Archive old settled payments, then write a snapshot of the whole store and drop
+    // the journal records it covers
+    public void checkpoint() throws IOException {
+        journal.gate().writeLock().lock(); // waits for in-flight mutations and holds off new ones
+        try {
+            store.archivePayments(LocalDate.now(clock).minusDays(archiveAge.toDays()));
+            journal.flush();
+            Snapshot.write(directory.resolve(SNAPSHOT_FILE), store, journal.lastLsn());
+            journal.truncate();
+        } finally {
+            journal.gate().writeLock().unlock();
+        }
+    }
+
+    // Runs on the checkpointer: a failure is reported and retried at the next run, an
+    // exception thrown out of it would stop all the runs after it
+    private void checkpointIfNeeded() {
+        try {
+            if (journal.recordsSinceCheckpoint() > 0) {
+                checkpoint();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error: Checkpoint failed, retrying at the next one: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+        archive.close();
+        for (Closeable pageFile : pageFiles) {
+            pageFile.close();
+        }
+    }
+
+    // Delete the files left in the directory by an earlier run, creating it if needed
+    private static void emptyDirectory(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
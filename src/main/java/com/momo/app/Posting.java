@@ -0,0 +1,75 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+
+// One immutable double-entry ledger posting: amount moves from the credit account to
+// the debit account. Every posting balances, so the account balances always sum to zero.
+public final class Posting {
+
+    public enum Account {
+        WALLET,  // the balance of the store
+        FUNDING, // where cashed in money comes from
+        BILLS    // where bill payments go
+    }
+
+    public enum Kind {
+        CASH_IN(Account.WALLET, Account.FUNDING),
+        BILL_PAYMENT(Account.BILLS, Account.WALLET);
+
+        private final Account debit;
+        private final Account credit;
+
+        Kind(Account debit, Account credit) {
+            this.debit = debit;
+            this.credit = credit;
+        }
+
+        public Account getDebit() {
+            return debit;
+        }
+
+        public Account getCredit() {
+            return credit;
+        }
+    }
+
+    private final long sequence;
+    private final LocalDate date;
+    private final Kind kind;
+    private final int reference; // bill id of a BILL_PAYMENT, 0 for a CASH_IN
+    private final long amount;   // see Money
+
+    Posting(long sequence, LocalDate date, Kind kind, int reference, long amount) {
+        this.sequence = sequence;
+        this.date = date;
+        this.kind = kind;
+        this.reference = reference;
+        this.amount = amount;
+    }
+
+    // Position in the ledger, from 1
+    public long getSequence() {
+        return sequence;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getReference() {
+        return reference;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + ". " + date + " " + kind + " " + reference + " " + amount;
+    }
+}
@@ -0,0 +1,48 @@
+package com.momo.app;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A bill provider (EVN, SAVACO, VNPT, ...). Providers are interned by name in a
+// process-wide dictionary, so bills of the same provider share one instance and
+// can be compared by identity or by their compact int code.
+public final class Provider {
+    private static final ConcurrentMap<String, Provider> DICTIONARY = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_CODE = new AtomicInteger();
+
+    private final int code;
+    private final String name;
+
+    private Provider(int code, String name) {
+        this.code = code;
+        this.name = name;
+    }
+
+    // The provider with this name, adding it to the dictionary when it is new
+    public static Provider of(String name) {
+        Provider provider = DICTIONARY.get(name);
+        if (provider != null) {
+            return provider;
+        }
+        return DICTIONARY.computeIfAbsent(name, n -> new Provider(NEXT_CODE.getAndIncrement(), n));
+    }
+
+    // The provider with this name, or null when no bill has ever used it
+    public static Provider find(String name) {
+        return DICTIONARY.get(name);
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
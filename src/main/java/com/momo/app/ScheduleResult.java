@@ -0,0 +1,51 @@
+package com.momo.app;
+
+import java.time.LocalDate;
+
+// Outcome of DataStore.scheduleBill
+public final class ScheduleResult {
+    private final int billId;
+    private final ErrorCode errorCode; // null when the payment was scheduled
+    private final LocalDate scheduledDate;
+    private final LocalDate dueDate;   // only set for AFTER_DUE_DATE
+
+    private ScheduleResult(int billId, ErrorCode errorCode, LocalDate scheduledDate, LocalDate dueDate) {
+        this.billId = billId;
+        this.errorCode = errorCode;
+        this.scheduledDate = scheduledDate;
+        this.dueDate = dueDate;
+    }
+
+    static ScheduleResult scheduled(int billId, LocalDate scheduledDate) {
+        return new ScheduleResult(billId, null, scheduledDate, null);
+    }
+
+    static ScheduleResult failed(int billId, ErrorCode errorCode, LocalDate scheduledDate) {
+        return new ScheduleResult(billId, errorCode, scheduledDate, null);
+    }
+
+    static ScheduleResult afterDueDate(int billId, LocalDate scheduledDate, LocalDate dueDate) {
+        return new ScheduleResult(billId, ErrorCode.AFTER_DUE_DATE, scheduledDate, dueDate);
+    }
+
+    public boolean isSuccess() {
+        return errorCode == null;
+    }
+
+    public int getBillId() {
+        return billId;
+    }
+
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    // null for INVALID_DATE
+    public LocalDate getScheduledDate() {
+        return scheduledDate;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+}
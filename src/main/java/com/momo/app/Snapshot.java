@@ -0,0 +1,366 @@
+package com.momo.app;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+// Full copy of the store (balance, ledger, bills, payments) tagged with the last journal lsn it covers.
+//
+// BPS4 is written and read through a FileChannel and one direct ByteBuffer, as fixed-size
+// big-endian records: names (bill types, states, posting kinds, providers) are stored once
+// in dictionaries at the top and referred to by index, dates are int epoch days. A bill
+// takes 26 bytes and a payment 21, and a CRC32 of everything before it ends the file.
+//   int magic, long lsn, long balance
+//   dictionaries: for each of kinds, bill types, bill states, payment states, providers,
+//                 an int count, then every name as a short length and UTF-8 bytes
+//   long count, per posting: byte kind, int day, int reference, long amount
+//   int count, per bill: int id, byte type, long amount, int due day, byte state,
+//                        int provider, int scheduled day (NO_DAY when not scheduled)
+//   int count, per payment: int id, long amount, int day, byte state, int bill id
+//   int crc32
+class Snapshot {
+    private static final int MAGIC = 0x42505334; // "BPS4"
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int POSTING_BYTES = 17;
+    private static final int BILL_BYTES = 26;
+    private static final int PAYMENT_BYTES = 21;
+
+    // Write atomically: to a temporary file first, then moved over the old snapshot. Bills and
+    // payments are streamed from the repositories twice, once for the counts and providers of
+    // the header and once to write them, so a store on page files is never copied onto the heap
+    static void write(Path file, DataStore store, long lsn) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int[] providerIndex = new int[16];
+        Arrays.fill(providerIndex, -1);
+        List<String> providerNames = new ArrayList<>();
+        int billCount = 0;
+        for (Iterator<Bill> bills = iterateBills(store); bills.hasNext(); billCount++) {
+            providerIndex = indexProvider(providerIndex, providerNames, bills.next().getProvider());
+        }
+        int paymentCount = 0;
+        for (Iterator<Payment> payments = iteratePayments(store); payments.hasNext(); paymentCount++) {
+            payments.next();
+        }
+        try (Output out = new Output(FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))) {
+            out.need(20).putInt(MAGIC).putLong(lsn).putLong(store.getBalance());
+
+            out.writeNames(Posting.Kind.values());
+            out.writeNames(BillType.values());
+            out.writeNames(BillState.values());
+            out.writeNames(PaymentState.values());
+            out.writeNames(providerNames.toArray(new String[0]));
+
+            out.need(8).putLong(store.ledger().size());
+            for (Iterator<Posting> postings = store.iteratePostings(0); postings.hasNext(); ) {
+                Posting posting = postings.next();
+                out.need(POSTING_BYTES)
+                        .put((byte) posting.getKind().ordinal())
+                        .putInt((int) posting.getDate().toEpochDay())
+                        .putInt(posting.getReference())
+                        .putLong(posting.getAmount());
+            }
+
+            out.need(4).putInt(billCount);
+            int billsWritten = 0;
+            for (Iterator<Bill> bills = iterateBills(store); bills.hasNext(); billsWritten++) {
+                Bill bill = bills.next();
+                LocalDate scheduled = bill.getScheduledDate();
+                out.need(BILL_BYTES)
+                        .putInt(bill.getId())
+                        .put((byte) bill.getType().ordinal())
+                        .putLong(bill.getAmount())
+                        .putInt((int) bill.getDueDate().toEpochDay())
+                        .put((byte) bill.getState().ordinal())
+                        .putInt(providerIndex[bill.getProvider().getCode()])
+                        .putInt(scheduled == null ? NO_DAY : (int) scheduled.toEpochDay());
+            }
+
+            out.need(4).putInt(paymentCount);
+            int paymentsWritten = 0;
+            for (Iterator<Payment> payments = iteratePayments(store); payments.hasNext(); paymentsWritten++) {
+                Payment payment = payments.next();
+                out.need(PAYMENT_BYTES)
+                        .putInt(payment.getId())
+                        .putLong(payment.getAmount())
+                        .putInt((int) payment.getPaymentDate().toEpochDay())
+                        .put((byte) payment.getState().ordinal())
+                        .putInt(payment.getBillId());
+            }
+            if (billsWritten != billCount || paymentsWritten != paymentCount) { // the checkpoint holds off changes
+                throw new IOException("Store changed while writing a snapshot");
+            }
+            out.finish();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The rename lives in the directory: force it too, or a crash after the journal is
+        // truncated could bring back the old snapshot without the records it was missing
+        try (FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    private static Iterator<Bill> iterateBills(DataStore store) {
+        return store.iterateBills(BillQuery.ALL, Integer.MIN_VALUE);
+    }
+
+    // Live payments only, archived ones stay in the archive
+    private static Iterator<Payment> iteratePayments(DataStore store) {
+        return store.iteratePayments(PaymentQuery.ALL, Integer.MIN_VALUE);
+    }
+
+    // Give the provider an entry in the dictionary when it has none yet, returns the index
+    // of dictionary entries by provider code, grown when needed
+    private static int[] indexProvider(int[] index, List<String> names, Provider provider) {
+        int code = provider.getCode();
+        if (code >= index.length) {
+            int length = index.length;
+            index = Arrays.copyOf(index, Math.max(code + 1, length * 2));
+            Arrays.fill(index, length, index.length, -1);
+        }
+        if (index[code] < 0) {
+            index[code] = names.size();
+            names.add(provider.getName());
+        }
+        return index;
+    }
+
+    // Load the snapshot into an empty store, returns the lsn it covers
+    static long read(Path file, DataStore store) throws IOException {
+        try (Input in = new Input(FileChannel.open(file, StandardOpenOption.READ))) {
+            int magic = in.need(4).getInt();
+            if (magic != MAGIC) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            try {
+                return readRecords(in, file, store);
+            } catch (RuntimeException e) { // an index or date out of range, the CRC would not match either
+                throw new IOException("Snapshot is corrupt: " + file, e);
+            }
+        }
+    }
+
+    private static long readRecords(Input in, Path file, DataStore store) throws IOException {
+        ByteBuffer buffer = in.need(16);
+        long lsn = buffer.getLong();
+        long balance = buffer.getLong();
+
+        Posting.Kind[] kinds = in.readNames(Posting.Kind::valueOf, Posting.Kind[]::new);
+        BillType[] types = in.readNames(BillType::valueOf, BillType[]::new);
+        BillState[] billStates = in.readNames(BillState::valueOf, BillState[]::new);
+        PaymentState[] paymentStates = in.readNames(PaymentState::valueOf, PaymentState[]::new);
+        Provider[] providers = in.readNames(Provider::of, Provider[]::new);
+
+        Days days = new Days();
+        long postingCount = in.need(8).getLong();
+        for (long i = 0; i < postingCount; i++) {
+            buffer = in.need(POSTING_BYTES);
+            Posting.Kind kind = kinds[buffer.get()];
+            LocalDate date = days.of(buffer.getInt());
+            int reference = buffer.getInt();
+            store.restorePosting(kind, reference, buffer.getLong(), date);
+        }
+        checkBalance(store, balance);
+
+        int billCount = in.need(4).getInt();
+        store.expectBills(billCount);
+        for (int i = 0; i < billCount; i++) {
+            buffer = in.need(BILL_BYTES);
+            int id = buffer.getInt();
+            BillType type = types[buffer.get()];
+            long amount = buffer.getLong();
+            LocalDate dueDate = days.of(buffer.getInt());
+            BillState state = billStates[buffer.get()];
+            Provider provider = providers[buffer.getInt()];
+            int scheduledDay = buffer.getInt();
+
+            Bill bill = new Bill(id, type, amount, dueDate, provider);
+            if (state == BillState.PAID) {
+                bill.markPaid();
+            }
+            if (scheduledDay != NO_DAY) {
+                bill.setScheduledDate(days.of(scheduledDay));
+            }
+            store.applyBill(bill);
+        }
+
+        int paymentCount = in.need(4).getInt();
+        for (int i = 0; i < paymentCount; i++) {
+            buffer = in.need(PAYMENT_BYTES);
+            int id = buffer.getInt();
+            long amount = buffer.getLong();
+            LocalDate paymentDate = days.of(buffer.getInt());
+            PaymentState state = paymentStates[buffer.get()];
+            store.restorePayment(new Payment(id, amount, paymentDate, state, buffer.getInt()));
+        }
+        in.checkCrc(file);
+        return lsn;
+    }
+
+    private static void checkBalance(DataStore store, long balance) throws IOException {
+        if (store.getBalance() != balance) {
+            throw new IOException("Snapshot ledger adds up to " + store.getBalance() + ", not the balance " + balance);
+        }
+    }
+
+    // Shares the LocalDates read: millions of bills fall on a few thousand days
+    private static final class Days {
+        private final LocalDate[] dates = new LocalDate[4096];
+
+        LocalDate of(int day) {
+            int slot = day & (dates.length - 1);
+            LocalDate date = dates[slot];
+            if (date == null || date.toEpochDay() != day) {
+                date = LocalDate.ofEpochDay(day);
+                dates[slot] = date;
+            }
+            return date;
+        }
+    }
+
+    // Buffered writes to a channel, keeping a CRC32 of everything written
+    private static final class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        // The buffer, with room for the given number of bytes
+        ByteBuffer need(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        void writeNames(Enum<?>[] values) throws IOException {
+            String[] names = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                names[i] = values[i].name();
+            }
+            writeNames(names);
+        }
+
+        void writeNames(String[] names) throws IOException {
+            need(4).putInt(names.length);
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > Short.MAX_VALUE || bytes.length > BUFFER_SIZE - 2) {
+                    throw new IOException("Name too long for a snapshot: " + name);
+                }
+                need(2 + bytes.length).putShort((short) bytes.length).put(bytes);
+            }
+        }
+
+        // Append the CRC and force everything to disk
+        void finish() throws IOException {
+            flush();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            writeFully();
+            channel.force(true);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            writeFully();
+        }
+
+        private void writeFully() throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Buffered reads from a channel, keeping a CRC32 of everything consumed
+    private static final class Input implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).flip();
+        private final CRC32 crc = new CRC32();
+        private int checked; // position in the buffer up to which the CRC is updated
+
+        Input(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        // The buffer, with at least the given number of bytes left to read
+        ByteBuffer need(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return buffer;
+            }
+            updateCrc();
+            buffer.compact();
+            checked = 0;
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Snapshot ends early");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        <T> T[] readNames(Function<String, T> decode,
+                          IntFunction<T[]> arrays) throws IOException {
+            int count = need(4).getInt();
+            T[] values = arrays.apply(count);
+            for (int i = 0; i < count; i++) {
+                int length = need(2).getShort();
+                byte[] bytes = new byte[length];
+                need(length).get(bytes);
+                try {
+                    values[i] = decode.apply(new String(bytes, StandardCharsets.UTF_8));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Unknown name in snapshot: " + new String(bytes, StandardCharsets.UTF_8), e);
+                }
+            }
+            return values;
+        }
+
+        // Compare the trailing CRC with the one of everything read
+        void checkCrc(Path file) throws IOException {
+            updateCrc();
+            int expected = need(4).getInt();
+            if (expected != (int) crc.getValue() || buffer.hasRemaining() || channel.position() != channel.size()) {
+                throw new IOException("Snapshot is corrupt: " + file);
+            }
+        }
+
+        private void updateCrc() {
+            ByteBuffer consumed = buffer.duplicate();
+            consumed.limit(buffer.position()).position(checked);
+            crc.update(consumed);
+            checked = buffer.position();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
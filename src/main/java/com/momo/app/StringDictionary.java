@@ -0,0 +1,68 @@
+package com.momo.app;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Maps strings to compact int codes (their position in the file), persisted one per line
+class StringDictionary {
+    private final List<String> values = new ArrayList<>();   // code -> value, guarded by this
+    private final Map<String, Integer> codes = new HashMap<>(); // value -> code, guarded by this
+    private volatile String[] decodeTable = new String[0];    // copy of values for lock-free decode
+    private final BufferedWriter writer;
+
+    StringDictionary(Path file) throws IOException {
+        if (Files.exists(file)) {
+            for (String value : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                codes.put(value, values.size());
+                values.add(value);
+            }
+            decodeTable = values.toArray(new String[0]);
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    // The code of a value, adding it when it is new
+    synchronized int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Value cannot contain line breaks: " + value);
+        }
+        try {
+            writer.write(value);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to extend the dictionary", e);
+        }
+        codes.put(value, values.size());
+        values.add(value);
+        decodeTable = values.toArray(new String[0]);
+        return values.size() - 1;
+    }
+
+    // The code of a value, or -1 when it has never been added
+    synchronized int lookup(String value) {
+        return codes.getOrDefault(value, -1);
+    }
+
+    String decode(int code) {
+        return decodeTable[code];
+    }
+
+    void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,170 @@
+package com.momo.app;
+
+import java.util.Arrays;
+
+// Hierarchical timer wheel with a resolution of one day, holding (payload, kind) timers.
+//
+// LEVELS wheels of SLOTS slots each: level 0 has one slot per day, level 1 one per 64
+// days, level 2 one per 4096 days and so on. A timer goes to the lowest level whose
+// slot it can be told apart in; when the day reaches the start of a higher slot, the
+// timers in it are cascaded down. Adding a timer and firing one are O(1), and a day
+// with nothing due costs one slot check, whatever the number of timers.
+//
+// Timers are nodes in parallel primitive arrays linked by index, with a free list, so
+// millions of timers cost 17 bytes each and no object per timer. Not thread-safe.
+final class TimerWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    private static final int NONE = -1;
+
+    // Called for every timer as it fires
+    interface Handler {
+        void fire(int payload, int kind);
+    }
+
+    private final int[][] heads = new int[LEVELS][SLOTS]; // first node of every slot
+    private int expired = NONE;  // due on or before now, fired by the next advance
+    private int overflow = NONE; // too far out for the top level
+    private long now;            // epoch day, every timer due on or before it has fired
+
+    private long[] days = new long[64];
+    private int[] payloads = new int[64];
+    private byte[] kinds = new byte[64];
+    private int[] next = new int[64];
+    private int used;            // nodes handed out so far
+    private int free = NONE;     // recycled nodes
+    private int size;
+
+    TimerWheel(long today) {
+        this.now = today;
+        for (int[] level : heads) {
+            Arrays.fill(level, NONE);
+        }
+    }
+
+    long now() {
+        return now;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Fire payload with kind on the given epoch day, by the next advance if it is not after now
+    void add(long day, int payload, int kind) {
+        int node = allocate();
+        days[node] = day;
+        payloads[node] = payload;
+        kinds[node] = (byte) kind;
+        place(node);
+        size++;
+    }
+
+    // Move to the given day, firing every timer due on or before it, earliest day first
+    void advanceTo(long day, Handler handler) {
+        fireList(takeExpired(), handler);
+        if (size == 0) {
+            now = Math.max(now, day);
+            return;
+        }
+        while (now < day) {
+            now++;
+            cascade();
+            int slot = (int) (now & (SLOTS - 1));
+            int head = heads[0][slot];
+            heads[0][slot] = NONE;
+            fireList(head, handler);
+            fireList(takeExpired(), handler); // cascaded timers due exactly today
+            if (size == 0) {
+                now = day;
+            }
+        }
+    }
+
+    // Cascade the higher slots that start today, top level first
+    private void cascade() {
+        if ((now & ((1L << (SLOT_BITS * (LEVELS - 1))) - 1)) == 0) {
+            int list = overflow;
+            overflow = NONE;
+            replace(list);
+        }
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            int shift = SLOT_BITS * level;
+            if ((now & ((1L << shift) - 1)) == 0) {
+                int slot = (int) ((now >> shift) & (SLOTS - 1));
+                int list = heads[level][slot];
+                heads[level][slot] = NONE;
+                replace(list);
+            }
+        }
+    }
+
+    private void replace(int list) {
+        while (list != NONE) {
+            int following = next[list];
+            place(list);
+            list = following;
+        }
+    }
+
+    // Link the node into the expired list, the slot of the lowest level that can hold it, or overflow
+    private void place(int node) {
+        long day = days[node];
+        if (day <= now) {
+            next[node] = expired;
+            expired = node;
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            if ((day >> shift) - (now >> shift) < SLOTS) {
+                int slot = (int) ((day >> shift) & (SLOTS - 1));
+                next[node] = heads[level][slot];
+                heads[level][slot] = node;
+                return;
+            }
+        }
+        next[node] = overflow;
+        overflow = node;
+    }
+
+    private int takeExpired() {
+        int list = expired;
+        expired = NONE;
+        return list;
+    }
+
+    private void fireList(int list, Handler handler) {
+        while (list != NONE) {
+            int following = next[list];
+            int payload = payloads[list];
+            int kind = kinds[list];
+            release(list);
+            size--;
+            handler.fire(payload, kind);
+            list = following;
+        }
+    }
+
+    private int allocate() {
+        if (free != NONE) {
+            int node = free;
+            free = next[node];
+            return node;
+        }
+        if (used == days.length) {
+            int capacity = used * 2;
+            days = Arrays.copyOf(days, capacity);
+            payloads = Arrays.copyOf(payloads, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        return used++;
+    }
+
+    private void release(int node) {
+        next[node] = free;
+        free = node;
+    }
+}
@@ -0,0 +1,126 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountEngineTest {
+
+    private static final int SHARDS = 4;
+
+    private TestClock clock;
+    private AccountEngine engine;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new TestClock(LocalDate.of(2020, 10, 18));
+        engine = new AccountEngine(SHARDS, account -> new DataStore(), clock);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    @DisplayName("Each account should have its own balance, bills and payments")
+    void accounts_shouldBeIsolated() {
+        engine.execute("alice", store -> store.cashIn(300000));
+        assertTrue(engine.execute("alice", store -> store.payBills(List.of(1))).isSuccess());
+
+        assertEquals(0, (long) engine.execute("bob", DataStore::getBalance));
+        assertTrue(engine.execute("bob", DataStore::getPayments).isEmpty());
+        assertEquals(BillState.NOT_PAID, engine.execute("bob", store -> store.findBill(1).getState()));
+        assertEquals(100000, (long) engine.execute("alice", DataStore::getBalance));
+    }
+
+    @Test
+    @DisplayName("Commands of one account should run in order on a single thread")
+    void commands_ofOneAccount_shouldRunInOrderOnOneThread() {
+        List<CompletableFuture<String>> threads = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            engine.submit("alice", store -> store.cashIn(1));
+            threads.add(engine.submit("alice", store -> Thread.currentThread().getName()));
+        }
+        String first = threads.get(0).join();
+        for (CompletableFuture<String> thread : threads) {
+            assertEquals(first, thread.join());
+        }
+        assertEquals("account-shard-" + engine.shardOf("alice"), first);
+        assertEquals(1000, (long) engine.execute("alice", DataStore::getBalance));
+    }
+
+    @Test
+    @DisplayName("Commands for many accounts submitted at once should all be applied")
+    void commands_forManyAccounts_shouldAllBeApplied() {
+        List<CompletableFuture<Long>> results = new ArrayList<>();
+        for (int round = 0; round < 100; round++) {
+            for (int account = 0; account < 50; account++) {
+                results.add(engine.submit("account-" + account, store -> store.cashIn(10)));
+            }
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+        for (int account = 0; account < 50; account++) {
+            assertEquals(1000, (long) engine.execute("account-" + account, DataStore::getBalance));
+        }
+    }
+
+    @Test
+    @DisplayName("tickAll should settle due scheduled payments of every account")
+    void tickAll_shouldSettleScheduledPaymentsOfAllAccounts() {
+        for (String account : List.of("alice", "bob", "carol")) {
+            engine.execute(account, store -> store.cashIn(500000));
+            engine.execute(account, store -> store.scheduleBill(2, "20/10/2020"));
+        }
+        assertEquals(0, engine.tickAll());
+        clock.advanceDays(2);
+        assertEquals(3, engine.tickAll());
+        assertEquals(325000, (long) engine.execute("bob", DataStore::getBalance));
+    }
+
+    @Test
+    @DisplayName("An account whose tick fails should be reported without holding up the others")
+    void tickAll_withFailingAccount_shouldSettleTheOthers() {
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        PrintStream originalErr = System.err;
+        System.setErr(new PrintStream(errors, true));
+        engine.close();
+        engine = new AccountEngine(1, account -> !account.equals("broken") ? new DataStore() : new DataStore() {
+            @Override
+            Settlement[] settleScheduledPayments(int[] billIds, LocalDate paymentDate) {
+                throw new IllegalStateException("disk full");
+            }
+        }, clock);
+        try {
+            for (String account : List.of("alice", "broken", "carol")) {
+                engine.execute(account, store -> store.cashIn(500000));
+                engine.execute(account, store -> store.scheduleBill(2, "18/10/2020"));
+            }
+            assertEquals(2, engine.tickAll());
+            assertTrue(errors.toString().contains("Error: Tick of account broken failed, retrying at the next one: disk full"));
+            assertEquals(500000, (long) engine.execute("broken", DataStore::getBalance));
+        } finally {
+            System.setErr(originalErr);
+        }
+    }
+
+    @Test
+    @DisplayName("An exception thrown by a command should reach the caller")
+    void execute_shouldRethrowCommandFailure() {
+        Bill duplicate = new Bill(1, BillType.ELECTRIC, 1000, LocalDate.of(2025, 9, 15), Provider.of("EVN HCMC"));
+        assertThrows(IllegalArgumentException.class, () -> engine.execute("alice", store -> {
+            store.addBill(duplicate);
+            return null;
+        }));
+    }
+}
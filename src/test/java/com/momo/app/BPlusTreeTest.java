@@ -0,0 +1,86 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BPlusTreeTest {
+    private static final BPlusTree.ValueReader<Long> VALUE = (key, page, offset) -> page.getLong(offset);
+    private static final BPlusTree.ValueReader<Long> KEY = (key, page, offset) -> key;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Random puts, overwrites and removes should match a TreeMap, through evictions and a reopen")
+    void randomOperations_shouldMatchTreeMap() throws IOException {
+        Path path = dir.resolve("random.tree");
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        Random random = new Random(42);
+        try (PageFile file = new PageFile(path, PageFile.MIN_CACHE_PAGES)) {
+            BPlusTree tree = new BPlusTree(file, 8);
+            for (int i = 0; i < 200_000; i++) {
+                long key = random.nextInt(50_000) - 10_000;
+                if (random.nextInt(10) == 0) {
+                    assertEquals(expected.remove(key) != null, tree.remove(key));
+                } else {
+                    long value = random.nextLong();
+                    tree.put(key, (page, offset) -> page.putLong(offset, value));
+                    expected.put(key, value);
+                }
+            }
+            assertTrue(file.cacheMisses() > 0); // far more pages than the cache holds
+            assertTree(expected, tree);
+        }
+        try (PageFile file = new PageFile(path, PageFile.MIN_CACHE_PAGES)) {
+            assertTree(expected, new BPlusTree(file, 8));
+        }
+    }
+
+    @Test
+    @DisplayName("Appended keys should fill pages and scan in chunks from any key")
+    void appendedKeys_shouldScanInOrder() throws IOException {
+        try (PageFile file = new PageFile(dir.resolve("append.tree"), PageFile.MIN_CACHE_PAGES)) {
+            BPlusTree tree = new BPlusTree(file, 17);
+            for (long key = 1; key <= 100_000; key++) {
+                long value = key * 3;
+                tree.put(key, (page, offset) -> page.putLong(offset, value));
+            }
+            assertEquals(100_000, tree.size());
+            assertEquals(100_000, tree.maxKey());
+            assertTrue(file.pageCount() < 100_000 / 160 + 10, "pages: " + file.pageCount()); // 163 entries per leaf
+            assertEquals(3 * 4567L, tree.get(4567, VALUE));
+            assertNull(tree.get(100_001, VALUE));
+
+            List<Long> keys = new ArrayList<>();
+            long after = 99_000;
+            while (tree.scan(after, 300, KEY, keys) > 0) {
+                after = keys.get(keys.size() - 1);
+            }
+            assertEquals(1000, keys.size());
+            assertEquals(99_001L, keys.get(0));
+            assertEquals(100_000L, keys.get(999));
+        }
+    }
+
+    private static void assertTree(TreeMap<Long, Long> expected, BPlusTree tree) {
+        assertEquals(expected.size(), tree.size());
+        List<Long> keys = new ArrayList<>();
+        tree.scan(Long.MIN_VALUE, Integer.MAX_VALUE, KEY, keys);
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), tree.get(entry.getKey(), VALUE));
+        }
+        assertNull(tree.get(-20_000, VALUE));
+    }
+}
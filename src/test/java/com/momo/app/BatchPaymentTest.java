@@ -0,0 +1,152 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchPaymentTest {
+
+    private static final LocalDate DUE = LocalDate.of(2030, 1, 1);
+
+    @TempDir
+    Path dir;
+
+    private DataStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new DataStore(); // bills 1 (200000, due 25/10/2020), 2 (175000, 30/10/2020), 3 (800000, 30/11/2020)
+    }
+
+    @Test
+    @DisplayName("Invalid ids should be reported and skipped while the valid bills are paid")
+    void payBillsBestEffort_withInvalidIds_shouldPayTheOthers() {
+        store.cashIn(1200000);
+        store.payBills(List.of(2));
+
+        BatchPaymentReport report = store.payBillsBestEffort(List.of(3, 99, 2, 1, 3));
+
+        assertEquals(4, report.getBillCount()); // the repeated 3 counts once
+        assertEquals(3, report.getBillId(0));
+        assertTrue(report.isPaid(0));
+        assertEquals(ErrorCode.BILL_NOT_FOUND, report.getErrorCode(1));
+        assertEquals(ErrorCode.BILL_ALREADY_PAID, report.getErrorCode(2));
+        assertTrue(report.isPaid(3));
+        assertArrayEquals(new int[] {1, 3}, report.getPaidBillIds()); // earliest due date first
+        assertEquals(1025000, report.getBalanceBefore());
+        assertEquals(1000000, report.getTotalAmount());
+        assertEquals(25000, report.getBalance());
+    }
+
+    @Test
+    @DisplayName("A batch the balance covers none of should return at once, and a negative cash in should be refused")
+    void payBillsBestEffort_withNothingAffordable_shouldNotSpin() {
+        assertThrows(IllegalArgumentException.class, () -> store.cashIn(-1));
+        assertEquals(0, store.getBalance());
+
+        BatchPaymentReport report = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> store.payBillsBestEffort(List.of(1, 2)));
+
+        assertEquals(0, report.getPaidCount());
+        assertEquals(ErrorCode.INSUFFICIENT_FUNDS, report.getErrorCode(0));
+        assertEquals(ErrorCode.INSUFFICIENT_FUNDS, report.getErrorCode(1));
+        assertEquals(0, report.getBalance());
+        assertEquals(0, store.ledger().size());
+    }
+
+    @Test
+    @DisplayName("Bills should be paid earliest due date first while the balance covers them")
+    void payBillsBestEffort_withLimitedFunds_shouldPayInDueDateOrder() {
+        store.cashIn(400000);
+
+        BatchPaymentReport report = store.payBillsBestEffort(List.of(3, 2, 1));
+
+        // 1 and 2 are due first and fit; 3 does not fit in what is left
+        assertArrayEquals(new int[] {1, 2}, report.getPaidBillIds());
+        assertEquals(ErrorCode.INSUFFICIENT_FUNDS, report.getErrorCode(0));
+        assertEquals(25000, report.getBalance());
+        assertEquals(BillState.NOT_PAID, store.findBill(3).getState());
+        assertEquals(2, store.getPayments().size());
+    }
+
+    @Test
+    @DisplayName("A bill that does not fit should not stop a cheaper one due later")
+    void payBillsBestEffort_shouldSkipUnaffordableBill() {
+        store.addBill(new Bill(4, BillType.WATER, 50000, DUE, Provider.of("SAVACO HCMC")));
+        store.cashIn(100000);
+
+        BatchPaymentReport report = store.payBillsBestEffort(List.of(1, 4));
+
+        assertEquals(ErrorCode.INSUFFICIENT_FUNDS, report.getErrorCode(0));
+        assertArrayEquals(new int[] {4}, report.getPaidBillIds());
+        assertEquals(50000, store.getBalance());
+    }
+
+    @Test
+    @DisplayName("A large batch should be validated in parallel with the same outcome per id")
+    void payBillsBestEffort_largeBatch_shouldReportEveryId() {
+        int billCount = 10 * BillValidation.SEQUENTIAL_LIMIT;
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 4; id < 4 + billCount; id++) {
+            store.addBill(new Bill(id, BillType.INTERNET, 10, DUE.minusDays(id % 7), Provider.of("VNPT")));
+            ids.add(id);
+            if (id % 1000 == 0) {
+                ids.add(-id); // unknown
+            }
+        }
+        store.cashIn(10L * billCount);
+
+        BatchPaymentReport report = store.payBillsBestEffort(ids);
+
+        assertEquals(billCount, report.getPaidCount());
+        assertEquals(0, report.getBalance());
+        int[] paid = report.getPaidBillIds();
+        for (int i = 1; i < paid.length; i++) {
+            assertFalse(store.findBill(paid[i]).getDueDate().isBefore(store.findBill(paid[i - 1]).getDueDate()));
+        }
+        for (int i = 0; i < report.getBillCount(); i++) {
+            assertEquals(report.getBillId(i) > 0, report.isPaid(i), "bill " + report.getBillId(i));
+        }
+    }
+
+    @Test
+    @DisplayName("A best-effort payment should be journaled and survive a restart")
+    void payBillsBestEffort_shouldSurviveRestart() throws IOException {
+        try (Persistence persistence = Persistence.open(dir)) {
+            persistence.getStore().cashIn(400000);
+            persistence.getStore().payBillsBestEffort(List.of(3, 2, 1, 7));
+        }
+        try (Persistence persistence = Persistence.open(dir)) {
+            DataStore reopened = persistence.getStore();
+            assertEquals(25000, reopened.getBalance());
+            assertEquals(BillState.PAID, reopened.findBill(1).getState());
+            assertEquals(BillState.PAID, reopened.findBill(2).getState());
+            assertEquals(BillState.NOT_PAID, reopened.findBill(3).getState());
+        }
+    }
+
+    @Test
+    @DisplayName("The console should list the bills that were not paid")
+    void showBatchPayment_shouldListErrors() {
+        store.cashIn(400000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ConsolePresenter(new PrintStream(out)).showBatchPayment(store.payBillsBestEffort(List.of(1, 2, 3, 9)));
+        String output = out.toString();
+        assertTrue(output.contains("Error: Not enough funds to pay bill with id 3."));
+        assertTrue(output.contains("Error: Bill with id 9 not found."));
+        assertTrue(output.contains("Payment has been completed for 2 of 4 bill(s), total amount: 375000."));
+        assertTrue(output.contains("Your current balance: 25000"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BillAggregatesTest {
+
+    private static final String[] PROVIDERS = {"EVN HCMC", "SAVACO HCMC", "VNPT"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Aggregates kept through random inserts, payments and schedules should match a full scan")
+    void aggregates_afterRandomOperations_shouldMatchScan() {
+        DataStore store = new DataStore(new InMemoryBillRepository());
+        Random random = new Random(42);
+        List<Bill> bills = new ArrayList<>();
+        for (int id = 1; id <= 2000; id++) {
+            LocalDate dueDate = LocalDate.of(2019 + random.nextInt(3), 1 + random.nextInt(12), 28);
+            bills.add(new Bill(id, BillType.values()[random.nextInt(BillType.values().length)],
+                    1 + random.nextInt(100000), dueDate, Provider.of(PROVIDERS[random.nextInt(PROVIDERS.length)])));
+        }
+        store.addBills(bills);
+        store.cashIn(Long.MAX_VALUE / 4);
+        for (int i = 0; i < 1000; i++) {
+            int id = 1 + random.nextInt(2000);
+            if (random.nextBoolean()) {
+                store.payBills(List.of(id));
+            } else {
+                store.scheduleBill(id, "01/01/2019");
+            }
+        }
+        assertMatchesScan(store);
+    }
+
+    @Test
+    @DisplayName("Aggregates should be rebuilt by journal replay and snapshot loading")
+    void aggregates_afterRestart_shouldMatchScan() throws IOException {
+        try (Persistence persistence = Persistence.open(dir)) {
+            DataStore store = persistence.getStore();
+            store.cashIn(1000000);
+            store.scheduleBill(2, "20/10/2020");
+            store.payBills(List.of(1));
+            persistence.checkpoint();
+            store.addBill(new Bill(4, BillType.WATER, 50000, LocalDate.of(2020, 12, 1), Provider.of("SAVACO HCMC")));
+            store.scheduleBill(3, "01/11/2020");
+        }
+        try (Persistence persistence = Persistence.open(dir)) {
+            BillSummary summary = persistence.getStore().getSummary();
+            assertEquals(3, summary.getUnpaid().getCount());
+            assertEquals(175000 + 800000 + 50000, summary.getUnpaid().getAmount());
+            assertEquals(2, summary.getScheduled().getCount());
+            assertMatchesScan(persistence.getStore());
+        }
+    }
+
+    @Test
+    @DisplayName("Aggregates should be read from the columns of a reopened mapped repository")
+    void aggregates_overReopenedMappedRepository_shouldMatchScan() throws IOException {
+        Random random = new Random(7);
+        try (MappedBillRepository repository = new MappedBillRepository(dir)) {
+            for (int id = 1; id <= 500; id++) {
+                Bill bill = new Bill(id, BillType.values()[random.nextInt(BillType.values().length)],
+                        1 + random.nextInt(100000), LocalDate.of(2020, 1 + random.nextInt(12), 1),
+                        Provider.of(PROVIDERS[random.nextInt(PROVIDERS.length)]));
+                if (id % 3 == 0) {
+                    bill.markPaid();
+                } else if (id % 5 == 0) {
+                    bill.setScheduledDate(LocalDate.of(2020, 6, 1));
+                }
+                repository.add(bill);
+            }
+        }
+        try (MappedBillRepository repository = new MappedBillRepository(dir)) {
+            assertMatchesScan(new DataStore(repository));
+        }
+    }
+
+    private static void assertMatchesScan(DataStore store) {
+        long count = 0;
+        long amount = 0;
+        long scheduled = 0;
+        Map<BillType, Long> byType = new HashMap<>();
+        Map<String, Long> byProvider = new HashMap<>();
+        Map<YearMonth, Long> byMonth = new HashMap<>();
+        for (Bill bill : store.getBills()) {
+            if (bill.getState() == BillState.PAID) {
+                continue;
+            }
+            count++;
+            amount += bill.getAmount();
+            if (bill.getScheduledDate() != null) {
+                scheduled++;
+            }
+            byType.merge(bill.getType(), bill.getAmount(), Long::sum);
+            byProvider.merge(bill.getProvider().getName(), bill.getAmount(), Long::sum);
+            byMonth.merge(YearMonth.from(bill.getDueDate()), bill.getAmount(), Long::sum);
+        }
+
+        BillSummary summary = store.getSummary();
+        assertEquals(count, summary.getUnpaid().getCount());
+        assertEquals(amount, summary.getUnpaid().getAmount());
+        assertEquals(scheduled, summary.getScheduled().getCount());
+        assertEquals(byType, amounts(summary.getByType()));
+        assertEquals(byProvider, amounts(summary.getByProvider()));
+        assertEquals(byMonth, amounts(summary.getByDueMonth()));
+    }
+
+    private static <K> Map<K, Long> amounts(Map<K, BillSummary.Totals> totals) {
+        Map<K, Long> amounts = new HashMap<>();
+        totals.forEach((key, value) -> amounts.put(key, value.getAmount()));
+        return amounts;
+    }
+}
@@ -0,0 +1,217 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BillImporterTest {
+
+    @TempDir
+    Path dir;
+
+    private DataStore store;
+    private final PrintStream originalOut = System.out;
+
+    @BeforeEach
+    public void setUp() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // Drop console output
+        store = new DataStore();
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    @DisplayName("CSV import should add bills, using the header for the column order")
+    void importCsv_withHeader_shouldAddBills() throws IOException {
+        Path file = dir.resolve("statement.csv");
+        Files.write(file, List.of(
+                "provider,id,type,amount,due_date",
+                "\"EVN HCMC\",4,ELECTRIC,210000,2020-11-25",
+                "\"SAVACO, \"\"HCMC\"\"\",5,WATER,90000,30/11/2020"));
+
+        ImportReport report = new BillImporter(store).importFile(file);
+
+        assertEquals(2, report.getImported());
+        assertEquals("4. ELECTRIC 210000 2020-11-25 NOT_PAID EVN HCMC", store.findBill(4).toString());
+        assertEquals("SAVACO, \"HCMC\"", store.findBill(5).getProvider().getName());
+        assertEquals(LocalDate.of(2020, 11, 30), store.findBill(5).getDueDate());
+    }
+
+    @Test
+    @DisplayName("Duplicate ids in the store or in the file should be skipped and counted")
+    void importCsv_withDuplicates_shouldKeepFirst() throws IOException {
+        Path file = dir.resolve("statement.csv");
+        Files.write(file, List.of(
+                "1,ELECTRIC,1,2020-11-25,EVN HCMC",
+                "4,WATER,100,2020-11-25,SAVACO HCMC",
+                "4,WATER,999,2020-11-25,SAVACO HCMC"));
+
+        ImportReport report = new BillImporter(store).importFile(file);
+
+        assertEquals(3, report.getRowsRead());
+        assertEquals(1, report.getImported());
+        assertEquals(2, report.getDuplicates());
+        assertEquals(200000, store.findBill(1).getAmount());
+        assertEquals(100, store.findBill(4).getAmount());
+    }
+
+    @Test
+    @DisplayName("Malformed rows should be rejected with their line number")
+    void importCsv_withMalformedRows_shouldRejectThem() throws IOException {
+        Path file = dir.resolve("statement.csv");
+        Files.write(file, List.of(
+                "4,WATER,100,2020-11-25,SAVACO HCMC",
+                "5,GAS,100,2020-11-25,PETROLIMEX",
+                "6,WATER,abc,2020-11-25,SAVACO HCMC",
+                "",
+                "7,WATER,100,2020-11-25"));
+
+        ImportReport report = new BillImporter(store).importFile(file);
+
+        assertEquals(1, report.getImported());
+        assertEquals(3, report.getRejected());
+        assertTrue(report.getErrors().get(0).startsWith("Line 2:"));
+        assertTrue(report.getErrors().get(2).startsWith("Line 5:"));
+    }
+
+    @Test
+    @DisplayName("Rows with an id that is not positive should be rejected, even on the first line")
+    void importCsv_withNonPositiveIds_shouldRejectThem() throws IOException {
+        Path file = dir.resolve("statement.csv");
+        Files.write(file, List.of(
+                "-4,WATER,100,2020-11-25,SAVACO HCMC",
+                "0,WATER,100,2020-11-25,SAVACO HCMC",
+                "5,WATER,100,2020-11-25,SAVACO HCMC"));
+
+        ImportReport report = new BillImporter(store).importFile(file);
+
+        assertEquals(1, report.getImported());
+        assertEquals(List.of("Line 1: id must be positive, got -4", "Line 2: id must be positive, got 0"),
+                report.getErrors());
+    }
+
+    @Test
+    @DisplayName("Rows with an amount that is not positive or above Money.MAX should be rejected")
+    void importCsv_withOutOfRangeAmounts_shouldRejectThem() throws IOException {
+        Path file = dir.resolve("statement.csv");
+        Files.write(file, List.of(
+                "4,WATER,0,2020-11-25,SAVACO HCMC",
+                "5,WATER,-100,2020-11-25,SAVACO HCMC",
+                "6,WATER," + Long.MAX_VALUE + ",2020-11-25,SAVACO HCMC",
+                "7,WATER," + Money.MAX + ",2020-11-25,SAVACO HCMC"));
+
+        ImportReport report = new BillImporter(store).importFile(file);
+
+        assertEquals(1, report.getImported());
+        assertEquals(3, report.getRejected());
+        assertTrue(report.getErrors().get(0).startsWith("Line 1: amount must be between 1 and"));
+        assertTrue(report.getErrors().get(1).startsWith("Line 2: amount must be between 1 and"));
+        assertTrue(report.getErrors().get(2).startsWith("Line 3: amount must be between 1 and"));
+        assertEquals(Money.MAX, store.findBill(7).getAmount());
+    }
+
+    @Test
+    @DisplayName("A malformed first line should be rejected rather than taken for a header")
+    void importCsv_withMalformedFirstLine_shouldRejectIt() throws IOException {
+        Path file = dir.resolve("statement.csv");
+        Files.write(file, List.of(
+                "x4,WATER,100,2020-11-25,SAVACO HCMC",
+                "5,WATER,100,2020-11-25,SAVACO HCMC"));
+
+        ImportReport report = new BillImporter(store).importFile(file);
+
+        assertEquals(2, report.getRowsRead());
+        assertEquals(1, report.getImported());
+        assertTrue(report.getErrors().get(0).startsWith("Line 1:"));
+    }
+
+    @Test
+    @DisplayName("JSON lines with an invalid id or amount should be rejected with their line number")
+    void importJsonLines_withInvalidValues_shouldRejectThem() throws IOException {
+        Path file = dir.resolve("statement.jsonl");
+        Files.write(file, List.of(
+                "{\"id\":0,\"type\":\"WATER\",\"amount\":100,\"dueDate\":\"2020-12-02\",\"provider\":\"VNPT\"}",
+                "{\"id\":4,\"type\":\"WATER\",\"amount\":-1,\"dueDate\":\"2020-12-02\",\"provider\":\"VNPT\"}"));
+
+        ImportReport report = new BillImporter(store).importFile(file);
+
+        assertEquals(0, report.getImported());
+        assertEquals(List.of("Line 1: id must be positive, got 0", "Line 2: amount must be between 1 and "
+                + Money.MAX + ", got -1"), report.getErrors());
+    }
+
+    @Test
+    @DisplayName("JSON lines import should add bills")
+    void importJsonLines_shouldAddBills() throws IOException {
+        Path file = dir.resolve("statement.jsonl");
+        Files.write(file, List.of(
+                "{\"id\": 4, \"type\": \"INTERNET\", \"amount\": 300000, \"dueDate\": \"2020-12-01\", \"provider\": \"VNPT\"}",
+                "{\"id\":5,\"type\":\"WATER\",\"amount\":50000,\"dueDate\":\"2020-12-02\",\"provider\":\"SAVACO \\\"HCMC\\\"\",\"note\":null}",
+                "{\"id\":6,\"type\":\"WATER\""));
+
+        ImportReport report = new BillImporter(store).importFile(file);
+
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals("4. INTERNET 300000 2020-12-01 NOT_PAID VNPT", store.findBill(4).toString());
+        assertEquals("SAVACO \"HCMC\"", store.findBill(5).getProvider().getName());
+    }
+
+    @Test
+    @DisplayName("Parallel import with small chunks should keep file order for duplicates")
+    void importCsv_inManySmallChunks_shouldImportEverything() throws IOException {
+        Path file = dir.resolve("statement.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int id = 4; id < 20004; id++) {
+                writer.write(id + ",WATER," + id + ",2021-01-01,SAVACO HCMC\n");
+            }
+            writer.write("10,WATER,1,2021-01-01,SAVACO HCMC\n"); // duplicate at the very end
+        }
+
+        ImportReport report = new BillImporter(store, 4, 100).importFile(file);
+
+        assertEquals(20000, report.getImported());
+        assertEquals(1, report.getDuplicates());
+        assertEquals(10, store.findBill(10).getAmount());
+        assertEquals(20003, store.getBills().size());
+    }
+
+    @Test
+    @DisplayName("A file with ids out of order should import the same into the mapped and in-memory repositories")
+    void importCsv_outOfIdOrder_shouldMatchInBothRepositories() throws IOException {
+        Path file = dir.resolve("statement.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int id = 10003; id >= 4; id--) { // every row, and every chunk, below the one before
+                writer.write(id + ",WATER," + id + ",2021-01-01,SAVACO HCMC\n");
+            }
+        }
+
+        try (MappedBillRepository repository = new MappedBillRepository(dir.resolve("bills"))) {
+            DataStore mapped = new DataStore(repository);
+            mapped.addSampleBills();
+            ImportReport report = new BillImporter(mapped, 4, 100).importFile(file);
+
+            assertEquals(10000, report.getImported());
+            assertEquals(0, report.getDuplicates());
+            assertEquals(new BillImporter(store, 4, 100).importFile(file).getImported(), report.getImported());
+            assertEquals(store.getBills().stream().map(Bill::toString).toList(),
+                    mapped.getBills().stream().map(Bill::toString).toList());
+        }
+    }
+}
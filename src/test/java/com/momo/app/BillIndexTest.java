@@ -0,0 +1,53 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BillIndexTest {
+
+    private BillIndex index;
+    private Bill electric;
+    private Bill water;
+    private Bill internet;
+
+    @BeforeEach
+    public void setUp() {
+        index = new BillIndex();
+        electric = new Bill(1, BillType.ELECTRIC, 200000, LocalDate.of(2020, 10, 25), Provider.of("EVN HCMC"));
+        water = new Bill(2, BillType.WATER, 175000, LocalDate.of(2020, 10, 30), Provider.of("SAVACO HCMC"));
+        internet = new Bill(3, BillType.INTERNET, 800000, LocalDate.of(2020, 11, 30), Provider.of("VNPT"));
+        index.add(electric);
+        index.add(water);
+        index.add(internet);
+    }
+
+    @Test
+    @DisplayName("Provider index should only return bills of that provider")
+    void findByProvider_shouldReturnMatchingBills() {
+        assertEquals(List.of(internet), index.findByProvider(Provider.of("VNPT")));
+        assertTrue(index.findByProvider(Provider.of("NONEXISTENT")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("markPaid should move the bill between state indexes")
+    void markPaid_shouldUpdateStateIndex() {
+        electric.markPaid();
+        assertFalse(index.findByState(BillState.NOT_PAID).contains(electric));
+        assertTrue(index.findByState(BillState.PAID).contains(electric));
+        assertEquals(List.of(water, internet),
+                index.findUnpaidDueBetween(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31)));
+    }
+
+    @Test
+    @DisplayName("Due date range query should be ordered by due date and inclusive")
+    void findUnpaidDueBetween_shouldReturnRangeInDueDateOrder() {
+        assertEquals(List.of(electric, water),
+                index.findUnpaidDueBetween(LocalDate.of(2020, 10, 25), LocalDate.of(2020, 10, 30)));
+    }
+}
@@ -0,0 +1,92 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandLineTest {
+
+    private static final String[] COMMANDS = {"PAY", "CASH_IN", "IMPORT"};
+
+    @Test
+    @DisplayName("parse should split on runs of whitespace")
+    void parse_shouldSkipWhitespaceRuns() {
+        CommandLine line = new CommandLine().parse("  pay\t1   2 3 ");
+        assertEquals(4, line.size());
+        assertEquals(0, line.commandIndex(COMMANDS));
+        assertEquals(1, line.intToken(1));
+        assertEquals(3, line.intToken(3));
+    }
+
+    @Test
+    @DisplayName("commandIndex should return -1 for unknown or partial names")
+    void commandIndex_shouldRejectUnknownNames() {
+        CommandLine line = new CommandLine();
+        assertEquals(-1, line.parse("PA 1").commandIndex(COMMANDS));
+        assertEquals(-1, line.parse("PAYX 1").commandIndex(COMMANDS));
+        assertEquals(-1, line.parse("   ").commandIndex(COMMANDS));
+    }
+
+    @Test
+    @DisplayName("intToken should reject non digits and values outside the int range")
+    void intToken_shouldRejectInvalidNumbers() {
+        CommandLine line = new CommandLine().parse("CASH_IN 12a 99999999999999 -2147483648 2147483648 -");
+        assertThrows(NumberFormatException.class, () -> line.intToken(1));
+        assertThrows(NumberFormatException.class, () -> line.intToken(2));
+        assertEquals(Integer.MIN_VALUE, line.intToken(3));
+        assertThrows(NumberFormatException.class, () -> line.intToken(4));
+        assertThrows(NumberFormatException.class, () -> line.intToken(5));
+    }
+
+    @Test
+    @DisplayName("longToken should accept amounts past the int range and reject values outside the long range")
+    void longToken_shouldParseLongs() {
+        CommandLine line = new CommandLine().parse("CASH_IN 99999999999999 -9223372036854775808 9223372036854775807 9223372036854775808 1x");
+        assertEquals(99999999999999L, line.longToken(1));
+        assertEquals(Long.MIN_VALUE, line.longToken(2));
+        assertEquals(Long.MAX_VALUE, line.longToken(3));
+        assertThrows(NumberFormatException.class, () -> line.longToken(4));
+        assertThrows(NumberFormatException.class, () -> line.longToken(5));
+    }
+
+    @Test
+    @DisplayName("takeIntOption should remove the option and its value from anywhere after the command")
+    void takeIntOption_shouldRemoveBothTokens() {
+        CommandLine line = new CommandLine().parse("LIST_BILL --limit 20 --AFTER 7");
+        assertEquals(7, line.takeIntOption("--after", 0));
+        assertEquals(20, line.takeIntOption("--limit", 0));
+        assertEquals(-1, line.takeIntOption("--limit", -1));
+        assertEquals(1, line.size());
+        assertThrows(NumberFormatException.class, () -> line.parse("LIST_BILL --limit").takeIntOption("--limit", 0));
+        assertThrows(NumberFormatException.class, () -> line.parse("LIST_BILL --limit x").takeIntOption("--limit", 0));
+    }
+
+    @Test
+    @DisplayName("A reused CommandLine should grow for long lines and keep the rest of a line")
+    void parse_shouldGrowAndKeepRest() {
+        StringBuilder pay = new StringBuilder("PAY");
+        for (int i = 1; i <= 40; i++) {
+            pay.append(' ').append(i);
+        }
+        CommandLine line = new CommandLine().parse(pay.toString());
+        assertEquals(41, line.size());
+        assertEquals(40, line.intToken(40));
+        line.parse("IMPORT my bills.csv");
+        assertEquals(3, line.size());
+        assertEquals("my bills.csv", line.rest(1));
+    }
+
+    @Test
+    @DisplayName("skip should make the next token the command")
+    void skip_shouldDropAccountPrefix() {
+        CommandLine line = new CommandLine().parse("@alice pay 7");
+        assertTrue(line.startsWith(0, '@'));
+        line.skip();
+        assertEquals(2, line.size());
+        assertEquals(0, line.commandIndex(COMMANDS));
+        assertEquals(7, line.intToken(1));
+        line.parse("PAY 8");
+        assertEquals(2, line.size());
+    }
+}
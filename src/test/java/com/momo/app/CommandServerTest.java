@@ -0,0 +1,110 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandServerTest {
+
+    private AccountEngine engine;
+    private CommandServer server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        engine = new AccountEngine(2, account -> new DataStore(), new TestClock(LocalDate.of(2020, 10, 18)));
+        server = new CommandServer(engine, new Metrics(App.COMMANDS), 0);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.close();
+        engine.close();
+    }
+
+    @Test
+    @DisplayName("A client should get the console output of each command")
+    void commands_shouldAnswerWithConsoleOutput() throws IOException {
+        try (Client client = new Client(server.getPort())) {
+            assertEquals(List.of("Your available balance: 300000"), client.send("CASH_IN 300000"));
+            assertEquals(List.of("Your available balance: 300000", "Payment has been completed for 1 bill(s).",
+                    "Your current balance: 100000"), client.send("PAY 1"));
+            assertEquals(List.of("Unknown command."), client.send("HELLO"));
+            List<String> stats = client.send("STATS");
+            assertEquals("Command Count p50(us) p99(us) Max(us)", stats.get(0));
+            assertTrue(stats.get(1).startsWith("CASH_IN 1 "));
+            assertTrue(stats.get(2).startsWith("PAY 1 "));
+            assertEquals(List.of("Goodbye!"), client.send("EXIT"));
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent clients on their own accounts should not see each other")
+    void concurrentClients_shouldUseTheirOwnAccounts() throws Exception {
+        int clients = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                String account = "@client-" + i + " ";
+                results.add(executor.submit(() -> {
+                    try (Client client = new Client(server.getPort())) {
+                        for (int round = 0; round < 20; round++) {
+                            client.send(account + "CASH_IN 1000");
+                        }
+                        return client.send(account + "CASH_IN 0");
+                    }
+                }));
+            }
+            for (Future<List<String>> result : results) {
+                assertEquals(List.of("Your available balance: 20000"), result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+
+        Client(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        }
+
+        List<String> send(String command) throws IOException {
+            out.println(command);
+            List<String> lines = new ArrayList<>();
+            String line;
+            while (!(line = in.readLine()).equals(CommandServer.END_OF_RESPONSE)) {
+                lines.add(line);
+            }
+            return lines;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataStoreConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private DataStore store;
+    private final PrintStream originalOut = System.out;
+
+    @BeforeEach
+    public void setUp() {
+        store = new DataStore();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // Drop console output
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    @DisplayName("Concurrent CASH_IN should not lose updates")
+    void cashIn_concurrently_shouldNotLoseUpdates() throws Exception {
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < 10000; i++) {
+                store.cashIn(1);
+            }
+        });
+        assertEquals(THREADS * 10000, store.getBalance());
+    }
+
+    @Test
+    @DisplayName("Concurrent overlapping PAY should pay every bill exactly once")
+    void payBills_concurrentlyOnOverlappingBills_shouldPayEachBillOnce() throws Exception {
+        int billCount = 2000;
+        for (int id = 4; id < 4 + billCount; id++) {
+            store.addBill(new Bill(id, BillType.ELECTRIC, 10, LocalDate.of(2030, 1, 1), Provider.of("EVN HCMC")));
+        }
+        store.cashIn(billCount * 10);
+
+        // Each thread pays every bill in pairs, walking the ids in a different direction
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < billCount; i += 2) {
+                int first = thread % 2 == 0 ? 4 + i : 4 + billCount - 1 - i;
+                int second = thread % 2 == 0 ? first + 1 : first - 1;
+                store.payBills(List.of(first, second));
+            }
+        });
+
+        assertEquals(0, store.getBalance());
+        for (int id = 4; id < 4 + billCount; id++) {
+            assertEquals(BillState.PAID, store.findBill(id).getState());
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent PAY should never spend more than the balance")
+    void payBills_concurrentlyWithLimitedFunds_shouldNeverOverdraw() throws Exception {
+        int billCount = 1000;
+        for (int id = 4; id < 4 + billCount; id++) {
+            store.addBill(new Bill(id, BillType.WATER, 10, LocalDate.of(2030, 1, 1), Provider.of("SAVACO HCMC")));
+        }
+        store.cashIn(billCount * 10 / 2); // Enough for half of the bills
+
+        runConcurrently(THREADS, thread -> {
+            for (int id = 4 + thread; id < 4 + billCount; id += THREADS) {
+                store.payBills(List.of(id));
+            }
+        });
+
+        int paid = 0;
+        for (int id = 4; id < 4 + billCount; id++) {
+            if (store.findBill(id).getState() == BillState.PAID) {
+                paid++;
+            }
+        }
+        assertEquals(billCount / 2, paid);
+        assertEquals(0, store.getBalance());
+    }
+
+    @Test
+    @DisplayName("Concurrent best-effort PAY batches should pay each bill once and never overdraw")
+    void payBillsBestEffort_concurrently_shouldPayEachBillOnce() throws Exception {
+        int billCount = 4000;
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 4; id < 4 + billCount; id++) {
+            store.addBill(new Bill(id, BillType.WATER, 10, LocalDate.of(2030, 1, 1), Provider.of("SAVACO HCMC")));
+            ids.add(id);
+        }
+        store.cashIn(billCount * 10 / 2); // Enough for half of the bills
+
+        int[] paid = new int[THREADS];
+        runConcurrently(THREADS, thread -> paid[thread] = store.payBillsBestEffort(ids).getPaidCount());
+
+        assertEquals(billCount / 2, java.util.Arrays.stream(paid).sum());
+        assertEquals(0, store.getBalance());
+    }
+
+    @Test
+    @DisplayName("Concurrent SCHEDULE_BILL should create a single PENDING payment per bill")
+    void scheduleBill_concurrently_shouldScheduleOnce() throws Exception {
+        runConcurrently(THREADS, thread -> store.scheduleBill(1, "20/10/2020"));
+        assertEquals(1, store.getPayments().size());
+        assertNotNull(store.findPendingPaymentByBillId(1));
+        assertEquals(LocalDate.of(2020, 10, 20), store.findBill(1).getScheduledDate());
+    }
+
+    private interface Task {
+        void run(int thread);
+    }
+
+    private static void runConcurrently(int threads, Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
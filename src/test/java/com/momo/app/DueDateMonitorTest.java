@@ -0,0 +1,120 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DueDateMonitorTest {
+
+    private DataStore store;
+    private TestClock clock;
+    private DueDateMonitor monitor;
+    private final List<String> events = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        store = new DataStore(); // bills 1, 2 and 3 are due 25/10, 30/10 and 30/11/2020
+        clock = new TestClock(LocalDate.of(2020, 10, 18));
+        monitor = new DueDateMonitor(store, clock);
+        monitor.addListener(new DueDateListener() {
+            @Override
+            public void billDueSoon(Bill bill) {
+                events.add("soon " + bill.getId());
+            }
+
+            @Override
+            public void scheduledPaymentSoon(Bill bill) {
+                events.add("scheduled " + bill.getId());
+            }
+
+            @Override
+            public void billOverdue(Bill bill) {
+                events.add("overdue " + bill.getId());
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        monitor.close();
+    }
+
+    @Test
+    @DisplayName("A reminder should fire before the due date and an overdue event the day after it")
+    void tick_shouldRemindThenReportOverdue() {
+        assertEquals(0, monitor.tick());
+        clock.advanceDays(4); // 22/10, three days before bill 1
+        assertEquals(1, monitor.tick());
+        assertEquals(List.of("soon 1"), events);
+
+        clock.advanceDays(4); // 26/10
+        monitor.tick();
+        assertEquals(List.of("soon 1", "overdue 1"), events);
+        assertEquals(List.of(1), ids(monitor.getOverdueBills()));
+        assertEquals(1, monitor.getRemindersSent());
+    }
+
+    @Test
+    @DisplayName("Paid bills should neither be reminded of nor listed as overdue")
+    void tick_shouldSkipPaidBills() {
+        store.cashIn(1000000);
+        clock.advanceDays(13); // 31/10, 1 and 2 are overdue
+        assertEquals(List.of(1, 2), ids(monitor.getOverdueBills()));
+
+        store.payBills(List.of(1, 3));
+        assertEquals(List.of(2), ids(monitor.getOverdueBills()));
+        clock.advanceDays(40);
+        assertEquals(List.of(2), ids(monitor.getOverdueBills()));
+        assertFalse(events.contains("soon 3"));
+        assertFalse(events.contains("overdue 3"));
+    }
+
+    @Test
+    @DisplayName("Bills added later and scheduled payments should get their own timers")
+    void billAddedAndScheduled_shouldBeMonitored() {
+        store.addBill(new Bill(4, BillType.WATER, 1000, LocalDate.of(2020, 10, 20), Provider.of("SAVACO HCMC")));
+        store.scheduleBill(3, "10/11/2020");
+        monitor.tick(); // 18/10, bill 4 is due within the reminder window
+        assertEquals(List.of("soon 4"), events);
+
+        clock.advanceDays(3); // 21/10
+        monitor.tick();
+        assertEquals(List.of(4), ids(monitor.getOverdueBills()));
+
+        clock.advanceDays(17); // 07/11, three days before the scheduled payment
+        monitor.tick();
+        assertTrue(events.contains("scheduled 3"));
+    }
+
+    @Test
+    @DisplayName("Bills already past due when the monitor starts should be overdue on the first tick")
+    void newMonitor_shouldFindPastDueBills() {
+        DueDateMonitor late = new DueDateMonitor(store, new TestClock(LocalDate.of(2021, 1, 1)));
+        assertEquals(List.of(1, 2, 3), ids(late.getOverdueBills()));
+        late.close();
+    }
+
+    @Test
+    @DisplayName("DUE_WITHIN should list the unpaid bills due in the next days by the monitor's clock")
+    void getBillsDueWithin_shouldUseTheClock() {
+        assertEquals(List.of(1), ids(monitor.getBillsDueWithin(7)));
+        assertEquals(List.of(1, 2), ids(monitor.getBillsDueWithin(12)));
+        clock.advanceDays(10); // 28/10
+        assertEquals(List.of(2, 3), ids(monitor.getBillsDueWithin(40)));
+    }
+
+    private static List<Integer> ids(List<Bill> bills) {
+        List<Integer> ids = new ArrayList<>();
+        for (Bill bill : bills) {
+            ids.add(bill.getId());
+        }
+        return ids;
+    }
+}
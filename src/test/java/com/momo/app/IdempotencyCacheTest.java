@@ -0,0 +1,139 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+    private TestClock clock;
+    private IdempotencyCache<Integer> cache;
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        clock = new TestClock(LocalDate.of(2020, 10, 18));
+        cache = new IdempotencyCache<>(3, Duration.ofDays(1), clock);
+    }
+
+    @Test
+    @DisplayName("A repeated key should return the first result without running again")
+    void getOrRun_withRepeatedKey_shouldRunOnce() {
+        assertEquals(1, cache.getOrRun("a", "", runs::incrementAndGet));
+        assertEquals(1, cache.getOrRun("a", "", runs::incrementAndGet));
+        assertEquals(1, runs.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    @DisplayName("A full cache should evict its oldest key")
+    void getOrRun_whenFull_shouldEvictOldest() {
+        for (String key : List.of("a", "b", "c", "d")) {
+            cache.getOrRun(key, "", runs::incrementAndGet);
+        }
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(5, cache.getOrRun("a", "", runs::incrementAndGet)); // forgotten, runs again
+        assertEquals(3, cache.getOrRun("c", "", runs::incrementAndGet)); // still there
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("Keys older than the ttl should expire")
+    void getOrRun_afterTtl_shouldRunAgain() {
+        cache.getOrRun("a", "", runs::incrementAndGet);
+        clock.advanceDays(1);
+        assertEquals(2, cache.getOrRun("a", "", runs::incrementAndGet));
+        assertEquals(1, cache.getExpirationCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("A request that throws should not be remembered")
+    void getOrRun_whenRequestThrows_shouldNotRemember() {
+        assertThrows(IllegalStateException.class, () -> cache.getOrRun("a", "", () -> {
+            throw new IllegalStateException("down");
+        }));
+        assertEquals(0, cache.size());
+        assertEquals(7, cache.getOrRun("a", "", () -> 7));
+    }
+
+    @Test
+    @DisplayName("Concurrent requests with the same key should run once and share the result")
+    void getOrRun_concurrently_shouldRunOnce() throws Exception {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] results = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                results[i] = executor.submit(() -> {
+                    start.await();
+                    return cache.getOrRun("a", "", runs::incrementAndGet);
+                });
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                assertEquals(1, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    @DisplayName("A key reused with other arguments should be refused instead of returning the first result")
+    void getOrRun_withOtherArguments_shouldThrow() {
+        assertEquals(1, cache.getOrRun("a", List.of(1, 2), runs::incrementAndGet));
+        assertEquals(1, cache.getOrRun("a", List.of(1, 2), runs::incrementAndGet));
+        assertThrows(IllegalArgumentException.class, () -> cache.getOrRun("a", List.of(1, 3), runs::incrementAndGet));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    @DisplayName("A PAY or CASH_IN key reused for another amount or other bills should be refused")
+    void dataStore_keyReusedWithOtherArguments_shouldBeRefused() {
+        DataStore store = new DataStore(new InMemoryBillRepository(), clock);
+        store.addBill(new Bill(1, BillType.ELECTRIC, 200000, LocalDate.of(2020, 10, 25), Provider.of("EVN HCMC")));
+        store.addBill(new Bill(2, BillType.WATER, 50000, LocalDate.of(2020, 10, 30), Provider.of("SAVACO HCMC")));
+        assertEquals(300000, store.cashIn("cash-1", 300000));
+        assertThrows(IllegalArgumentException.class, () -> store.cashIn("cash-1", 500000));
+
+        assertTrue(store.payBills("pay-1", List.of(1)).isSuccess());
+        assertThrows(IllegalArgumentException.class, () -> store.payBills("pay-1", List.of(2)));
+        assertEquals(1, store.payBillsBestEffort("batch-1", List.of(2)).getPaidCount());
+        assertThrows(IllegalArgumentException.class, () -> store.payBillsBestEffort("batch-1", List.of(1, 2)));
+        assertEquals(50000, store.getBalance());
+    }
+
+    @Test
+    @DisplayName("A retried PAY or CASH_IN with the same key should not move money twice")
+    void dataStore_retriedRequests_shouldApplyOnce() {
+        DataStore store = new DataStore(new InMemoryBillRepository(), clock);
+        store.addBill(new Bill(1, BillType.ELECTRIC, 200000, LocalDate.of(2020, 10, 25), Provider.of("EVN HCMC")));
+        assertEquals(300000, store.cashIn("cash-1", 300000));
+        assertEquals(300000, store.cashIn("cash-1", 300000));
+
+        PaymentResult first = store.payBills("pay-1", List.of(1));
+        assertSame(first, store.payBills("pay-1", List.of(1)));
+        assertTrue(first.isSuccess());
+        assertEquals(100000, store.getBalance());
+        assertEquals(1, store.getPayments().size());
+
+        assertEquals(ErrorCode.BILL_ALREADY_PAID, store.payBills("pay-2", List.of(1)).getErrorCode());
+        assertEquals(1, store.paymentRequests().getHitCount());
+    }
+}
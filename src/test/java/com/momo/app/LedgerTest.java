@@ -0,0 +1,110 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Point-in-time balances should match a full scan of the postings")
+    void balanceAt_shouldMatchFullScan() {
+        Ledger ledger = new Ledger();
+        Random random = new Random(42);
+        LocalDate date = START;
+        for (int i = 0; i < 5 * Ledger.CHUNK_SIZE + 17; i++) {
+            date = date.plusDays(random.nextInt(3) == 0 ? 1 : 0);
+            if (random.nextBoolean()) {
+                ledger.cashIn(random.nextInt(100000), date);
+            } else {
+                Bill bill = new Bill(i, BillType.WATER, random.nextInt(100000), date, Provider.of("VNPT"));
+                ledger.pay(new Bill[] {bill}, 1, bill.getAmount(), date);
+            }
+        }
+
+        List<Posting> postings = new ArrayList<>();
+        ledger.postings(0).forEachRemaining(postings::add);
+        assertEquals(ledger.size(), postings.size());
+        for (LocalDate day = START.minusDays(1); !day.isAfter(date.plusDays(1)); day = day.plusDays(1)) {
+            long expected = 0;
+            for (Posting posting : postings) {
+                if (!posting.getDate().isAfter(day)) {
+                    expected += posting.getKind() == Posting.Kind.CASH_IN ? posting.getAmount() : -posting.getAmount();
+                }
+            }
+            assertEquals(expected, ledger.balanceAt(day), "balance at " + day);
+        }
+        assertEquals(ledger.getBalance(), ledger.balanceAt(date));
+    }
+
+    @Test
+    @DisplayName("Every posting should balance, so the accounts sum to zero")
+    void accounts_shouldSumToZero() {
+        Ledger ledger = new Ledger();
+        ledger.cashIn(500000, START);
+        Bill bill = new Bill(1, BillType.ELECTRIC, 200000, START, Provider.of("EVN HCMC"));
+        assertEquals(300000, ledger.pay(new Bill[] {bill}, 1, 200000, START));
+        assertEquals(-1, ledger.pay(new Bill[] {bill}, 1, 400000, START));
+
+        long[] accounts = new long[Posting.Account.values().length];
+        for (Iterator<Posting> postings = ledger.postings(0); postings.hasNext(); ) {
+            Posting posting = postings.next();
+            accounts[posting.getKind().getDebit().ordinal()] += posting.getAmount();
+            accounts[posting.getKind().getCredit().ordinal()] -= posting.getAmount();
+        }
+        assertEquals(300000, accounts[Posting.Account.WALLET.ordinal()]);
+        assertEquals(-500000, accounts[Posting.Account.FUNDING.ordinal()]);
+        assertEquals(200000, accounts[Posting.Account.BILLS.ordinal()]);
+        assertEquals(ledger.getBalance(), accounts[Posting.Account.WALLET.ordinal()]);
+        assertEquals(2, ledger.size());
+        assertThrows(ArithmeticException.class, () -> ledger.cashIn(Money.MAX, START));
+        assertEquals(2, ledger.size());
+    }
+
+    @Test
+    @DisplayName("A posting dated before the last one should be posted on the last date")
+    void posting_withEarlierDate_shouldNotGoBackInTime() {
+        Ledger ledger = new Ledger();
+        ledger.cashIn(100, START.plusDays(5));
+        ledger.cashIn(50, START);
+        assertEquals(0, ledger.balanceAt(START.plusDays(4)));
+        assertEquals(150, ledger.balanceAt(START.plusDays(5)));
+    }
+
+    @Test
+    @DisplayName("The ledger should survive a restart from the snapshot and the journal")
+    void ledger_shouldSurviveRestart() throws IOException {
+        try (Persistence persistence = Persistence.open(dir)) {
+            DataStore store = persistence.getStore();
+            store.cashIn(500000);
+            store.payBills(List.of(1));
+            persistence.checkpoint();
+            store.payBills(List.of(2)); // only in the journal
+        }
+        try (Persistence persistence = Persistence.open(dir)) {
+            DataStore store = persistence.getStore();
+            assertEquals(125000, store.getBalance());
+            assertEquals(125000, store.getBalanceAt(LocalDate.now()));
+            assertEquals(0, store.getBalanceAt(LocalDate.now().minusDays(1)));
+            Iterator<Posting> postings = store.iteratePostings(1);
+            assertEquals("2. " + LocalDate.now() + " BILL_PAYMENT 1 200000", postings.next().toString());
+            assertEquals(Posting.Kind.BILL_PAYMENT, postings.next().getKind());
+            assertFalse(postings.hasNext());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListingTest {
+
+    private static final int BILLS = 3000; // more than one scan chunk
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("iterateBills should return bills in id order even when they were added out of order")
+    void iterateBills_shouldFollowIdOrder() {
+        DataStore store = new DataStore(new InMemoryBillRepository());
+        store.addBill(bill(5));
+        store.addBill(bill(2));
+        store.addBill(bill(9));
+        store.addBill(bill(1));
+        assertEquals(List.of(1, 2, 5, 9), ids(store.iterateBills(BillQuery.ALL, 0)));
+        assertEquals(List.of(5, 9), ids(store.iterateBills(BillQuery.ALL, 2)));
+        assertEquals(List.of(), ids(store.iterateBills(BillQuery.ALL, 9)));
+
+        store.addBill(bill(3)); // after a read, sorted again by the next one
+        assertEquals(List.of(1, 2, 3, 5, 9), store.getBills().stream().map(Bill::getId).toList());
+        store.addBill(bill(8));
+        store.addBill(bill(4));
+        assertEquals(List.of(4, 5, 8, 9), ids(store.iterateBills(BillQuery.ALL, 3)));
+    }
+
+    @Test
+    @DisplayName("Filters should be applied during iteration in both repositories")
+    void iterateBills_withFilters_shouldMatchInBothRepositories() throws IOException {
+        DataStore inMemory = new DataStore(new InMemoryBillRepository());
+        try (MappedBillRepository repository = new MappedBillRepository(dir)) {
+            DataStore mapped = new DataStore(repository);
+            for (DataStore store : List.of(inMemory, mapped)) {
+                List<Bill> bills = new ArrayList<>();
+                for (int id = 1; id <= BILLS; id++) {
+                    bills.add(bill(id));
+                }
+                store.addBills(bills);
+                store.cashIn(BILLS);
+                store.payBills(List.of(3, 6, 2998));
+
+                BillQuery evnUnpaid = BillQuery.ALL.withProvider("EVN HCMC").withState(BillState.NOT_PAID);
+                List<Integer> expected = new ArrayList<>();
+                for (int id = 1000; id <= BILLS; id++) {
+                    if (id % 3 == 1 && id != 2998) {
+                        expected.add(id);
+                    }
+                }
+                assertEquals(expected, ids(store.iterateBills(evnUnpaid, 999)));
+
+                BillQuery dueInJanuary = BillQuery.ALL.withDueBetween(LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 31));
+                assertEquals(31, ids(store.iterateBills(dueInJanuary, 0)).size());
+                assertEquals(List.of(3, 6), ids(store.iterateBills(BillQuery.ALL.withState(BillState.PAID).withDueBetween(null, LocalDate.of(2030, 1, 10)), 0)));
+                assertFalse(store.iterateBills(BillQuery.ALL.withProvider("Nobody"), 0).hasNext());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("iteratePayments should page through payments with filters")
+    void iteratePayments_shouldFilterAndResume() {
+        DataStore store = new DataStore(new InMemoryBillRepository());
+        List<Bill> bills = new ArrayList<>();
+        for (int id = 1; id <= BILLS; id++) {
+            bills.add(bill(id));
+        }
+        store.addBills(bills);
+        store.cashIn(BILLS);
+        for (int id = 1; id <= BILLS; id++) {
+            if (id % 2 == 0) {
+                store.payBills(List.of(id));
+            } else {
+                store.scheduleBill(id, "01/01/2020");
+            }
+        }
+
+        Iterator<Payment> pending = store.iteratePayments(PaymentQuery.ALL.withState(PaymentState.PENDING).withProvider("EVN HCMC"), 2000);
+        int count = 0;
+        while (pending.hasNext()) {
+            Payment payment = pending.next();
+            assertTrue(payment.getId() > 2000);
+            assertEquals(PaymentState.PENDING, payment.getState());
+            assertEquals(1, payment.getBillId() % 3);
+            count++;
+        }
+        assertEquals(166, count); // odd EVN bills among 2001..3000
+        assertFalse(store.iteratePayments(PaymentQuery.ALL, BILLS).hasNext());
+    }
+
+    @Test
+    @DisplayName("A bill page should stop at the limit and print the command for the next page")
+    void showBillPage_shouldPrintNextPageCommand() {
+        DataStore store = new DataStore();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConsolePresenter presenter = new ConsolePresenter(new PrintStream(out));
+        presenter.showBillPage(store.iterateBills(BillQuery.ALL, 0), 2);
+        String page = out.toString();
+        assertTrue(page.contains("1. ELECTRIC"));
+        assertTrue(page.contains("2. WATER"));
+        assertFalse(page.contains("3. INTERNET"));
+        assertTrue(page.contains("More bills: LIST_BILL --after 2 --limit 2"));
+
+        out.reset();
+        presenter.showBillPage(store.iterateBills(BillQuery.ALL, 2), 2);
+        assertTrue(out.toString().contains("3. INTERNET"));
+        assertFalse(out.toString().contains("More bills"));
+    }
+
+    // Bill ids that are 1 modulo 3 are EVN bills; due dates are one per day from 01/01/2030
+    private static Bill bill(int id) {
+        String[] providers = {"VNPT", "EVN HCMC", "SAVACO HCMC"};
+        return new Bill(id, BillType.ELECTRIC, 1, LocalDate.of(2030, 1, 1).plusDays(id - 1), Provider.of(providers[id % 3]));
+    }
+
+    private static List<Integer> ids(Iterator<Bill> bills) {
+        List<Integer> ids = new ArrayList<>();
+        bills.forEachRemaining(bill -> ids.add(bill.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,130 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedBillRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    private MappedBillRepository repository;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        repository = new MappedBillRepository(dir);
+        repository.add(new Bill(1, BillType.ELECTRIC, 200000, LocalDate.of(2020, 10, 25), Provider.of("EVN HCMC")));
+        repository.add(new Bill(2, BillType.WATER, 175000, LocalDate.of(2020, 10, 30), Provider.of("SAVACO HCMC")));
+        repository.add(new Bill(3, BillType.INTERNET, 800000, LocalDate.of(2020, 11, 30), Provider.of("VNPT")));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("find should rebuild the bill from its columns")
+    void find_shouldReturnStoredBill() {
+        Bill bill = repository.find(3);
+        assertEquals("3. INTERNET 800000 2020-11-30 NOT_PAID VNPT", bill.toString());
+        assertNull(repository.find(99));
+    }
+
+    @Test
+    @DisplayName("Bill changes should be written back and survive reopening")
+    void billChanges_shouldPersistAcrossReopen() throws IOException {
+        repository.find(1).markPaid();
+        repository.find(2).setScheduledDate(LocalDate.of(2020, 10, 20));
+        repository.close();
+
+        repository = new MappedBillRepository(dir);
+        assertEquals(BillState.PAID, repository.find(1).getState());
+        assertEquals(LocalDate.of(2020, 10, 20), repository.find(2).getScheduledDate());
+        assertEquals(List.of(2, 3), repository.findByState(BillState.NOT_PAID).stream().map(Bill::getId).toList());
+    }
+
+    @Test
+    @DisplayName("A bill with an id already used should be rejected")
+    void add_withDuplicateId_shouldFail() {
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.add(new Bill(2, BillType.WATER, 1, LocalDate.of(2020, 1, 1), Provider.of("SAVACO HCMC"))));
+        repository.add(new Bill(0, BillType.WATER, 1, LocalDate.of(2020, 1, 1), Provider.of("SAVACO HCMC")));
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.add(new Bill(0, BillType.WATER, 1, LocalDate.of(2020, 1, 1), Provider.of("SAVACO HCMC"))));
+    }
+
+    @Test
+    @DisplayName("Bills added out of id order should be found and listed in id order, also after reopening")
+    void add_outOfIdOrder_shouldKeepIdOrder() throws IOException {
+        List<Integer> shuffled = new ArrayList<>();
+        for (int id = 4; id < 20004; id++) { // enough out of order adds to fill the index tail several times
+            shuffled.add(id);
+        }
+        Collections.shuffle(shuffled, new Random(1));
+        for (int id : shuffled) {
+            repository.add(new Bill(id, BillType.WATER, id, LocalDate.of(2021, 1, 1 + id % 28), Provider.of("SAVACO HCMC")));
+        }
+        assertIdOrder(20003);
+
+        repository.close();
+        repository = new MappedBillRepository(dir);
+        assertIdOrder(20003);
+        repository.add(new Bill(-5, BillType.WATER, 1, LocalDate.of(2021, 1, 1), Provider.of("VNPT")));
+        repository.add(new Bill(30000, BillType.WATER, 1, LocalDate.of(2021, 1, 1), Provider.of("VNPT")));
+        assertEquals(List.of(-5, 3, 30000), repository.findByProvider(Provider.of("VNPT")).stream().map(Bill::getId).toList());
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.add(new Bill(777, BillType.WATER, 1, LocalDate.of(2021, 1, 1), Provider.of("VNPT"))));
+    }
+
+    private void assertIdOrder(int lastId) {
+        List<Integer> ids = repository.findAll().stream().map(Bill::getId).toList();
+        assertEquals(lastId, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i + 1, ids.get(i));
+        }
+        assertEquals(777, repository.find(777).getAmount());
+        List<Bill> tail = new ArrayList<>();
+        repository.iterate(BillQuery.ALL, lastId - 3).forEachRemaining(tail::add);
+        assertEquals(List.of(lastId - 2, lastId - 1, lastId), tail.stream().map(Bill::getId).toList());
+        List<Bill> due = repository.findUnpaidDueBetween(LocalDate.of(2021, 1, 5), LocalDate.of(2021, 1, 5));
+        for (int i = 1; i < due.size(); i++) {
+            assertTrue(due.get(i - 1).getId() < due.get(i).getId(), "ties in id order");
+        }
+    }
+
+    @Test
+    @DisplayName("The columns should grow past their initial capacity")
+    void add_manyBills_shouldGrowColumns() {
+        for (int id = 4; id < 200000; id++) {
+            repository.add(new Bill(id, BillType.WATER, id, LocalDate.of(2021, 1, 1), Provider.of("SAVACO HCMC")));
+        }
+        assertEquals(199999, repository.size());
+        assertEquals(150000, repository.find(150000).getAmount());
+    }
+
+    @Test
+    @DisplayName("DataStore should work on top of the mapped repository")
+    void dataStore_overMappedRepository_shouldPayBills() {
+        DataStore store = new DataStore(repository);
+        store.cashIn(300000);
+        store.payBills(List.of(1));
+        assertEquals("1. ELECTRIC 200000 2020-10-25 PAID EVN HCMC", store.findBillsByProvider("EVN HCMC").get(0).toString());
+        assertEquals(List.of(2, 3),
+                store.findUnpaidBillsDueBetween(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31))
+                        .stream().map(Bill::getId).toList());
+    }
+}
@@ -0,0 +1,92 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    @DisplayName("Percentiles should be within the bucket precision of the recorded values")
+    void histogram_percentiles_shouldBeAccurate() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000, histogram.getMax());
+        assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 * 0.035);
+        assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 * 0.035);
+        assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName("Every value should fall into a bucket whose upper bound covers it")
+    void histogram_buckets_shouldCoverTheirValues() {
+        for (long value : new long[] {0, 1, 31, 32, 33, 63, 64, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestValueOf(index - 1) < value);
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent records should not be lost")
+    void histogram_concurrentRecords_shouldAllCount() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i % 500);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(800_000, histogram.getCount());
+        assertEquals(499, histogram.getMax());
+    }
+
+    @Test
+    @DisplayName("A DataStore with metrics should count its operations and errors by reason")
+    void dataStore_shouldRecordOperationsAndErrors() {
+        Metrics metrics = new Metrics(App.COMMANDS);
+        DataStore store = new DataStore();
+        store.setMetrics(metrics);
+        store.cashIn(100000);
+        store.payBills(List.of(1));     // not enough funds
+        store.payBills(List.of(2, 99)); // unknown bill
+        store.scheduleBill(3, "01/11/2020");
+
+        assertEquals(1, metrics.getOperationCount(Metrics.Operation.CASH_IN));
+        assertEquals(2, metrics.getOperationCount(Metrics.Operation.PAY));
+        assertEquals(1, metrics.getOperationCount(Metrics.Operation.SCHEDULE_BILL));
+        assertEquals(1, metrics.getErrorCount(ErrorCode.INSUFFICIENT_FUNDS));
+        assertEquals(1, metrics.getErrorCount(ErrorCode.BILL_NOT_FOUND));
+        assertEquals(2, metrics.getOperationLatency(Metrics.Operation.PAY).getCount());
+    }
+
+    @Test
+    @DisplayName("Metrics should be readable over JMX")
+    void registerMBean_shouldExposeCounts() throws Exception {
+        Metrics metrics = new Metrics(App.COMMANDS);
+        metrics.registerMBean();
+        metrics.recordOperation(Metrics.Operation.PAY, 1000, ErrorCode.INSUFFICIENT_FUNDS);
+
+        Object errors = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(Metrics.OBJECT_NAME), "Errors");
+        assertNotNull(errors);
+        Map<String, Long> direct = metrics.getErrors();
+        assertEquals(1L, direct.get("INSUFFICIENT_FUNDS"));
+        assertEquals(1L, metrics.getCounts().get("store.PAY"));
+    }
+}
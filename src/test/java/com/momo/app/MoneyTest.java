@@ -0,0 +1,70 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    private static final long CORPORATE = 5_000_000_000L; // more than 2^31 dong
+    private static final LocalDate DUE_DATE = LocalDate.of(2030, 1, 1);
+
+    private DataStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new DataStore(new InMemoryBillRepository());
+    }
+
+    @Test
+    @DisplayName("add should saturate to OVERFLOW instead of wrapping")
+    void add_shouldSaturate() {
+        assertEquals(3, Money.add(1, 2));
+        assertEquals(Money.OVERFLOW, Money.add(Money.MAX, 2));
+        assertEquals(Money.OVERFLOW, Money.add(Long.MAX_VALUE, Long.MAX_VALUE));
+        assertEquals(Money.OVERFLOW, Money.add(Money.MAX, 1));
+    }
+
+    @Test
+    @DisplayName("Balances and bills above the int range should be paid exactly")
+    void payBills_aboveIntRange_shouldBeExact() {
+        store.addBill(new Bill(1, BillType.ELECTRIC, CORPORATE, DUE_DATE, Provider.of("EVN HCMC")));
+        store.addBill(new Bill(2, BillType.WATER, CORPORATE, DUE_DATE, Provider.of("SAVACO HCMC")));
+        assertEquals(3 * CORPORATE, store.cashIn(3 * CORPORATE));
+
+        PaymentResult result = store.payBills(List.of(1, 2));
+        assertTrue(result.isSuccess());
+        assertEquals(2 * CORPORATE, result.getTotalAmount());
+        assertEquals(CORPORATE, result.getBalance());
+        assertEquals(CORPORATE, store.getPayments().get(0).getAmount());
+    }
+
+    @Test
+    @DisplayName("A total that overflows a long should be refused as insufficient funds")
+    void payBills_withOverflowingTotal_shouldBeRefused() {
+        store.addBill(new Bill(1, BillType.ELECTRIC, Money.MAX, DUE_DATE, Provider.of("EVN HCMC")));
+        store.addBill(new Bill(2, BillType.WATER, Money.MAX, DUE_DATE, Provider.of("SAVACO HCMC")));
+        store.cashIn(Money.MAX);
+
+        PaymentResult result = store.payBills(List.of(1, 2));
+        assertEquals(ErrorCode.INSUFFICIENT_FUNDS, result.getErrorCode());
+        assertEquals(Money.OVERFLOW, result.getTotalAmount());
+        assertEquals(Money.MAX, store.getBalance());
+        assertEquals(BillState.NOT_PAID, store.findBill(1).getState());
+    }
+
+    @Test
+    @DisplayName("Cash in past MAX should throw and leave the balance unchanged")
+    void cashIn_pastMax_shouldThrow() {
+        store.cashIn(Money.MAX - 10);
+        assertThrows(ArithmeticException.class, () -> store.cashIn(11));
+        assertThrows(ArithmeticException.class, () -> store.cashIn(Long.MAX_VALUE));
+        assertEquals(Money.MAX - 10, store.getBalance());
+        assertEquals(Money.MAX, store.cashIn(10));
+    }
+}
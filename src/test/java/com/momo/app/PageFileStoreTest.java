@@ -0,0 +1,115 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The BillPaymentSystemTest behaviours on page-file repositories with a small page cache
+class PageFileStoreTest extends BillPaymentSystemTest {
+    private static final int CACHE_PAGES = PageFile.MIN_CACHE_PAGES;
+
+    @TempDir
+    Path dir;
+
+    private PageFileBillRepository bills;
+    private PageFilePaymentRepository payments;
+    private PageFileAccountRepository postings;
+
+    @Override
+    DataStore newStore() throws IOException {
+        DataStore store = open();
+        store.addSampleBills();
+        return store;
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        close();
+    }
+
+    @Test
+    @DisplayName("Bills, payments and the balance should survive reopening the repositories")
+    void reopen_shouldKeepBillsPaymentsAndBalance() throws IOException {
+        close(); // the sample bills written by setUp
+        DataStore store = open();
+        store.cashIn(500000);
+        store.scheduleBill(2, "20/10/2020");
+        store.payBills(List.of(1));
+        close();
+
+        store = open();
+        assertEquals(300000, store.getBalance());
+        assertEquals(BillState.PAID, store.findBill(1).getState());
+        assertEquals(LocalDate.of(2020, 10, 20), store.findBill(2).getScheduledDate());
+        assertEquals(PaymentState.PENDING, store.findPendingPaymentByBillId(2).getState());
+
+        store.payBills(List.of(2)); // settles the pending payment found on reopening
+        close();
+        store = open();
+        assertEquals(125000, store.getBalance());
+        List<Payment> all = store.getPayments();
+        assertEquals(List.of(1, 2), all.stream().map(Payment::getId).toList());
+        assertTrue(all.stream().allMatch(payment -> payment.getState() == PaymentState.PROCESSED));
+        assertNull(store.findPendingPaymentByBillId(2));
+    }
+
+    @Test
+    @DisplayName("A checkpoint should stream bills and payments from the page files instead of copying them")
+    void checkpoint_shouldNotCopyAllBillsOrPayments() throws IOException {
+        close(); // the sample bills written by setUp
+        Path pages = dir.resolve("pages");
+        bills = new PageFileBillRepository(pages, CACHE_PAGES) {
+            @Override
+            public List<Bill> findAll() {
+                throw new AssertionError("bills copied");
+            }
+        };
+        payments = new PageFilePaymentRepository(pages, CACHE_PAGES) {
+            @Override
+            public List<Payment> findAll() {
+                throw new AssertionError("payments copied");
+            }
+        };
+        postings = new PageFileAccountRepository(pages, CACHE_PAGES);
+        DataStore store = new DataStore(bills, payments, postings);
+        store.addSampleBills();
+        try (PaymentArchive archive = new PaymentArchive(dir.resolve("archive"), 0)) {
+            store.attachArchive(archive);
+            store.cashIn(500000);
+            store.payBills(List.of(1));
+            store.scheduleBill(2, "20/10/2020");
+            assertEquals(1, store.archivePayments(LocalDate.now().plusDays(1)));
+            Snapshot.write(dir.resolve("snapshot"), store, 0);
+        }
+
+        DataStore restored = new DataStore(new InMemoryBillRepository());
+        Snapshot.read(dir.resolve("snapshot"), restored);
+        assertEquals(300000, restored.getBalance());
+        assertEquals(3, restored.getBills().size());
+        assertEquals(BillState.PAID, restored.findBill(1).getState());
+        assertEquals("SAVACO HCMC", restored.findBill(2).getProvider().getName());
+        assertEquals(PaymentState.PENDING, restored.findPendingPaymentByBillId(2).getState());
+        assertEquals(1, restored.getPayments().size()); // the archived payment stays in the archive
+    }
+
+    private DataStore open() throws IOException {
+        bills = new PageFileBillRepository(dir, CACHE_PAGES);
+        payments = new PageFilePaymentRepository(dir, CACHE_PAGES);
+        postings = new PageFileAccountRepository(dir, CACHE_PAGES);
+        return new DataStore(bills, payments, postings);
+    }
+
+    private void close() throws IOException {
+        bills.close();
+        payments.close();
+        postings.close();
+    }
+}
@@ -0,0 +1,172 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentArchiveTest {
+
+    private static final int PAYMENTS = 10_000; // several blocks
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Archived payments should read back in id order from compact blocks")
+    void append_thenIterate_shouldRoundTrip() throws IOException {
+        List<Payment> payments = payments(1, PAYMENTS);
+        try (PaymentArchive archive = new PaymentArchive(dir.resolve("a"), Long.MAX_VALUE)) {
+            archive.append(payments, 1);
+            assertEquals(PAYMENTS, archive.getPaymentCount());
+            assertEquals(PAYMENTS, archive.lastId());
+            assertTrue(archive.getSize() < PAYMENTS * 4L, "archive takes " + archive.getSize() + " bytes");
+
+            List<Payment> read = list(archive.iterate(PaymentQuery.ALL, 0, new InMemoryBillRepository()));
+            assertEquals(PAYMENTS, read.size());
+            for (int i = 0; i < PAYMENTS; i++) {
+                assertEquals(payments.get(i).toString(), read.get(i).toString());
+            }
+            List<Payment> tail = list(archive.iterate(PaymentQuery.ALL, PAYMENTS - 5, new InMemoryBillRepository()));
+            assertEquals(5, tail.size());
+            assertEquals(PAYMENTS - 4, tail.get(0).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Opening should drop blocks newer than the snapshot and a torn tail")
+    void open_shouldDropUncommittedAndTornBlocks() throws IOException {
+        Path file = dir.resolve("a");
+        try (PaymentArchive archive = new PaymentArchive(file, Long.MAX_VALUE)) {
+            archive.append(payments(1, 10), 5);
+            archive.append(payments(11, 10), 9);
+        }
+        Files.write(file, new byte[] {0, 0, 0, 9, 1}, StandardOpenOption.APPEND);
+
+        try (PaymentArchive archive = new PaymentArchive(file, 9)) {
+            assertEquals(20, archive.lastId()); // torn tail dropped, both blocks kept
+        }
+        try (PaymentArchive archive = new PaymentArchive(file, 8)) {
+            assertEquals(10, archive.lastId());
+            assertEquals(10, list(archive.iterate(PaymentQuery.ALL, 0, new InMemoryBillRepository())).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Blocks archived out of id order should still read back in id order")
+    void append_outOfIdOrder_shouldIterateInIdOrder() throws IOException {
+        try (PaymentArchive archive = new PaymentArchive(dir.resolve("a"), Long.MAX_VALUE)) {
+            archive.append(payments(11, 10), 1);
+            archive.append(payments(1, 10), 2);
+            List<Payment> straddling = new ArrayList<>(payments(21, 5));
+            straddling.add(0, payments(0, 1).get(0)); // ids 0, 21..25 overlap both blocks above
+            archive.append(straddling, 3);
+            assertEquals(25, archive.lastId());
+
+            List<Integer> expected = new ArrayList<>();
+            for (int id = 0; id <= 25; id++) {
+                expected.add(id);
+            }
+            assertEquals(expected, ids(archive.iterate(PaymentQuery.ALL, -1, new InMemoryBillRepository())));
+            assertEquals(expected.subList(9, 26), ids(archive.iterate(PaymentQuery.ALL, 8, new InMemoryBillRepository())));
+            assertEquals(expected.subList(21, 26), ids(archive.iterate(PaymentQuery.ALL, 20, new InMemoryBillRepository())));
+        }
+    }
+
+    @Test
+    @DisplayName("A payment settled after later ones were archived should page in id order")
+    void checkpoint_withLowIdArchivedLater_shouldPageInIdOrder() throws IOException {
+        TestClock clock = new TestClock(LocalDate.now().plusDays(100));
+        try (Persistence persistence = Persistence.open(dir, Duration.ofHours(1), Duration.ofDays(90), clock)) {
+            DataStore store = persistence.getStore();
+            store.cashIn(2000000);
+            store.scheduleBill(3, "01/01/2020"); // payment 1 stays PENDING
+            store.payBills(List.of(1, 2));       // payments 2 and 3
+            persistence.checkpoint();
+            assertArrayEquals(new DataStore.Settlement[] {DataStore.Settlement.SETTLED},
+                    store.settleScheduledPayments(new int[] {3}, LocalDate.of(2020, 1, 1)));
+            persistence.checkpoint();             // payment 1 goes to a later block
+
+            assertEquals(0, store.getPayments().size());
+            PaymentQuery all = PaymentQuery.ALL.includingArchived();
+            assertEquals(List.of(1, 2, 3), ids(store.iteratePayments(all, 0)));
+            assertEquals(List.of(2, 3), ids(store.iteratePayments(all, 1)));
+            assertEquals(List.of(3), ids(store.iteratePayments(all, 2)));
+        }
+    }
+
+    @Test
+    @DisplayName("A checkpoint should archive old settled payments, keep them listable and keep ids unique")
+    void checkpoint_shouldArchiveOldPayments() throws IOException {
+        TestClock clock = new TestClock(LocalDate.now().plusDays(100));
+        try (Persistence persistence = Persistence.open(dir, Duration.ofHours(1), Duration.ofDays(90), clock)) {
+            DataStore store = persistence.getStore();
+            store.cashIn(1000000);
+            store.scheduleBill(3, "01/01/2020");
+            store.payBills(List.of(1, 2));
+            persistence.checkpoint();
+
+            assertEquals(1, store.getPayments().size()); // only the PENDING payment stays live
+            assertEquals(List.of(1), ids(store.iteratePayments(PaymentQuery.ALL, 0)));
+            assertEquals(List.of(1, 2, 3), ids(store.iteratePayments(PaymentQuery.ALL.includingArchived(), 0)));
+            assertEquals(List.of(3), ids(store.iteratePayments(PaymentQuery.ALL.includingArchived().withProvider("SAVACO HCMC"), 0)));
+        }
+        try (Persistence persistence = Persistence.open(dir, Duration.ofHours(1), Duration.ofDays(90), clock)) {
+            DataStore store = persistence.getStore();
+            store.addBill(new Bill(4, BillType.WATER, 1000, LocalDate.of(2030, 1, 1), Provider.of("SAVACO HCMC")));
+            store.payBills(List.of(4));
+            assertEquals(List.of(1, 2, 3, 4), ids(store.iteratePayments(PaymentQuery.ALL.includingArchived(), 0)));
+        }
+    }
+
+    @Test
+    @DisplayName("Payments archived without a following snapshot should stay live after a restart")
+    void archive_withoutSnapshot_shouldBeRolledBack() throws IOException {
+        TestClock clock = new TestClock(LocalDate.now().plusDays(100));
+        try (Persistence persistence = Persistence.open(dir, Duration.ofHours(1), Duration.ofDays(90), clock)) {
+            DataStore store = persistence.getStore();
+            store.cashIn(1000000);
+            store.payBills(List.of(1, 2));
+            assertEquals(2, store.archivePayments(LocalDate.now(clock))); // as if the snapshot write then failed
+            assertEquals(0, store.getPayments().size());
+        }
+        try (Persistence persistence = Persistence.open(dir, Duration.ofHours(1), Duration.ofDays(90), clock)) {
+            DataStore store = persistence.getStore();
+            assertEquals(2, store.getPayments().size());
+            assertEquals(List.of(1, 2), ids(store.iteratePayments(PaymentQuery.ALL.includingArchived(), 0)));
+        }
+    }
+
+    private static List<Payment> payments(int firstId, int count) {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int id = firstId + i;
+            payments.add(new Payment(id, 100000L + id % 7 * 25000, LocalDate.of(2024, 1, 1).plusDays(id / 50),
+                    PaymentState.PROCESSED, id * 3 % 1000 + 1));
+        }
+        return payments;
+    }
+
+    private static List<Payment> list(Iterator<Payment> payments) {
+        List<Payment> list = new ArrayList<>();
+        payments.forEachRemaining(list::add);
+        return list;
+    }
+
+    private static List<Integer> ids(Iterator<Payment> payments) {
+        List<Integer> ids = new ArrayList<>();
+        payments.forEachRemaining(payment -> ids.add(payment.getId()));
+        return ids;
+    }
+}
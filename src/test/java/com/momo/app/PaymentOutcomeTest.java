@@ -0,0 +1,90 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentOutcomeTest {
+
+    private DataStore store;
+    private final PaymentOutcome outcome = new PaymentOutcome();
+
+    @BeforeEach
+    public void setUp() {
+        store = new DataStore(new InMemoryBillRepository());
+        List<Bill> bills = new ArrayList<>();
+        for (int id = 1; id <= 5000; id++) {
+            bills.add(new Bill(id, BillType.WATER, 10, LocalDate.of(2030, 1, 1), Provider.of("SAVACO HCMC")));
+        }
+        store.addBills(bills);
+        store.cashIn(1000);
+    }
+
+    @Test
+    @DisplayName("The int[] overload should pay distinct ids once, in request order")
+    void payBills_withDuplicateIds_shouldPayEachOnce() {
+        store.payBills(new int[] {3, 1, 3, 2, 1, 99}, 5, outcome); // 99 is past count
+        assertTrue(outcome.isSuccess());
+        assertEquals(3, outcome.getPaidCount());
+        assertEquals(3, outcome.getPaidBillId(0));
+        assertEquals(1, outcome.getPaidBillId(1));
+        assertEquals(2, outcome.getPaidBillId(2));
+        assertEquals(970, outcome.getBalance());
+        assertEquals(3, store.getPayments().size());
+    }
+
+    @Test
+    @DisplayName("Large batches should be deduplicated with the hash set")
+    void payBills_withLargeBatch_shouldDeduplicate() {
+        int[] ids = new int[200];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + i % 50;
+        }
+        store.payBills(ids, ids.length, outcome);
+        assertEquals(50, outcome.getPaidCount());
+        assertEquals(500, outcome.getBalance());
+
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 51 + i % 40;
+        }
+        store.payBills(ids, ids.length, outcome); // same outcome, new stamp
+        assertEquals(40, outcome.getPaidCount());
+        assertEquals(100, outcome.getBalance());
+    }
+
+    @Test
+    @DisplayName("A reused outcome should report the errors of the latest call only")
+    void payBills_reusedOutcome_shouldReset() {
+        store.payBills(new int[] {1, 6000, 7000}, 3, outcome);
+        assertEquals(ErrorCode.BILL_NOT_FOUND, outcome.getErrorCode());
+        assertEquals(2, outcome.getBillErrorCount());
+        assertEquals(7000, outcome.getBillErrorId(1));
+        assertEquals(0, outcome.getPaidCount());
+
+        store.payBills(new int[] {1}, 1, outcome);
+        assertTrue(outcome.isSuccess());
+        assertEquals(0, outcome.getBillErrorCount());
+
+        store.payBills(new int[] {2, 3}, 0, outcome);
+        assertEquals(ErrorCode.NO_BILLS, outcome.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("toResult should match what the List overload returns")
+    void toResult_shouldMatchListOverload() {
+        store.payBills(new int[] {4000, 4001}, 2, outcome);
+        PaymentResult fromOutcome = outcome.toResult();
+        PaymentResult fromList = store.payBills(List.of(4000, 4001));
+        assertTrue(fromOutcome.isSuccess());
+        assertArrayEquals(new int[] {4000, 4001}, fromOutcome.getPaidBillIds());
+        assertEquals(ErrorCode.BILL_ALREADY_PAID, fromList.getErrorCode());
+        assertEquals(2, fromList.getBillErrors().size());
+        assertEquals(4000, store.findBill(4000).getId()); // found after the table grew
+    }
+}
@@ -0,0 +1,160 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentSchedulerTest {
+
+    private DataStore store;
+    private TestClock clock;
+    private PaymentScheduler scheduler;
+    private final PrintStream originalOut = System.out;
+
+    @BeforeEach
+    public void setUp() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // Drop console output
+        store = new DataStore();
+        clock = new TestClock(LocalDate.of(2020, 10, 18));
+        scheduler = new PaymentScheduler(store, clock);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.close();
+        System.setOut(originalOut);
+    }
+
+    @Test
+    @DisplayName("A scheduled payment should be settled on its date and not before")
+    void tick_shouldSettleOnScheduledDate() {
+        store.cashIn(500000);
+        store.scheduleBill(2, "20/10/2020");
+
+        clock.advanceDays(1); // 19/10
+        assertEquals(0, scheduler.tick());
+        assertEquals(PaymentState.PENDING, store.getPayments().get(0).getState());
+
+        clock.advanceDays(1); // 20/10
+        assertEquals(1, scheduler.tick());
+        Payment payment = store.getPayments().get(0);
+        assertEquals(PaymentState.PROCESSED, payment.getState());
+        assertEquals(LocalDate.of(2020, 10, 20), payment.getPaymentDate());
+        assertEquals(BillState.PAID, store.findBill(2).getState());
+        assertEquals(500000 - 175000, store.getBalance());
+        assertEquals(0, scheduler.getQueuedCount());
+    }
+
+    @Test
+    @DisplayName("A payment without enough funds should be retried with backoff")
+    void tick_withInsufficientFunds_shouldRetryWithBackoff() {
+        store.scheduleBill(1, "18/10/2020");
+
+        assertEquals(0, scheduler.tick()); // 18/10: fails, retried on 19/10
+        store.cashIn(200000);
+        assertEquals(1, scheduler.getRetriedCount());
+
+        assertEquals(0, scheduler.tick()); // still 18/10: not due yet
+        clock.advanceDays(1);
+        assertEquals(1, scheduler.tick());
+        assertEquals(BillState.PAID, store.findBill(1).getState());
+        assertEquals(0, store.getBalance());
+    }
+
+    @Test
+    @DisplayName("Payments due on the same tick should be settled under one journal record")
+    void tick_withSeveralDue_shouldSettleThemTogether(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve(Persistence.JOURNAL_FILE);
+        try (Journal journal = new Journal(file, Journal.replay(file, 0, store))) {
+            store.attachJournal(journal);
+            store.cashIn(400000);
+            store.scheduleBill(3, "18/10/2020"); // 800000, more than the balance
+            store.scheduleBill(1, "18/10/2020");
+            store.scheduleBill(2, "18/10/2020");
+            long lsn = journal.lastLsn();
+
+            assertEquals(2, scheduler.tick());
+            assertEquals(lsn + 1, journal.lastLsn());
+            assertEquals(BillState.PAID, store.findBill(1).getState());
+            assertEquals(BillState.PAID, store.findBill(2).getState());
+            assertEquals(BillState.NOT_PAID, store.findBill(3).getState());
+            assertEquals(400000 - 200000 - 175000, store.getBalance());
+            assertEquals(1, scheduler.getRetriedCount());
+            assertEquals(1, scheduler.getQueuedCount());
+        }
+    }
+
+    @Test
+    @DisplayName("The scheduler should give up after the maximum number of attempts")
+    void tick_withFundsNeverArriving_shouldGiveUp() {
+        store.scheduleBill(1, "18/10/2020");
+        for (int day = 0; day < 30; day++) {
+            scheduler.tick();
+            clock.advanceDays(1);
+        }
+        assertEquals(1, scheduler.getGaveUpCount());
+        assertEquals(PaymentScheduler.MAX_ATTEMPTS - 1, scheduler.getRetriedCount());
+        assertEquals(0, scheduler.getQueuedCount());
+        assertEquals(PaymentState.PENDING, store.getPayments().get(0).getState());
+    }
+
+    @Test
+    @DisplayName("A scheduled bill already paid with PAY should be skipped")
+    void tick_forBillPaidManually_shouldSkip() {
+        store.cashIn(500000);
+        store.scheduleBill(2, "20/10/2020");
+        store.payBills(List.of(2));
+
+        clock.advanceDays(2);
+        assertEquals(0, scheduler.tick());
+        assertEquals(500000 - 175000, store.getBalance());
+        assertEquals(1, store.getPayments().size());
+    }
+
+    @Test
+    @DisplayName("Due payments should stay queued when settling them fails")
+    void tick_whenSettlingFails_shouldKeepThemQueued() {
+        scheduler.close();
+        boolean[] failing = {true};
+        store = new DataStore() {
+            @Override
+            Settlement[] settleScheduledPayments(int[] billIds, LocalDate paymentDate) {
+                if (failing[0]) {
+                    throw new IllegalStateException("disk full");
+                }
+                return super.settleScheduledPayments(billIds, paymentDate);
+            }
+        };
+        scheduler = new PaymentScheduler(store, clock);
+        store.cashIn(500000);
+        store.scheduleBill(2, "18/10/2020");
+
+        assertThrows(IllegalStateException.class, () -> scheduler.tick());
+        assertEquals(1, scheduler.getQueuedCount());
+        failing[0] = false;
+        assertEquals(1, scheduler.tick());
+        assertEquals(0, scheduler.getQueuedCount());
+    }
+
+    @Test
+    @DisplayName("Payments scheduled before the scheduler was created should be picked up")
+    void constructor_shouldPickUpExistingPendingPayments() {
+        scheduler.close();
+        store.cashIn(500000);
+        store.scheduleBill(2, "18/10/2020");
+
+        scheduler = new PaymentScheduler(store, clock);
+        assertEquals(1, scheduler.tick());
+    }
+}
@@ -0,0 +1,286 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistenceTest {
+
+    @TempDir
+    Path dir;
+
+    private final PrintStream originalOut = System.out;
+
+    @BeforeEach
+    public void setUp() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // Drop console output
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    @DisplayName("Mutations should survive a restart by replaying the journal")
+    void reopen_withoutCheckpoint_shouldReplayJournal() throws IOException {
+        try (Persistence persistence = Persistence.open(dir)) {
+            DataStore store = persistence.getStore();
+            store.addBill(new Bill(4, BillType.WATER, 50000, LocalDate.of(2020, 12, 1), Provider.of("SAVACO HCMC")));
+            store.cashIn(500000);
+            store.scheduleBill(2, "20/10/2020");
+            store.payBills(List.of(1, 2));
+        }
+
+        try (Persistence persistence = Persistence.open(dir)) {
+            assertRecovered(persistence.getStore());
+        }
+    }
+
+    @Test
+    @DisplayName("Page files should be rebuilt from the snapshot and journal, whatever state they were left in")
+    void reopen_withPageCache_shouldRebuildPageFiles() throws IOException {
+        try (Persistence persistence = open(PageFile.MIN_CACHE_PAGES)) {
+            DataStore store = persistence.getStore();
+            store.addBill(new Bill(4, BillType.WATER, 50000, LocalDate.of(2020, 12, 1), Provider.of("SAVACO HCMC")));
+            store.cashIn(500000);
+            persistence.checkpoint();
+            store.scheduleBill(2, "20/10/2020");
+            store.payBills(List.of(1, 2));
+        }
+        // as if a crash tore the files mid write
+        Files.write(dir.resolve(Persistence.PAGES_DIR).resolve("bills.tree"), new byte[100]);
+        Files.write(dir.resolve(Persistence.PAGES_DIR).resolve("payments.tree"), new byte[0]);
+
+        try (Persistence persistence = open(PageFile.MIN_CACHE_PAGES)) {
+            assertRecovered(persistence.getStore());
+        }
+        try (Persistence persistence = Persistence.open(dir)) { // the heap store recovers the same
+            assertRecovered(persistence.getStore());
+        }
+    }
+
+    @Test
+    @DisplayName("After a checkpoint the journal should be empty and the snapshot should restore the store")
+    void reopen_afterCheckpoint_shouldLoadSnapshot() throws IOException {
+        try (Persistence persistence = Persistence.open(dir)) {
+            DataStore store = persistence.getStore();
+            store.addBill(new Bill(4, BillType.WATER, 50000, LocalDate.of(2020, 12, 1), Provider.of("SAVACO HCMC")));
+            store.cashIn(500000);
+            store.scheduleBill(2, "20/10/2020");
+            store.payBills(List.of(1, 2));
+            persistence.checkpoint();
+        }
+
+        assertEquals(0, Files.size(dir.resolve(Persistence.JOURNAL_FILE)));
+        try (Persistence persistence = Persistence.open(dir)) {
+            assertRecovered(persistence.getStore());
+        }
+    }
+
+    @Test
+    @DisplayName("Recovery should apply the snapshot and then only the journal tail")
+    void reopen_withSnapshotAndTail_shouldApplyBoth() throws IOException {
+        try (Persistence persistence = Persistence.open(dir)) {
+            persistence.getStore().cashIn(100000);
+            persistence.checkpoint();
+            persistence.getStore().cashIn(50000);
+        }
+
+        try (Persistence persistence = Persistence.open(dir)) {
+            assertEquals(150000, persistence.getStore().getBalance());
+        }
+    }
+
+    @Test
+    @DisplayName("A torn record at the end of the journal should be ignored")
+    void reopen_withTornTail_shouldIgnoreIt() throws IOException {
+        try (Persistence persistence = Persistence.open(dir)) {
+            persistence.getStore().cashIn(100000);
+        }
+        Files.write(dir.resolve(Persistence.JOURNAL_FILE), new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        try (Persistence persistence = Persistence.open(dir)) {
+            assertEquals(100000, persistence.getStore().getBalance());
+            persistence.getStore().cashIn(1);
+        }
+        try (Persistence persistence = Persistence.open(dir)) {
+            assertEquals(100001, persistence.getStore().getBalance());
+        }
+    }
+
+    @Test
+    @DisplayName("Amounts past the int range should survive both the journal and a snapshot")
+    void reopen_withLongAmounts_shouldKeepThem() throws IOException {
+        long amount = 5_000_000_000L;
+        try (Persistence persistence = Persistence.open(dir)) {
+            persistence.getStore().addBill(new Bill(4, BillType.WATER, amount, LocalDate.of(2030, 1, 1), Provider.of("SAVACO HCMC")));
+            persistence.getStore().cashIn(2 * amount);
+        }
+        try (Persistence persistence = Persistence.open(dir)) {
+            assertEquals(2 * amount, persistence.getStore().getBalance());
+            persistence.checkpoint();
+            persistence.getStore().payBills(List.of(4));
+        }
+        try (Persistence persistence = Persistence.open(dir)) {
+            assertEquals(amount, persistence.getStore().getBalance());
+            assertEquals(amount, persistence.getStore().findBill(4).getAmount());
+            assertEquals(amount, persistence.getStore().getPayments().get(0).getAmount());
+        }
+    }
+
+    @Test
+    @DisplayName("A failed background checkpoint should be reported and retried")
+    void backgroundCheckpoint_afterFailure_shouldRetry() throws Exception {
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        PrintStream originalErr = System.err;
+        System.setErr(new PrintStream(errors, true));
+        Path snapshot = dir.resolve(Persistence.SNAPSHOT_FILE);
+        try (Persistence persistence = Persistence.open(dir, Duration.ofMillis(20))) {
+            Files.createDirectories(snapshot.resolve("blocker")); // the snapshot cannot replace a non-empty directory
+            persistence.getStore().cashIn(100000);
+            waitFor(() -> errors.toString().contains("Checkpoint failed"));
+
+            Files.delete(snapshot.resolve("blocker"));
+            Files.delete(snapshot);
+            waitFor(() -> Files.isRegularFile(snapshot));
+        } finally {
+            System.setErr(originalErr);
+        }
+        try (Persistence persistence = Persistence.open(dir)) {
+            assertEquals(100000, persistence.getStore().getBalance());
+        }
+    }
+
+    @Test
+    @DisplayName("After a failed journal write appends should be refused, and replay should keep what reached the disk")
+    void journal_afterFailedWrite_shouldRefuseAppends() throws IOException {
+        Path file = dir.resolve(Persistence.JOURNAL_FILE);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        Journal journal = new Journal(channel, new Journal.ReplayResult(0, 0, 0));
+        LocalDate today = LocalDate.of(2020, 10, 18);
+        journal.awaitDurable(journal.logCashIn(100, today));
+        long lsn = journal.logCashIn(200, today);
+        channel.close(); // the next write fails
+
+        assertThrows(UncheckedIOException.class, () -> journal.awaitDurable(lsn));
+        assertThrows(UncheckedIOException.class, () -> journal.logCashIn(300, today));
+        assertThrows(UncheckedIOException.class, journal::flush);
+        journal.close();
+
+        DataStore store = new DataStore(new InMemoryBillRepository());
+        assertEquals(1, Journal.replay(file, 0, store).replayedRecords);
+        assertEquals(100, store.getBalance());
+    }
+
+    @Test
+    @DisplayName("Concurrent cash-ins and payments should replay in ledger order")
+    void reopen_afterConcurrentCashInAndPay_shouldNeverReplayANegativeBalance() throws Exception {
+        int billCount = 300;
+        long balance;
+        try (Persistence persistence = Persistence.open(dir)) {
+            DataStore store = persistence.getStore();
+            for (int i = 0; i < billCount; i++) {
+                store.addBill(new Bill(100 + i, BillType.WATER, 100, LocalDate.of(2020, 12, 1), Provider.of("SAVACO HCMC")));
+            }
+            Thread cashier = new Thread(() -> {
+                for (int i = 0; i < billCount; i++) {
+                    store.cashIn(100);
+                }
+            });
+            cashier.start();
+            for (int i = 0; i < billCount; i++) { // each payment spends money a concurrent cash-in just posted
+                while (!store.payBills(List.of(100 + i)).isSuccess()) {
+                    Thread.yield();
+                }
+            }
+            cashier.join();
+            balance = store.getBalance();
+        }
+        try (Persistence persistence = Persistence.open(dir)) {
+            DataStore store = persistence.getStore();
+            assertEquals(balance, store.getBalance());
+            assertEquals(balance, store.getBalanceAt(LocalDate.now()));
+            long running = 0;
+            for (Iterator<Posting> postings = store.iteratePostings(0); postings.hasNext(); ) {
+                Posting posting = postings.next();
+                running += posting.getKind() == Posting.Kind.CASH_IN ? posting.getAmount() : -posting.getAmount();
+                assertTrue(running >= 0, "negative balance at posting " + posting.getSequence());
+            }
+            assertEquals(balance, running);
+        }
+    }
+
+    @Test
+    @DisplayName("A snapshot in another format should be rejected")
+    void reopen_withUnknownSnapshotFormat_shouldFail() throws IOException {
+        Files.write(dir.resolve(Persistence.SNAPSHOT_FILE), new byte[] {0x42, 0x50, 0x53, 0x32, 0, 0, 0, 0}); // "BPS2"
+
+        IOException e = assertThrows(IOException.class, () -> Persistence.open(dir));
+        assertTrue(e.getMessage().startsWith("Not a snapshot file"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("A snapshot with a flipped byte should be rejected by its checksum")
+    void reopen_withCorruptSnapshot_shouldFail() throws IOException {
+        try (Persistence persistence = Persistence.open(dir)) {
+            persistence.getStore().cashIn(100000);
+            persistence.checkpoint();
+        }
+        Path snapshot = dir.resolve(Persistence.SNAPSHOT_FILE);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 10] ^= 1; // inside the last bill record
+        Files.write(snapshot, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> Persistence.open(dir));
+        assertTrue(e.getMessage().startsWith("Snapshot is corrupt"), e.getMessage());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    private Persistence open(int cachePages) throws IOException {
+        return Persistence.open(dir, Persistence.DEFAULT_CHECKPOINT_INTERVAL, Persistence.DEFAULT_ARCHIVE_AGE,
+                Clock.systemDefaultZone(), cachePages);
+    }
+
+    private static void assertRecovered(DataStore store) {
+        assertEquals(500000 - 200000 - 175000, store.getBalance());
+        assertEquals(BillState.PAID, store.findBill(1).getState());
+        assertEquals(BillState.PAID, store.findBill(2).getState());
+        assertEquals(BillState.NOT_PAID, store.findBill(4).getState());
+        assertEquals(LocalDate.of(2020, 10, 20), store.findBill(2).getScheduledDate());
+
+        List<Payment> payments = store.getPayments();
+        assertEquals(2, payments.size());
+        assertEquals(2, payments.get(0).getBillId()); // the scheduled payment, now processed
+        assertEquals(PaymentState.PROCESSED, payments.get(0).getState());
+        assertEquals(1, payments.get(1).getBillId());
+        assertNull(store.findPendingPaymentByBillId(2));
+    }
+}
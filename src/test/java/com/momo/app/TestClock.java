@@ -0,0 +1,33 @@
+package com.momo.app;
+
+import java.time.*;
+
+// A clock for tests that only moves when told to
+class TestClock extends Clock {
+    private volatile Instant now;
+    private final ZoneId zone;
+
+    TestClock(LocalDate today) {
+        this.zone = ZoneOffset.UTC;
+        this.now = today.atStartOfDay(zone).toInstant();
+    }
+
+    void advanceDays(int days) {
+        now = now.plus(Duration.ofDays(days));
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+        return now;
+    }
+}
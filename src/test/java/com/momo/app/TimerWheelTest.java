@@ -0,0 +1,64 @@
+package com.momo.app;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    @Test
+    @DisplayName("Every timer should fire on its day, whatever its level and the size of the steps")
+    void advanceTo_shouldFireEveryTimerOnItsDay() {
+        long start = -500; // before 1970, the wheel works on negative days too
+        TimerWheel wheel = new TimerWheel(start);
+        Random random = new Random(7);
+        Map<Integer, Long> dayOf = new HashMap<>();
+        for (int id = 0; id < 200_000; id++) {
+            long day = start + (random.nextBoolean() ? random.nextInt(100) : random.nextInt(300_000)) - 10;
+            dayOf.put(id, day);
+            wheel.add(day, id, id % 3);
+        }
+        wheel.add(start + (1L << 30), -1, 0); // beyond the top level
+
+        long now = start;
+        while (now < start + 300_000) {
+            long to = now + 1 + random.nextInt(random.nextInt(10) == 0 ? 5000 : 3);
+            long from = now;
+            List<Integer> fired = new ArrayList<>();
+            wheel.advanceTo(to, (id, kind) -> {
+                assertEquals(id % 3, kind);
+                fired.add(id);
+            });
+            for (int id : fired) {
+                long day = dayOf.remove(id);
+                assertTrue(day <= to && (day > from || day <= start), "timer for day " + day + " fired between " + from + " and " + to);
+            }
+            now = to;
+        }
+        assertTrue(dayOf.isEmpty(), dayOf.size() + " timers never fired");
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Timers added while advancing and reused nodes should fire once each")
+    void add_afterFiring_shouldReuseNodes() {
+        TimerWheel wheel = new TimerWheel(0);
+        wheel.add(1, 10, 0);
+        wheel.add(70, 20, 1);
+        List<Integer> fired = new ArrayList<>();
+        wheel.advanceTo(1, (id, kind) -> {
+            fired.add(id);
+            wheel.add(2, 11, 0);
+        });
+        wheel.advanceTo(100, (id, kind) -> fired.add(id));
+        assertEquals(List.of(10, 11, 20), fired);
+        assertEquals(0, wheel.size());
+    }
+}